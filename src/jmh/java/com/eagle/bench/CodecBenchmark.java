@@ -0,0 +1,91 @@
+package com.eagle.bench;
+
+import com.eagle.model.request.TransactionRequest;
+import com.eagle.model.response.AccountResponse;
+import com.eagle.model.response.TransactionResponse;
+import com.eagle.model.response.UserProfileResponse;
+import com.eagle.util.Jsons;
+import com.google.gson.Gson;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reflective Gson (what the handlers used before) against the streaming codecs in ModelCodecs.
+ * Run with {@code mvn -Pjmh compile exec:java}; pass JMH options via {@code -Dexec.args="..."}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CodecBenchmark {
+    private static final Gson REFLECTIVE = new Gson();
+
+    /** Transactions per page, as served by GET .../transactions?limit=N. */
+    @Param({"1", "100"})
+    public int pageSize;
+
+    private List<TransactionResponse> page;
+    private AccountResponse account;
+    private UserProfileResponse profile;
+    private String transactionRequestJson;
+
+    @Setup
+    public void setup() {
+        page = new ArrayList<>(pageSize);
+        for (int i = 0; i < pageSize; i++) {
+            page.add(new TransactionResponse(i, i % 2 == 0 ? "DEPOSIT" : "WITHDRAW", "10.00", (100 + i) + ".00",
+                    "2026-01-01T00:00:00.000000000Z"));
+        }
+        account = new AccountResponse(7, "123456789012", "1000.00");
+        profile = new UserProfileResponse("alice", "alice@example.com", "1990-01-01", "1 Main St", "1234", "555-0100");
+        transactionRequestJson = REFLECTIVE.toJson(new TransactionRequest("25.00", "DEPOSIT", "salary"));
+    }
+
+    // ---- write: object to UTF-8 bytes, as BaseHandler.writeJson needs them ----
+
+    @Benchmark
+    public byte[] transactionsReflective() { return REFLECTIVE.toJson(page).getBytes(StandardCharsets.UTF_8); }
+
+    @Benchmark
+    public byte[] transactionsCodec() { return Jsons.toJsonBytes(page); }
+
+    @Benchmark
+    public byte[] accountReflective() { return REFLECTIVE.toJson(account).getBytes(StandardCharsets.UTF_8); }
+
+    @Benchmark
+    public byte[] accountCodec() { return Jsons.toJsonBytes(account); }
+
+    @Benchmark
+    public byte[] profileReflective() { return REFLECTIVE.toJson(profile).getBytes(StandardCharsets.UTF_8); }
+
+    @Benchmark
+    public byte[] profileCodec() { return Jsons.toJsonBytes(profile); }
+
+    // ---- read: request body to model ----
+
+    @Benchmark
+    public TransactionRequest transactionRequestReflective() {
+        return REFLECTIVE.fromJson(transactionRequestJson, TransactionRequest.class);
+    }
+
+    @Benchmark
+    public TransactionRequest transactionRequestCodec() {
+        return Jsons.fromJson(transactionRequestJson, TransactionRequest.class);
+    }
+}
@@ -1,20 +1,36 @@
 package com.eagle.client;
 
+import com.eagle.util.Cbor;
+import com.eagle.util.Config;
+
 import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.OutputStream;
 import java.net.HttpURLConnection;
 import java.net.ProtocolException;
 import java.net.URL;
 import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
 
 /**
  * Common HTTP helpers for all clients.
  * Subclasses can call the protected methods to keep code minimal.
+ * With -Deagle.client.cbor=true bodies travel as CBOR; readBody hands callers JSON text either way.
  */
 public abstract class AbsClient {
     protected static final String DEFAULT_BASE_URL = "http://localhost:8080";
     protected static final int DEFAULT_TIMEOUT_MS = 5000;
+    protected static final boolean CBOR = Config.bool("eagle.client.cbor", false);
+
+    /** Last ETag'd 200 body per URL, for conditional GETs (per client instance). */
+    private final Map<String, Validated> validated = new ConcurrentHashMap<>();
+
+    private record Validated(String etag, String body) {}
 
     // ---------- URL helpers ----------
     protected String trimTrailingSlash(String s) {
@@ -39,12 +55,18 @@ public abstract class AbsClient {
         c.setConnectTimeout(DEFAULT_TIMEOUT_MS);
         c.setReadTimeout(DEFAULT_TIMEOUT_MS);
         c.setRequestMethod(method);
+        c.setRequestProperty("Accept-Encoding", "gzip, deflate"); // decoded in readBody
+        c.setRequestProperty("X-Deadline-Ms", String.valueOf(DEFAULT_TIMEOUT_MS)); // server stops work we no longer wait for
         return c;
     }
 
     protected void setJsonHeaders(HttpURLConnection c) {
-        c.setRequestProperty("Accept", "application/json");
-        c.setRequestProperty("Content-Type", "application/json; charset=UTF-8");
+        setAccept(c);
+        c.setRequestProperty("Content-Type", CBOR ? Cbor.CONTENT_TYPE : "application/json; charset=UTF-8");
+    }
+
+    protected void setAccept(HttpURLConnection c) {
+        c.setRequestProperty("Accept", CBOR ? Cbor.CONTENT_TYPE + ", application/json;q=0.5" : "application/json");
     }
 
     protected void setAuth(HttpURLConnection c, String token) {
@@ -57,15 +79,22 @@ public abstract class AbsClient {
         c.setDoOutput(true);
     }
 
+    /** Sends {@code json}, transcoded to CBOR when {@link #setJsonHeaders} announced CBOR. */
     protected void writeJson(HttpURLConnection c, String json) throws Exception {
+        byte[] body = json.getBytes(StandardCharsets.UTF_8);
         try (OutputStream os = c.getOutputStream()) {
-            os.write(json.getBytes(StandardCharsets.UTF_8));
+            os.write(CBOR ? Cbor.fromJson(body) : body);
         }
     }
 
     protected String readBody(HttpURLConnection c, int code) throws Exception {
+        if (Cbor.isCbor(c.getContentType())) {
+            InputStream in = decoded(c, (code >= 200 && code < 300) ? c.getInputStream() : c.getErrorStream());
+            if (in == null) return "";
+            try (in) { return Cbor.toJson(in.readAllBytes()); }
+        }
         try (BufferedReader br = new BufferedReader(new InputStreamReader(
-                (code >= 200 && code < 300) ? c.getInputStream() : c.getErrorStream(),
+                decoded(c, (code >= 200 && code < 300) ? c.getInputStream() : c.getErrorStream()),
                 StandardCharsets.UTF_8))) {
             StringBuilder sb = new StringBuilder();
             for (String l; (l = br.readLine()) != null; ) sb.append(l);
@@ -75,6 +104,47 @@ public abstract class AbsClient {
         }
     }
 
+    // ---------- Conditional requests ----------
+
+    /** Sends If-None-Match with the ETag of the last 200 this client saw for the same URL and token. */
+    protected void setConditional(HttpURLConnection c, String token) {
+        Validated v = validated.get(cacheKey(c, token));
+        if (v != null) c.setRequestProperty("If-None-Match", v.etag());
+    }
+
+    /**
+     * Like {@link #readBody}, but a 304 returns the cached body and an ETag'd 200 is remembered.
+     * Callers should treat 304 as success.
+     */
+    protected String readBodyConditional(HttpURLConnection c, int code, String token) throws Exception {
+        String key = cacheKey(c, token);
+        if (code == 304) {
+            Validated v = validated.get(key);
+            return v == null ? "" : v.body();
+        }
+        String body = readBody(c, code);
+        String etag = c.getHeaderField("ETag");
+        if (code == 200 && etag != null) validated.put(key, new Validated(etag, body));
+        else validated.remove(key);
+        return body;
+    }
+
+    private static String cacheKey(HttpURLConnection c, String token) {
+        return token == null ? c.getURL().toString() : c.getURL() + "|" + token.trim();
+    }
+
+    /** Unwraps a gzip or deflate response body according to Content-Encoding. */
+    protected InputStream decoded(HttpURLConnection c, InputStream in) throws IOException {
+        if (in == null) return null;
+        String enc = c.getContentEncoding();
+        if (enc == null) return in;
+        return switch (enc.trim().toLowerCase()) {
+            case "gzip", "x-gzip" -> new GZIPInputStream(in);
+            case "deflate" -> new InflaterInputStream(in);
+            default -> in;
+        };
+    }
+
     protected void setPatchOrOverride(HttpURLConnection c) throws ProtocolException {
         try {
             c.setRequestMethod("PATCH");
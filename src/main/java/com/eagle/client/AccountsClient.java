@@ -1,15 +1,20 @@
 package com.eagle.client;
 
+import com.eagle.model.request.TransactionBatchRequest;
+import com.eagle.model.request.TransactionRequest;
+import com.eagle.util.Jsons;
 import com.google.gson.Gson;
 import com.google.gson.reflect.TypeToken;
 
 import java.lang.reflect.Type;
 import java.net.HttpURLConnection;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 import java.util.Map;
 
 public class AccountsClient extends AbsClient {
-    private static final Gson GSON = new Gson();
+    private static final Gson GSON = Jsons.gson();
 
     // ---- Accounts ----
     public String create(String baseUrl, String token, String accountNumber) throws Exception {
@@ -26,23 +31,23 @@ public class AccountsClient extends AbsClient {
 
     public String list(String baseUrl, String token) throws Exception {
         HttpURLConnection c = open(joinUrl(baseUrl, "/users/me/accounts"), "GET");
-        setAuth(c, token); c.setRequestProperty("Accept","application/json");
+        setAuth(c, token); setAccept(c); setConditional(c, token);
         int code = c.getResponseCode();
-        String body = readBody(c, code);
+        String body = readBodyConditional(c, code, token);
         return "HTTP "+code+" -> "+body;
     }
 
     public String getOne(String baseUrl, String token, int id) throws Exception {
         HttpURLConnection c = open(joinUrl(baseUrl, "/users/me/accounts/"+id), "GET");
-        setAuth(c, token); c.setRequestProperty("Accept","application/json");
+        setAuth(c, token); setAccept(c); setConditional(c, token);
         int code = c.getResponseCode();
-        String body = readBody(c, code);
+        String body = readBodyConditional(c, code, token);
         return "HTTP "+code+" -> "+body;
     }
 
     public String delete(String baseUrl, String token, int id) throws Exception {
         HttpURLConnection c = open(joinUrl(baseUrl, "/users/me/accounts/"+id), "DELETE");
-        setAuth(c, token); c.setRequestProperty("Accept","application/json");
+        setAuth(c, token); setAccept(c);
         int code = c.getResponseCode();
         String body = readBody(c, code);
         return "HTTP "+code+(body.isBlank()?"":" -> "+body);
@@ -56,14 +61,24 @@ public class AccountsClient extends AbsClient {
         return tx(baseUrl, token, accountId, "WITHDRAW", amount);
     }
 
+    /** Posts many operations at once; {@code mode} is {@link TransactionBatchRequest#ATOMIC} or {@link TransactionBatchRequest#BEST_EFFORT}. */
+    public String batch(String baseUrl, String token, int accountId, String mode, List<TransactionRequest> ops) throws Exception {
+        HttpURLConnection c = open(joinUrl(baseUrl, "/users/me/accounts/"+accountId+"/transactions:batch"), "POST");
+        setAuth(c, token); setJsonHeaders(c); enableBody(c);
+        writeJson(c, GSON.toJson(new TransactionBatchRequest(mode, ops)));
+        int code = c.getResponseCode();
+        String body = readBody(c, code);
+        return "HTTP "+code+" -> "+body;
+    }
+
     public String listTransactions(String baseUrl, String token, int accountId, Integer limit, Integer offset) throws Exception {
         StringBuilder qs = new StringBuilder();
         if (limit != null) qs.append(qs.length()==0?"?":"&").append("limit=").append(Math.max(1, Math.min(200, limit)));
         if (offset != null) qs.append(qs.length()==0?"?":"&").append("offset=").append(Math.max(0, offset));
         HttpURLConnection c = open(joinUrl(baseUrl, "/users/me/accounts/"+accountId+"/transactions"+qs), "GET");
-        setAuth(c, token); c.setRequestProperty("Accept","application/json");
+        setAuth(c, token); setAccept(c); setConditional(c, token);
         int code = c.getResponseCode();
-        String body = readBody(c, code);
+        String body = readBodyConditional(c, code, token);
         return "HTTP "+code+" -> "+body;
     }
 
@@ -71,6 +86,19 @@ public class AccountsClient extends AbsClient {
         return listTransactions(baseUrl, token, accountId, null, null);
     }
 
+    /** Keyset paging: {@code cursor} is null for the newest page, then the {@code next=} value of the previous reply. */
+    public String listTransactionsPage(String baseUrl, String token, int accountId, Integer limit, String cursor) throws Exception {
+        StringBuilder qs = new StringBuilder();
+        if (limit != null) qs.append(qs.length()==0?"?":"&").append("limit=").append(Math.max(1, Math.min(200, limit)));
+        if (cursor != null) qs.append(qs.length()==0?"?":"&").append("cursor=").append(URLEncoder.encode(cursor, StandardCharsets.UTF_8));
+        HttpURLConnection c = open(joinUrl(baseUrl, "/users/me/accounts/"+accountId+"/transactions"+qs), "GET");
+        setAuth(c, token); setAccept(c); // unconditional: a 304 would not carry the cursor
+        int code = c.getResponseCode();
+        String next = c.getHeaderField("X-Next-Cursor");
+        String body = readBody(c, code);
+        return "HTTP "+code+(next == null ? "" : " next="+next)+" -> "+body;
+    }
+
     // helper to parse first id from list()
     public static Integer firstIdFromList(String listResponse) {
         try {
@@ -0,0 +1,94 @@
+package com.eagle.client;
+
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.IntStream;
+
+/**
+ * Closed-loop load generator used to compare server executor modes.
+ * Usage: LoadClient [baseUrl] [concurrency] [seconds]
+ * Start the server once per mode (-Deagle.executor=platform|virtual|forkjoin) and compare the summaries.
+ * Each worker loops over a mixed workload: ping, GET /users/me, deposit, transaction list.
+ * Only 2xx (and 304 to the client's own conditional GETs) count as ok; 429, other 4xx and failures (5xx, I/O errors)
+ * are reported apart, so rejected requests never pass for throughput.
+ */
+public class LoadClient {
+
+    public static void main(String[] args) throws Exception {
+        String baseUrl = args.length > 0 ? args[0] : AbsClient.DEFAULT_BASE_URL;
+        int concurrency = args.length > 1 ? Integer.parseInt(args[1]) : 50;
+        int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 30;
+
+        // One user + account shared by all workers so writes contend on the same row, like a hot account.
+        SignupClient signup = new SignupClient();
+        signup.signupRandom(baseUrl);
+        String token = SignupClient.LAST_AUTH_TOKEN;
+        if (token == null) throw new IllegalStateException("Signup did not return a token");
+        AccountsClient accounts = new AccountsClient();
+        accounts.create(baseUrl, token, null);
+        Integer accountId = AccountsClient.firstIdFromList(accounts.list(baseUrl, token));
+        if (accountId == null) throw new IllegalStateException("Could not create an account");
+
+        LongAdder ok = new LongAdder(), limited = new LongAdder(), rejected = new LongAdder(), failed = new LongAdder();
+        long[][] samples = new long[concurrency][1 << 16]; // per-worker ring of latencies (ns)
+        int[] counts = new int[concurrency];
+        long endAt = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+
+        ExecutorService pool = Executors.newFixedThreadPool(concurrency);
+        for (int w = 0; w < concurrency; w++) {
+            final int worker = w;
+            pool.submit(() -> {
+                MeClient me = new MeClient();
+                int n = 0;
+                while (System.nanoTime() < endAt) {
+                    long t0 = System.nanoTime();
+                    int status;
+                    try {
+                        status = switch (n % 4) {
+                            case 0 -> status(PingClient.ping(baseUrl));
+                            case 1 -> { me.getMe(baseUrl, token); yield 200; } // 2xx or 304, anything else throws
+                            case 2 -> status(accounts.deposit(baseUrl, token, accountId, "1.00"));
+                            default -> status(accounts.listTransactions(baseUrl, token, accountId, 20, 0));
+                        };
+                    } catch (Exception e) {
+                        status = status(e.getMessage()); // MeClient reports the status in the message; I/O errors have none
+                    }
+                    if ((status >= 200 && status < 300) || status == 304) ok.increment();
+                    else if (status == 429) limited.increment();
+                    else if (status >= 400 && status < 500) rejected.increment();
+                    else failed.increment();
+                    samples[worker][n & (samples[worker].length - 1)] = System.nanoTime() - t0;
+                    n++;
+                }
+                counts[worker] = Math.min(n, samples[worker].length);
+                return null;
+            });
+        }
+        pool.shutdown();
+        pool.awaitTermination(seconds + 30L, TimeUnit.SECONDS);
+
+        long total = ok.sum() + limited.sum() + rejected.sum() + failed.sum();
+        long[] all = IntStream.range(0, concurrency)
+                .mapToObj(i -> Arrays.stream(samples[i], 0, counts[i]))
+                .flatMapToLong(s -> s).sorted().toArray();
+        System.out.printf("requests=%d ok=%d 429=%d 4xx=%d failed=%d throughput=%.1f ok/s (%.1f req/s) p50=%.1fms p99=%.1fms%n",
+                total, ok.sum(), limited.sum(), rejected.sum(), failed.sum(), ok.sum() / (double) seconds, total / (double) seconds,
+                percentileMs(all, 0.50), percentileMs(all, 0.99));
+    }
+
+    /** Status of a client result: {@code "HTTP nnn ..."} as the clients report non-2xx replies, else 200; -1 when null. */
+    private static int status(String r) {
+        if (r == null) return -1;
+        if (!r.startsWith("HTTP ")) return 200; // PingClient returns the body of a 2xx as is
+        try { return Integer.parseInt(r.substring(5, Math.min(r.length(), 8))); }
+        catch (NumberFormatException e) { return -1; }
+    }
+
+    private static double percentileMs(long[] sorted, double p) {
+        if (sorted.length == 0) return 0;
+        return sorted[(int) Math.min(sorted.length - 1, Math.floor(p * sorted.length))] / 1_000_000.0;
+    }
+}
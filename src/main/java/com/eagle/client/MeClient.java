@@ -1,6 +1,7 @@
 package com.eagle.client;
 
 import com.eagle.model.response.UserProfileResponse;
+import com.eagle.util.Jsons;
 import com.google.gson.Gson;
 
 import java.net.HttpURLConnection;
@@ -8,16 +9,17 @@ import java.util.LinkedHashMap;
 import java.util.Map;
 
 public class MeClient extends AbsClient {
-    private static final Gson GSON = new Gson();
+    private static final Gson GSON = Jsons.gson();
 
     public UserProfileResponse getMe(String baseUrl, String authToken) throws Exception {
         requireToken(authToken);
         HttpURLConnection c = open(joinUrl(baseUrl, "/users/me"), "GET");
         setAuth(c, authToken);
-        c.setRequestProperty("Accept", "application/json");
+        setAccept(c);
+        setConditional(c, authToken);
         int code = c.getResponseCode();
-        String body = readBody(c, code);
-        if (code >= 200 && code < 300) return (body.isBlank()? null : GSON.fromJson(body, UserProfileResponse.class));
+        String body = readBodyConditional(c, code, authToken); // 304 -> last body seen
+        if ((code >= 200 && code < 300) || code == 304) return (body.isBlank()? null : GSON.fromJson(body, UserProfileResponse.class));
         throw new RuntimeException("HTTP "+code+" GET /users/me -> "+body);
     }
     public static UserProfileResponse getMe(String authToken) throws Exception {
@@ -40,7 +42,7 @@ public class MeClient extends AbsClient {
         HttpURLConnection c = open(joinUrl(baseUrl, "/users/me"), "POST");
         setPatchOrOverride(c); // PATCH or override
         setAuth(c, authToken); setJsonHeaders(c); enableBody(c);
-        writeJson(c, new Gson().toJson(payload));
+        writeJson(c, GSON.toJson(payload));
         int code = c.getResponseCode();
         String body = readBody(c, code);
         if (code >= 200 && code < 300) return (body.isBlank()? null : GSON.fromJson(body, UserProfileResponse.class));
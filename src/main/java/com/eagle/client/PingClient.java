@@ -16,7 +16,7 @@ public class PingClient extends AbsClient {
     // Instance method with the actual logic
     public String pingInstance(String baseUrl) throws Exception {
         HttpURLConnection c = open(joinUrl(baseUrl, "/hello"), "GET");
-        c.setRequestProperty("Accept", "application/json");
+        setAccept(c);
         int code = c.getResponseCode();
         String body = readBody(c, code);
         return (code >= 200 && code < 300)
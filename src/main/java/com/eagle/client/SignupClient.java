@@ -1,6 +1,7 @@
 package com.eagle.client;
 
 import com.eagle.model.request.SignupRequest;
+import com.eagle.util.Jsons;
 import com.google.gson.Gson;
 
 import java.net.HttpURLConnection;
@@ -14,7 +15,7 @@ public class SignupClient extends AbsClient {
     public static final Map<String, String> TOKENS = new LinkedHashMap<>(); // username -> bearer token
 
     private static final Random RAND = new Random();
-    private static final Gson GSON = new Gson();
+    private static final Gson GSON = Jsons.gson();
 
     public static volatile String LAST_USERNAME = null;
     public static volatile String LAST_PASSWORD = null;
@@ -0,0 +1,133 @@
+package com.eagle.client;
+
+import com.eagle.model.response.WebhookBatch;
+import com.eagle.util.Config;
+import com.eagle.util.Jsons;
+import com.google.gson.JsonParseException;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Local stand-in for a downstream system, for trying webhook delivery end to end:
+ * <pre>java -cp ... com.eagle.client.WebhookReceiver [port=9090]
+ * java -Deagle.webhooks.endpoints=stub=http://localhost:9090/hook ... com.eagle.http.BasicHttpServer</pre>
+ * Accepts {@link WebhookBatch} POSTs on any path and counts batches, events and duplicate event ids (redeliveries).
+ * {@code -Deagle.stub.failRate=0.3} answers that share of batches with 503 (and {@code Retry-After} when
+ * {@code -Deagle.stub.retryAfter} is set), {@code -Deagle.stub.delayMs} slows every reply, to exercise retries,
+ * backoff and the concurrency cap. {@code GET /stats} returns the counters as JSON; they are also printed every 5 s.
+ * Tests start one with {@link #start} and read {@link #stats} / {@link #eventIds} directly.
+ */
+public class WebhookReceiver {
+    private static final double FAIL_RATE = Double.parseDouble(Config.str("eagle.stub.failRate", "0"));
+    private static final long DELAY_MS = Config.longVal("eagle.stub.delayMs", 0);
+    private static final String RETRY_AFTER = Config.str("eagle.stub.retryAfter", null);
+
+    private final double failRate;
+    private final long delayMs;
+    private final String retryAfter;
+    private final Random random;
+    private final Set<String> seen = ConcurrentHashMap.newKeySet();
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder events = new LongAdder();
+    private final LongAdder duplicates = new LongAdder();
+    private final LongAdder refused = new LongAdder();
+    private final LongAdder inFlight = new LongAdder();
+    private volatile long maxInFlight;
+    private volatile int maxAttempt;
+
+    /** {@code random} decides which batches fail, so a seeded one makes a run repeatable. */
+    public WebhookReceiver(double failRate, long delayMs, String retryAfter, Random random) {
+        this.failRate = failRate;
+        this.delayMs = delayMs;
+        this.retryAfter = retryAfter;
+        this.random = random;
+    }
+
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 9090;
+        WebhookReceiver stub = new WebhookReceiver(FAIL_RATE, DELAY_MS, RETRY_AFTER, new Random());
+        stub.start(port);
+        System.out.println("Webhook receiver on port " + port + " (failRate=" + FAIL_RATE + ", delayMs=" + DELAY_MS + ")");
+        Executors.newSingleThreadScheduledExecutor().scheduleAtFixedRate(
+                () -> System.out.println(Instant.now() + " " + stub.stats()), 5, 5, TimeUnit.SECONDS);
+    }
+
+    /** Serves on {@code port} (0 for any free one) until the returned server is stopped. */
+    public HttpServer start(int port) throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress(port), 0);
+        server.createContext("/", this::handle);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.start();
+        return server;
+    }
+
+    private void handle(HttpExchange ex) throws IOException {
+        try (ex) {
+            if ("GET".equals(ex.getRequestMethod()) && ex.getRequestURI().getPath().equals("/stats")) {
+                reply(ex, 200, Jsons.toJson(stats()));
+                return;
+            }
+            if (!"POST".equals(ex.getRequestMethod())) { reply(ex, 405, ""); return; }
+            inFlight.increment();
+            try {
+                maxInFlight = Math.max(maxInFlight, inFlight.sum());
+                byte[] body;
+                try (InputStream in = ex.getRequestBody()) { body = in.readAllBytes(); }
+                if (delayMs > 0) Thread.sleep(delayMs);
+                WebhookBatch batch;
+                try { batch = Jsons.fromJson(new String(body, StandardCharsets.UTF_8), WebhookBatch.class); }
+                catch (JsonParseException e) { reply(ex, 400, ""); return; }
+                if (batch == null || batch.getEvents() == null) { reply(ex, 400, ""); return; }
+                maxAttempt = Math.max(maxAttempt, batch.getAttempt());
+                if (failRate > 0 && random.nextDouble() < failRate) {
+                    refused.increment();
+                    if (retryAfter != null) ex.getResponseHeaders().set("Retry-After", retryAfter);
+                    reply(ex, 503, "");
+                    return;
+                }
+                batches.increment();
+                for (WebhookBatch.Event e : batch.getEvents()) {
+                    events.increment();
+                    if (!seen.add(e.getId())) duplicates.increment();
+                }
+                reply(ex, 204, "");
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                reply(ex, 503, "");
+            } finally {
+                inFlight.decrement();
+            }
+        }
+    }
+
+    /** Counters; {@code maxAttempt} is the highest {@link WebhookBatch#getAttempt} seen, refused batches included. */
+    public Map<String, Object> stats() {
+        return Map.of("batches", batches.sum(), "events", events.sum(), "unique", seen.size(),
+                "duplicates", duplicates.sum(), "refused", refused.sum(), "maxInFlight", maxInFlight,
+                "maxAttempt", maxAttempt);
+    }
+
+    /** Ids of the events accepted so far (each once, however often it was redelivered). */
+    public Set<String> eventIds() { return Set.copyOf(seen); }
+
+    private static void reply(HttpExchange ex, int status, String body) throws IOException {
+        byte[] b = body.getBytes(StandardCharsets.UTF_8);
+        if (b.length > 0) ex.getResponseHeaders().set("Content-Type", "application/json; charset=UTF-8");
+        ex.sendResponseHeaders(status, b.length == 0 ? -1 : b.length);
+        if (b.length > 0) try (OutputStream os = ex.getResponseBody()) { os.write(b); }
+    }
+}
@@ -1,18 +1,28 @@
 package com.eagle.dao;
 
+import com.eagle.util.Deadline;
+import com.eagle.util.FieldSelection;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import java.math.BigDecimal;
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Random;
+import java.util.Set;
 
 public class BankAccountDao {
     private static final Logger log = LogManager.getLogger(BankAccountDao.class);
     private static final Random RAND = new Random();
 
+    /** Selectable fields of an account (record/JSON name → column), for {@code ?fields=}. */
+    public static final Map<String, String> FIELDS = FieldSelection.fields(
+            "id", "id", "accountNumber", "account_number", "balance", "balance");
+    private static final Set<String> ALL_COLUMNS = new LinkedHashSet<>(List.of("id", "user_id", "account_number", "balance"));
+
     private final String url = "jdbc:derby:memory:eagleDB;create=true";
     private final String dbUser = "";
     private final String dbPassword = "";
@@ -59,6 +69,7 @@ public class BankAccountDao {
         String sql = "INSERT INTO bank_accounts (user_id, account_number, balance) VALUES (?, ?, 0)";
         try (Connection conn = DriverManager.getConnection(url, dbUser, dbPassword);
              PreparedStatement ps = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+            Deadline.apply(ps);
             ps.setInt(1, userId);
             ps.setString(2, acct);
             int updated = ps.executeUpdate();
@@ -75,6 +86,7 @@ public class BankAccountDao {
                 }
             }
         } catch (SQLException e) {
+            Deadline.propagate(e);
             if ("23505".equals(e.getSQLState())) { // unique violation: try a new number once if we generated it
                 if (accountNumber == null || accountNumber.isBlank()) {
                     return createForUser(userId, generateAccountNumber());
@@ -87,20 +99,22 @@ public class BankAccountDao {
 
     /** Get an account by id. */
     public AccountRecord getById(int id) {
-        String sql = "SELECT id, user_id, account_number, balance FROM bank_accounts WHERE id = ?";
+        return getById(id, ALL_COLUMNS);
+    }
+
+    /** Get an account by id, reading only {@code columns}; the other record fields stay unset. */
+    public AccountRecord getById(int id, Set<String> columns) {
+        String sql = "SELECT " + Columns.selectList(columns, ALL_COLUMNS) + " FROM bank_accounts WHERE id = ?";
         try (Connection conn = DriverManager.getConnection(url, dbUser, dbPassword);
              PreparedStatement ps = conn.prepareStatement(sql)) {
+            Deadline.apply(ps);
             ps.setInt(1, id);
             try (ResultSet rs = ps.executeQuery()) {
                 if (!rs.next()) return null;
-                AccountRecord r = new AccountRecord();
-                r.id = rs.getInt("id");
-                r.userId = rs.getInt("user_id");
-                r.accountNumber = rs.getString("account_number");
-                r.balance = rs.getBigDecimal("balance");
-                return r;
+                return read(rs, columns);
             }
         } catch (SQLException e) {
+            Deadline.propagate(e);
             log.error("getById failed ({} / {}): {}", e.getSQLState(), e.getErrorCode(), e.getMessage(), e);
             return null;
         }
@@ -108,22 +122,26 @@ public class BankAccountDao {
 
     /** List accounts for a user. */
     public List<AccountRecord> listByUserId(int userId) {
-        String sql = "SELECT id, user_id, account_number, balance FROM bank_accounts WHERE user_id = ? ORDER BY id";
+        return listByUserId(userId, ALL_COLUMNS);
+    }
+
+    /** List accounts for a user, reading only {@code columns}. */
+    public List<AccountRecord> listByUserId(int userId, Set<String> columns) {
+        String sql = "SELECT " + Columns.selectList(columns, ALL_COLUMNS) + " FROM bank_accounts WHERE user_id = ? ORDER BY id";
         List<AccountRecord> out = new ArrayList<>();
         try (Connection conn = DriverManager.getConnection(url, dbUser, dbPassword);
              PreparedStatement ps = conn.prepareStatement(sql)) {
+            Deadline.apply(ps);
             ps.setInt(1, userId);
             try (ResultSet rs = ps.executeQuery()) {
                 while (rs.next()) {
-                    AccountRecord r = new AccountRecord();
-                    r.id = rs.getInt("id");
-                    r.userId = rs.getInt("user_id");
-                    r.accountNumber = rs.getString("account_number");
-                    r.balance = rs.getBigDecimal("balance");
+                    AccountRecord r = read(rs, columns);
+                    if (!columns.contains("user_id")) r.userId = userId;
                     out.add(r);
                 }
             }
         } catch (SQLException e) {
+            Deadline.propagate(e);
             log.error("listByUserId failed ({} / {}): {}", e.getSQLState(), e.getErrorCode(), e.getMessage(), e);
         }
         return out;
@@ -135,16 +153,27 @@ public class BankAccountDao {
         String sql = "DELETE FROM bank_accounts WHERE id = ? AND user_id = ? AND balance = 0";
         try (Connection conn = DriverManager.getConnection(url, dbUser, dbPassword);
              PreparedStatement ps = conn.prepareStatement(sql)) {
+            Deadline.apply(ps);
             ps.setInt(1, accountId);
             ps.setInt(2, ownerUserId);
             int updated = ps.executeUpdate();
             return updated > 0;
         } catch (SQLException e) {
+            Deadline.propagate(e);
             log.error("deleteIfZeroBalance failed ({} / {}): {}", e.getSQLState(), e.getErrorCode(), e.getMessage(), e);
             return false;
         }
     }
 
+    private static AccountRecord read(ResultSet rs, Set<String> columns) throws SQLException {
+        AccountRecord r = new AccountRecord();
+        if (columns.contains("id")) r.id = rs.getInt("id");
+        if (columns.contains("user_id")) r.userId = rs.getInt("user_id");
+        if (columns.contains("account_number")) r.accountNumber = rs.getString("account_number");
+        if (columns.contains("balance")) r.balance = rs.getBigDecimal("balance");
+        return r;
+    }
+
     private String generateAccountNumber() {
         StringBuilder sb = new StringBuilder(12);
         for (int i = 0; i < 12; i++) sb.append(RAND.nextInt(10));
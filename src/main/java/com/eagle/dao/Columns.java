@@ -0,0 +1,15 @@
+package com.eagle.dao;
+
+import java.util.Set;
+
+/** Builds SELECT lists from caller-chosen columns, which must come from the DAO's own whitelist. */
+final class Columns {
+    private Columns() {}
+
+    static String selectList(Set<String> columns, Set<String> allowed) {
+        for (String c : columns) {
+            if (!allowed.contains(c)) throw new IllegalArgumentException("Unknown column: " + c);
+        }
+        return String.join(", ", columns);
+    }
+}
@@ -0,0 +1,227 @@
+package com.eagle.dao;
+
+import com.eagle.dao.TransactionDao.TxRecord;
+import com.eagle.util.Deadline;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.sql.*;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Transactional outbox for webhook delivery: one row per committed transaction and endpoint.
+ * - {@link TransactionDao} writes the rows on its own connection, inside the Derby transaction that inserts the
+ *   {@code transactions} rows, so an event exists exactly when its transaction does. Nothing is written until a
+ *   dispatcher has named its endpoints with {@link #routeTo}.
+ * - A dispatcher {@link #claim}s due rows of its endpoint (leasing them by pushing {@code next_attempt_at} out),
+ *   then {@link #delete}s them once delivered or {@link #reschedule}s them with a backoff. Rows that ran out of
+ *   attempts are {@link #park}ed: kept, but never due again.
+ * - Payloads are read by joining {@code transactions}, whose rows never change; only ids are duplicated here.
+ */
+public class OutboxDao {
+    private static final Logger log = LogManager.getLogger(OutboxDao.class);
+    public static final String TRANSACTION_CREATED = "transaction.created";
+    /** {@code next_attempt_at} of parked rows. */
+    private static final Timestamp PARKED = Timestamp.valueOf("9999-12-31 00:00:00");
+
+    private static volatile List<String> endpoints = List.of();
+
+    private final String url = "jdbc:derby:memory:eagleDB;create=true";
+    private final String dbUser = "";
+    private final String dbPassword = "";
+
+    /** A claimed row: the outbox id, how often it was tried before, and the transaction it announces. */
+    public record OutboxEvent(long id, int attempts, TxRecord tx) {}
+
+    /** Undelivered rows of one endpoint; {@code oldest} is the creation time of the oldest pending one, or null. */
+    public record Backlog(long pending, long parked, Timestamp oldest) {}
+
+    public OutboxDao() {
+        createTableIfNotExists();
+    }
+
+    /** Endpoints that get a row per transaction from now on; empty (the default) turns the outbox off. */
+    public static void routeTo(List<String> names) { endpoints = List.copyOf(names); }
+
+    private void createTableIfNotExists() {
+        String sql = "CREATE TABLE outbox (" +
+                "id BIGINT GENERATED ALWAYS AS IDENTITY PRIMARY KEY, " +
+                "endpoint VARCHAR(64) NOT NULL, " +
+                "event_type VARCHAR(32) NOT NULL, " +
+                "tx_id INT NOT NULL, " +
+                "created_at TIMESTAMP NOT NULL, " +
+                "attempts INT DEFAULT 0 NOT NULL, " +
+                "next_attempt_at TIMESTAMP NOT NULL, " +
+                "last_error VARCHAR(256)" +
+                ")";
+        try (Connection conn = DriverManager.getConnection(url, dbUser, dbPassword);
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.executeUpdate();
+            log.info("Table 'outbox' created");
+        } catch (SQLException e) {
+            if ("X0Y32".equals(e.getSQLState())) {
+                log.debug("Table 'outbox' already exists");
+            } else {
+                log.error("Error creating 'outbox' ({} / {}): {}", e.getSQLState(), e.getErrorCode(), e.getMessage(), e);
+            }
+        }
+        // Claims read one endpoint's due rows in due order and stop after a batch
+        try (Connection conn = DriverManager.getConnection(url, dbUser, dbPassword);
+             PreparedStatement ps = conn.prepareStatement("CREATE INDEX ix_outbox_due ON outbox(endpoint, next_attempt_at, id)")) {
+            ps.executeUpdate();
+        } catch (SQLException e) {
+            if (!"X0Y32".equals(e.getSQLState())) {
+                log.error("Error creating index 'ix_outbox_due' ({} / {}): {}", e.getSQLState(), e.getErrorCode(), e.getMessage(), e);
+            }
+        }
+    }
+
+    /** Adds the rows for {@code txs} on the caller's connection, inside its transaction; a no-op without endpoints. */
+    void append(Connection conn, List<TxRecord> txs) throws SQLException {
+        List<String> targets = endpoints;
+        if (targets.isEmpty() || txs.isEmpty()) return;
+        String sql = "INSERT INTO outbox (endpoint, event_type, tx_id, created_at, next_attempt_at) VALUES (?, ?, ?, ?, ?)";
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            Deadline.apply(ps);
+            for (TxRecord tx : txs) {
+                for (String endpoint : targets) {
+                    ps.setString(1, endpoint);
+                    ps.setString(2, TRANSACTION_CREATED);
+                    ps.setInt(3, tx.id);
+                    ps.setTimestamp(4, tx.createdAt);
+                    ps.setTimestamp(5, tx.createdAt);
+                    ps.addBatch();
+                }
+            }
+            ps.executeBatch();
+        }
+    }
+
+    /**
+     * Up to {@code limit} due rows of {@code endpoint}, oldest due first, each leased for {@code leaseMs} so it is
+     * not claimed again while in flight (a crash mid-delivery just lets the lease run out). Null on a DB error.
+     */
+    public List<OutboxEvent> claim(String endpoint, int limit, long leaseMs) {
+        String sql = "SELECT o.id, o.attempts, t.id AS tx_id, t.account_id, t.type, t.amount, t.created_at, t.balance_after"
+                + " FROM outbox o --DERBY-PROPERTIES index=IX_OUTBOX_DUE\n"
+                + " JOIN transactions t ON t.id = o.tx_id"
+                + " WHERE o.endpoint=? AND o.next_attempt_at<=?"
+                + " ORDER BY o.next_attempt_at, o.id FETCH FIRST ? ROWS ONLY";
+        Timestamp now = Timestamp.from(Instant.now());
+        try (Connection conn = DriverManager.getConnection(url, dbUser, dbPassword)) {
+            conn.setAutoCommit(false);
+            try {
+                List<OutboxEvent> out = new ArrayList<>();
+                try (PreparedStatement ps = conn.prepareStatement(sql)) {
+                    Deadline.apply(ps);
+                    ps.setString(1, endpoint);
+                    ps.setTimestamp(2, now);
+                    ps.setInt(3, limit);
+                    try (ResultSet rs = ps.executeQuery()) {
+                        while (rs.next()) {
+                            TxRecord t = new TxRecord();
+                            t.id = rs.getInt("tx_id");
+                            t.accountId = rs.getInt("account_id");
+                            t.type = rs.getString("type");
+                            t.amount = rs.getBigDecimal("amount");
+                            t.createdAt = rs.getTimestamp("created_at");
+                            t.balanceAfter = rs.getBigDecimal("balance_after");
+                            out.add(new OutboxEvent(rs.getLong("id"), rs.getInt("attempts"), t));
+                        }
+                    }
+                }
+                byId(conn, "UPDATE outbox SET next_attempt_at=? WHERE id=?", out.stream().map(OutboxEvent::id).toList(),
+                        new Timestamp(now.getTime() + leaseMs));
+                conn.commit();
+                return out;
+            } catch (SQLException ex) {
+                conn.rollback();
+                throw ex;
+            }
+        } catch (SQLException e) {
+            Deadline.propagate(e);
+            log.error("outbox claim failed ({} / {}): {}", e.getSQLState(), e.getErrorCode(), e.getMessage(), e);
+            return null;
+        }
+    }
+
+    /** Delivered: the rows are removed. False on a DB error (they are delivered again when the lease ends). */
+    public boolean delete(List<Long> ids) {
+        return update("DELETE FROM outbox WHERE id=?", ids, null, null);
+    }
+
+    /** Failed attempt: counts it and makes the rows due again at {@code next}. */
+    public boolean reschedule(List<Long> ids, Timestamp next, String error) {
+        return update("UPDATE outbox SET attempts=attempts+1, next_attempt_at=?, last_error=? WHERE id=?",
+                ids, next, error);
+    }
+
+    /** Out of attempts: the rows stay for inspection but are never claimed again. */
+    public boolean park(List<Long> ids, String error) {
+        return reschedule(ids, PARKED, error);
+    }
+
+    /** Pending and parked counts for {@code endpoint}, for lag metrics. Null on a DB error. */
+    public Backlog backlog(String endpoint) {
+        String sql = "SELECT SUM(CASE WHEN next_attempt_at<? THEN 1 ELSE 0 END), SUM(CASE WHEN next_attempt_at<? THEN 0 ELSE 1 END),"
+                + " MIN(CASE WHEN next_attempt_at<? THEN created_at END)"
+                + " FROM outbox --DERBY-PROPERTIES index=IX_OUTBOX_DUE\n WHERE endpoint=?";
+        try (Connection conn = DriverManager.getConnection(url, dbUser, dbPassword);
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            Deadline.apply(ps);
+            for (int i = 1; i <= 3; i++) ps.setTimestamp(i, PARKED);
+            ps.setString(4, endpoint);
+            try (ResultSet rs = ps.executeQuery()) {
+                rs.next();
+                return new Backlog(rs.getLong(1), rs.getLong(2), rs.getTimestamp(3));
+            }
+        } catch (SQLException e) {
+            Deadline.propagate(e);
+            log.error("outbox backlog failed ({} / {}): {}", e.getSQLState(), e.getErrorCode(), e.getMessage(), e);
+            return null;
+        }
+    }
+
+    private boolean update(String sql, List<Long> ids, Timestamp next, String error) {
+        if (ids.isEmpty()) return true;
+        try (Connection conn = DriverManager.getConnection(url, dbUser, dbPassword)) {
+            conn.setAutoCommit(false);
+            try {
+                String e = error == null ? null : error.length() > 256 ? error.substring(0, 256) : error;
+                if (next == null) byId(conn, sql, ids);
+                else byId(conn, sql, ids, next, e);
+                conn.commit();
+                return true;
+            } catch (SQLException ex) {
+                conn.rollback();
+                throw ex;
+            }
+        } catch (SQLException e) {
+            Deadline.propagate(e);
+            log.error("outbox update failed ({} / {}): {}", e.getSQLState(), e.getErrorCode(), e.getMessage(), e);
+            return false;
+        }
+    }
+
+    /**
+     * Runs {@code sql} (ending in {@code id=?}, after {@code leading} parameters) once per id as one JDBC batch.
+     * An {@code IN} list would be simpler, but Derby answers it on a small table with a scan that locks rows it does
+     * not change, and a claim and a concurrent delete of another batch then deadlock; a key lookup locks only its row.
+     */
+    private static void byId(Connection conn, String sql, List<Long> ids, Object... leading) throws SQLException {
+        if (ids.isEmpty()) return;
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            Deadline.apply(ps);
+            for (long id : ids) {
+                for (int i = 0; i < leading.length; i++) {
+                    if (leading[i] == null) ps.setNull(i + 1, Types.VARCHAR); else ps.setObject(i + 1, leading[i]);
+                }
+                ps.setLong(leading.length + 1, id);
+                ps.addBatch();
+            }
+            ps.executeBatch();
+        }
+    }
+}
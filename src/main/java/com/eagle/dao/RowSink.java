@@ -0,0 +1,9 @@
+package com.eagle.dao;
+
+import java.io.IOException;
+
+/** Receives rows as they come off a {@link java.sql.ResultSet}; may write them straight to a response. */
+@FunctionalInterface
+public interface RowSink<T> {
+    void accept(T row) throws IOException;
+}
@@ -1,17 +1,31 @@
 package com.eagle.dao;
 
+import com.eagle.util.Deadline;
+import com.eagle.util.FieldSelection;
+import com.eagle.util.TokenIndex;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import java.io.IOException;
 import java.sql.*;
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 
 public class UserDao {
     private static final Logger log = LogManager.getLogger(UserDao.class);
 
+    /** Selectable fields of a profile (record/JSON name → column), for {@code ?fields=}. */
+    public static final Map<String, String> FIELDS = FieldSelection.fields(
+            "username", "username", "email", "email", "dob", "dob", "address", "address", "pin", "pin", "phone", "phone");
+    private static final Set<String> PROFILE_COLUMNS = new LinkedHashSet<>(
+            List.of("id", "username", "email", "dob", "address", "pin", "phone"));
+
     private final String url = "jdbc:derby:memory:eagleDB;create=true";
     private final String dbUser = "";
     private final String dbPassword = "";
@@ -72,6 +86,7 @@ public class UserDao {
         log.debug("saveUser(username,password) called for username={}", username);
         try (Connection conn = DriverManager.getConnection(url, dbUser, dbPassword);
              PreparedStatement stmt = conn.prepareStatement(sql)) {
+            Deadline.apply(stmt);
             stmt.setString(1, username);
             stmt.setString(2, password); // TODO: hash later
             stmt.setString(3, token);
@@ -79,6 +94,7 @@ public class UserDao {
             log.info("saveUser: inserted username={}, updated={}", username, updated);
             return updated > 0;
         } catch (SQLException e) {
+            Deadline.propagate(e);
             log.warn("saveUser failed for username={} (SQLState={}, ErrorCode={}, Message={})",
                     username, e.getSQLState(), e.getErrorCode(), e.getMessage());
             return false;
@@ -100,6 +116,7 @@ public class UserDao {
         log.debug("saveUser(full) called for username={}", username);
         try (Connection conn = DriverManager.getConnection(url, dbUser, dbPassword);
              PreparedStatement stmt = conn.prepareStatement(sql)) {
+            Deadline.apply(stmt);
 
             stmt.setString(1, username);
             stmt.setString(2, password); // TODO: hash later
@@ -114,12 +131,128 @@ public class UserDao {
             log.info("saveUser(full): inserted username={}, updated={}", username, updated);
             return updated > 0;
         } catch (SQLException e) {
+            Deadline.propagate(e);
             log.warn("saveUser(full) failed for username={} (SQLState={}, ErrorCode={}, Message={})",
                     username, e.getSQLState(), e.getErrorCode(), e.getMessage());
             return false;
         }
     }
 
+    /** A user to create in bulk; nullable fields may be null. */
+    public record NewUser(String username, String password, String email, LocalDate dob, String address, String pin, String phone) {}
+
+    /** {@link BulkInsert#insert} reason for a username that is taken (or repeated within the chunk). */
+    public static final String DUPLICATE = "conflict";
+
+    /** Opens a bulk insert session (one connection for the whole import), or null when Derby is unavailable. */
+    public BulkInsert bulkInsert() {
+        try {
+            return new BulkInsert(DriverManager.getConnection(url, dbUser, dbPassword));
+        } catch (SQLException e) {
+            log.error("bulkInsert open failed ({} / {}): {}", e.getSQLState(), e.getErrorCode(), e.getMessage(), e);
+            return null;
+        }
+    }
+
+    /**
+     * One connection and one pair of prepared statements reused for every chunk, so the cost per user stays the
+     * same however long the import runs. Each {@link #insert} is a JDBC batch and one commit.
+     */
+    public final class BulkInsert implements AutoCloseable {
+        private final Connection conn;
+        private final PreparedStatement exists;
+        private final PreparedStatement insert;
+
+        private BulkInsert(Connection conn) throws SQLException {
+            this.conn = conn;
+            try {
+                conn.setAutoCommit(false);
+                exists = conn.prepareStatement("SELECT 1 FROM users WHERE username = ?");
+                insert = conn.prepareStatement("INSERT INTO users (username, password, email, dob, address, pin, phone, auth_token) " +
+                        "VALUES (?, ?, ?, ?, ?, ?, ?, ?)");
+            } catch (SQLException e) {
+                conn.close();
+                throw e;
+            }
+        }
+
+        /**
+         * Inserts {@code users} and commits. Returns one entry per user: null when created, else the reason
+         * ({@link #DUPLICATE}). Returns null on a database error, in which case nothing of this chunk was kept.
+         */
+        public String[] insert(List<NewUser> users) {
+            String[] reasons = new String[users.size()];
+            try {
+                try {
+                    Set<String> seen = new HashSet<>();
+                    Deadline.apply(exists);
+                    for (int i = 0; i < users.size(); i++) {
+                        String username = users.get(i).username();
+                        if (!seen.add(username) || taken(username)) reasons[i] = DUPLICATE;
+                    }
+                    Deadline.apply(insert);
+                    int batched = 0;
+                    for (int i = 0; i < users.size(); i++) {
+                        if (reasons[i] != null) continue;
+                        bind(users.get(i));
+                        insert.addBatch();
+                        batched++;
+                    }
+                    if (batched > 0) insert.executeBatch();
+                    conn.commit();
+                } catch (BatchUpdateException race) { // a concurrent signup took a name after the check
+                    conn.rollback();
+                    insert.clearBatch();
+                    insertOneByOne(users, reasons);
+                }
+                return reasons;
+            } catch (SQLException e) {
+                try { conn.rollback(); } catch (SQLException ignore) {}
+                Deadline.propagate(e);
+                log.error("bulk insert failed ({} / {}): {}", e.getSQLState(), e.getErrorCode(), e.getMessage(), e);
+                return null;
+            }
+        }
+
+        private void insertOneByOne(List<NewUser> users, String[] reasons) throws SQLException {
+            for (int i = 0; i < users.size(); i++) {
+                if (reasons[i] != null) continue;
+                bind(users.get(i));
+                try {
+                    insert.executeUpdate();
+                } catch (SQLException e) {
+                    if (!"23505".equals(e.getSQLState())) throw e; // duplicate key
+                    reasons[i] = DUPLICATE;
+                }
+            }
+            conn.commit();
+        }
+
+        private boolean taken(String username) throws SQLException {
+            exists.setString(1, username);
+            try (ResultSet rs = exists.executeQuery()) { return rs.next(); }
+        }
+
+        private void bind(NewUser u) throws SQLException {
+            insert.setString(1, u.username());
+            insert.setString(2, u.password()); // TODO: hash later
+            if (u.email() != null) insert.setString(3, u.email()); else insert.setNull(3, Types.VARCHAR);
+            if (u.dob() != null) insert.setDate(4, Date.valueOf(u.dob())); else insert.setNull(4, Types.DATE);
+            if (u.address() != null) insert.setString(5, u.address()); else insert.setNull(5, Types.VARCHAR);
+            if (u.pin() != null) insert.setString(6, u.pin()); else insert.setNull(6, Types.VARCHAR);
+            if (u.phone() != null) insert.setString(7, u.phone()); else insert.setNull(7, Types.VARCHAR);
+            insert.setString(8, newToken());
+        }
+
+        @Override
+        public void close() {
+            try { conn.rollback(); } catch (SQLException ignore) {}
+            try { conn.close(); } catch (SQLException e) {
+                log.warn("bulk insert close failed ({}): {}", e.getSQLState(), e.getMessage());
+            }
+        }
+    }
+
     /** Update extended fields for an existing user. */
     public boolean updateUserDetails(String username,
                                      String email,
@@ -131,6 +264,7 @@ public class UserDao {
         log.debug("updateUserDetails called for username={}", username);
         try (Connection conn = DriverManager.getConnection(url, dbUser, dbPassword);
              PreparedStatement stmt = conn.prepareStatement(sql)) {
+            Deadline.apply(stmt);
 
             if (email != null) stmt.setString(1, email); else stmt.setNull(1, Types.VARCHAR);
             if (dob != null) stmt.setDate(2, Date.valueOf(dob)); else stmt.setNull(2, Types.DATE);
@@ -143,6 +277,7 @@ public class UserDao {
             log.info("updateUserDetails: username={}, updated={}", username, updated);
             return updated > 0;
         } catch (SQLException e) {
+            Deadline.propagate(e);
             log.error("updateUserDetails failed for username={} (SQLState={}, ErrorCode={}, Message={})",
                     username, e.getSQLState(), e.getErrorCode(), e.getMessage(), e);
             return false;
@@ -155,25 +290,87 @@ public class UserDao {
         log.debug("getAllUsers called");
         List<String> users = new ArrayList<>();
         try (Connection conn = DriverManager.getConnection(url, dbUser, dbPassword);
-             PreparedStatement stmt = conn.prepareStatement(sql);
-             ResultSet rs = stmt.executeQuery()) {
-            while (rs.next()) {
-                users.add(rs.getString("username"));
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            Deadline.apply(stmt);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    users.add(rs.getString("username"));
+                }
             }
             log.info("getAllUsers: fetched count={}", users.size());
         } catch (SQLException e) {
+            Deadline.propagate(e);
             log.error("Error fetching users (SQLState={}, ErrorCode={}, Message={})",
                     e.getSQLState(), e.getErrorCode(), e.getMessage(), e);
         }
         return users;
     }
 
+    /**
+     * One keyset page: up to {@code limit} usernames after {@code after} (exclusive; null = from the start), in
+     * username order. The UNIQUE constraint's index on username serves both the seek and the order, so a page costs
+     * the same wherever it starts. Null on a DB error.
+     */
+    public List<String> listUsernames(String after, int limit) {
+        String sql = after == null
+                ? "SELECT username FROM users ORDER BY username FETCH FIRST ? ROWS ONLY"
+                : "SELECT username FROM users WHERE username > ? ORDER BY username FETCH FIRST ? ROWS ONLY";
+        List<String> users = new ArrayList<>(Math.min(limit, 1024));
+        try (Connection conn = DriverManager.getConnection(url, dbUser, dbPassword);
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            Deadline.apply(stmt);
+            int i = 1;
+            if (after != null) stmt.setString(i++, after);
+            stmt.setInt(i, limit);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) users.add(rs.getString(1));
+            }
+            return users;
+        } catch (SQLException e) {
+            Deadline.propagate(e);
+            log.error("listUsernames failed after={} (SQLState={}, ErrorCode={}, Message={})",
+                    after, e.getSQLState(), e.getErrorCode(), e.getMessage(), e);
+            return null;
+        }
+    }
+
+    /**
+     * Hands every username after {@code after} (null = all) to {@code sink} in username order as rows are read,
+     * without collecting them. Returns the row count, or -1 on a DB error (rows already passed on stay passed).
+     * Exceptions thrown by the sink (a client that went away) propagate.
+     */
+    public long streamUsernames(String after, RowSink<String> sink) throws IOException {
+        String sql = after == null
+                ? "SELECT username FROM users ORDER BY username"
+                : "SELECT username FROM users WHERE username > ? ORDER BY username";
+        long count = 0;
+        try (Connection conn = DriverManager.getConnection(url, dbUser, dbPassword);
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            Deadline.apply(stmt);
+            if (after != null) stmt.setString(1, after);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    sink.accept(rs.getString(1));
+                    count++;
+                }
+            }
+            log.info("streamUsernames: streamed count={}", count);
+            return count;
+        } catch (SQLException e) {
+            Deadline.propagate(e);
+            log.error("streamUsernames failed after {} rows (SQLState={}, ErrorCode={}, Message={})",
+                    count, e.getSQLState(), e.getErrorCode(), e.getMessage(), e);
+            return -1;
+        }
+    }
+
     /** Basic credential check (unchanged). */
     public boolean validateUser(String username, String password) {
         String sql = "SELECT COUNT(*) FROM users WHERE username=? AND password=?";
         log.debug("validateUser called for username={}", username);
         try (Connection conn = DriverManager.getConnection(url, dbUser, dbPassword);
              PreparedStatement ps = conn.prepareStatement(sql)) {
+            Deadline.apply(ps);
             ps.setString(1, username);
             ps.setString(2, password);
             try (ResultSet rs = ps.executeQuery()) {
@@ -184,6 +381,7 @@ public class UserDao {
                 return ok;
             }
         } catch (SQLException e) {
+            Deadline.propagate(e);
             log.error("validateUser failed for username={} (SQLState={}, ErrorCode={}, Message={})",
                     username, e.getSQLState(), e.getErrorCode(), e.getMessage(), e);
             return false;
@@ -196,6 +394,7 @@ public class UserDao {
         log.debug("getAuthToken called for username={}", username);
         try (Connection conn = DriverManager.getConnection(url, dbUser, dbPassword);
              PreparedStatement ps = conn.prepareStatement(sql)) {
+            Deadline.apply(ps);
             ps.setString(1, username);
             try (ResultSet rs = ps.executeQuery()) {
                 if (!rs.next()) return null;
@@ -204,6 +403,7 @@ public class UserDao {
                 return token;
             }
         } catch (SQLException e) {
+            Deadline.propagate(e);
             log.error("getAuthToken failed for username={} (SQLState={}, ErrorCode={}, Message={})",
                     username, e.getSQLState(), e.getErrorCode(), e.getMessage(), e);
             return null;
@@ -215,14 +415,18 @@ public class UserDao {
         String token = newToken();
         String sql = "UPDATE users SET auth_token=? WHERE username=?";
         log.debug("rotateAuthToken called for username={}", username);
+        String previous = getAuthToken(username);
         try (Connection conn = DriverManager.getConnection(url, dbUser, dbPassword);
              PreparedStatement ps = conn.prepareStatement(sql)) {
+            Deadline.apply(ps);
             ps.setString(1, token);
             ps.setString(2, username);
             int updated = ps.executeUpdate();
             log.info("rotateAuthToken: username={}, updated={}", username, updated);
+            if (updated > 0) TokenIndex.remove(previous); // the old token must stop matching cached lookups
             return updated > 0 ? token : null;
         } catch (SQLException e) {
+            Deadline.propagate(e);
             log.error("rotateAuthToken failed for username={} (SQLState={}, ErrorCode={}, Message={})",
                     username, e.getSQLState(), e.getErrorCode(), e.getMessage(), e);
             return null;
@@ -231,11 +435,17 @@ public class UserDao {
 
     /** NEW: fetch a user profile by bearer token — use this in /users/me. */
     public UserRecord getUserByAuthToken(String token) {
-        String sql = "SELECT id, username, email, dob, address, pin, phone " +
+        return getUserByAuthToken(token, PROFILE_COLUMNS);
+    }
+
+    /** As {@link #getUserByAuthToken(String)}, reading only {@code columns} (e.g. just {@code id} to authenticate). */
+    public UserRecord getUserByAuthToken(String token, Set<String> columns) {
+        String sql = "SELECT " + Columns.selectList(columns, PROFILE_COLUMNS) + " " +
                 "FROM users WHERE auth_token = ?";
         log.debug("getUserByAuthToken called");
         try (Connection conn = DriverManager.getConnection(url, dbUser, dbPassword);
              PreparedStatement ps = conn.prepareStatement(sql)) {
+            Deadline.apply(ps);
             ps.setString(1, token);
             try (ResultSet rs = ps.executeQuery()) {
                 if (!rs.next()) {
@@ -243,17 +453,18 @@ public class UserDao {
                     return null;
                 }
                 UserRecord u = new UserRecord();
-                u.id = rs.getInt("id");
-                u.username = rs.getString("username");
-                u.email = rs.getString("email");
-                u.dob = rs.getDate("dob");
-                u.address = rs.getString("address");
-                u.pin = rs.getString("pin");
-                u.phone = rs.getString("phone");
+                if (columns.contains("id")) u.id = rs.getInt("id");
+                if (columns.contains("username")) u.username = rs.getString("username");
+                if (columns.contains("email")) u.email = rs.getString("email");
+                if (columns.contains("dob")) u.dob = rs.getDate("dob");
+                if (columns.contains("address")) u.address = rs.getString("address");
+                if (columns.contains("pin")) u.pin = rs.getString("pin");
+                if (columns.contains("phone")) u.phone = rs.getString("phone");
                 log.info("getUserByAuthToken: match for userId={}, username={}", u.id, u.username);
                 return u;
             }
         } catch (SQLException e) {
+            Deadline.propagate(e);
             log.error("getUserByAuthToken failed (SQLState={}, ErrorCode={}, Message={})",
                     e.getSQLState(), e.getErrorCode(), e.getMessage(), e);
             return null;
@@ -267,6 +478,7 @@ public class UserDao {
         log.debug("getUserByUsername called for username={}", username);
         try (Connection conn = DriverManager.getConnection(url, dbUser, dbPassword);
              PreparedStatement ps = conn.prepareStatement(sql)) {
+            Deadline.apply(ps);
             ps.setString(1, username);
             try (ResultSet rs = ps.executeQuery()) {
                 if (!rs.next()) {
@@ -285,6 +497,7 @@ public class UserDao {
                 return u;
             }
         } catch (SQLException e) {
+            Deadline.propagate(e);
             log.error("getUserByUsername failed for username={} (SQLState={}, ErrorCode={}, Message={})",
                     username, e.getSQLState(), e.getErrorCode(), e.getMessage(), e);
             return null;
@@ -320,6 +533,7 @@ public class UserDao {
 
         try (Connection conn = DriverManager.getConnection(url, dbUser, dbPassword);
              PreparedStatement ps = conn.prepareStatement(sql.toString())) {
+            Deadline.apply(ps);
 
             for (int i = 0; i < params.size(); i++) {
                 Object p = params.get(i);
@@ -334,6 +548,7 @@ public class UserDao {
             log.info("patchUserByAuthToken: updated={}", updated);
             return updated > 0;
         } catch (SQLException e) {
+            Deadline.propagate(e);
             log.error("patchUserByAuthToken failed (SQLState={}, ErrorCode={}, Message={})",
                     e.getSQLState(), e.getErrorCode(), e.getMessage(), e);
             return false;
@@ -0,0 +1,114 @@
+package com.eagle.http;
+
+import com.eagle.http.limit.Limit;
+import com.eagle.util.Metrics;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded admission stage in front of the handler executor.
+ * At most {@link Limit#current()} tasks run at once; the rest wait in a priority queue of at most
+ * {@code queueCapacity} entries (HEALTH before READ before WRITE, FIFO within a priority).
+ * When the queue is full {@link #offer} returns false straight away so the caller can answer 503.
+ * Each task's run time is fed back to the limit, so an adaptive limit tracks what the backend can sustain.
+ */
+public class AdmissionControl {
+    private static final Logger log = LogManager.getLogger(AdmissionControl.class);
+
+    private final String name;
+    private final Executor executor;
+    private final Limit limit;
+    private final int queueCapacity;
+    private final PriorityBlockingQueue<Task> queue = new PriorityBlockingQueue<>();
+    private final AtomicInteger queued = new AtomicInteger();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicLong sequence = new AtomicLong();
+    private final LongAdder admitted = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+
+    public AdmissionControl(String name, Executor executor, Limit limit, int queueCapacity) {
+        this.name = name;
+        this.executor = executor;
+        this.limit = limit;
+        this.queueCapacity = Math.max(0, queueCapacity);
+        String p = "admission." + name + ".";
+        Metrics.register(p + "queued", queued::get);
+        Metrics.register(p + "inFlight", inFlight::get);
+        Metrics.register(p + "limit", limit::current);
+        Metrics.register(p + "queueCapacity", () -> this.queueCapacity);
+        Metrics.register(p + "admitted", admitted::sum);
+        Metrics.register(p + "rejected", rejected::sum);
+        // 1.0 = every permit busy; above 1.0 the excess is queue fill (2.0 = queue full too)
+        Metrics.register(p + "saturation", () -> Math.round(100.0 * (inFlight.get() / (double) limit.current()
+                + (queueCapacity == 0 ? 0 : queued.get() / (double) queueCapacity))) / 100.0);
+    }
+
+    public String name() { return name; }
+
+    /** Queues {@code work}; returns false (and counts a rejection) if the queue is full. */
+    public boolean offer(Priority priority, Runnable work) {
+        if (queued.incrementAndGet() > queueCapacity && inFlight.get() >= limit.current()) {
+            queued.decrementAndGet();
+            rejected.increment();
+            return false;
+        }
+        queue.add(new Task(priority, sequence.incrementAndGet(), work));
+        admitted.increment();
+        pump();
+        return true;
+    }
+
+    public int queued() { return queued.get(); }
+    public long rejectedCount() { return rejected.sum(); }
+
+    /** Starts queued tasks while there is spare concurrency. */
+    private void pump() {
+        while (true) {
+            int running = inFlight.get();
+            if (running >= limit.current()) return;
+            if (!inFlight.compareAndSet(running, running + 1)) continue;
+            int inFlightAtStart = running + 1;
+            Task t = queue.poll();
+            if (t == null) {
+                inFlight.decrementAndGet();
+                if (queue.isEmpty()) return; // a racing offer() will pump for itself
+                continue;
+            }
+            queued.decrementAndGet();
+            try {
+                executor.execute(() -> run(t, inFlightAtStart));
+            } catch (RejectedExecutionException e) {
+                inFlight.decrementAndGet();
+                log.error("Executor rejected admitted task on '{}'", name, e);
+            }
+        }
+    }
+
+    private void run(Task t, int inFlightAtStart) {
+        long start = System.nanoTime();
+        try {
+            t.work.run();
+        } catch (RuntimeException e) {
+            log.error("Admitted task failed on '{}'", name, e);
+        } finally {
+            inFlight.decrementAndGet();
+            limit.onSample(System.nanoTime() - start, inFlightAtStart);
+            pump();
+        }
+    }
+
+    private record Task(Priority priority, long seq, Runnable work) implements Comparable<Task> {
+        @Override
+        public int compareTo(Task o) {
+            int c = priority.compareTo(o.priority);
+            return c != 0 ? c : Long.compare(seq, o.seq);
+        }
+    }
+}
@@ -1,30 +1,109 @@
 package com.eagle.http;
 
 import com.eagle.http.handlers.*;
+import com.eagle.http.limit.GradientLimit;
+import com.eagle.http.limit.Limit;
+import com.eagle.http.limit.RouteLimiter;
+import com.eagle.http.nio.NioHttpServer;
+import com.eagle.http.routing.Router;
+import com.eagle.service.WebhookDispatcher;
+import com.eagle.util.Config;
+import com.eagle.util.Metrics;
+import com.sun.net.httpserver.HttpHandler;
 import com.sun.net.httpserver.HttpServer;
 
 import java.io.IOException;
 import java.net.InetSocketAddress;
-import java.util.concurrent.Executors;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
 
 public class BasicHttpServer {
 
     public static void main(String[] args) throws IOException {
-        // Create an HTTP server listening on port 8080
-        HttpServer server = HttpServer.create(new InetSocketAddress(8080), 0);
-
-        // Create a context for the "/hello" path
-        server.createContext("/hello", new HelloHandler());
-        server.createContext("/signup", new SignupHandler());
-        server.createContext("/listUsers", new ListUsersHandler());
-        server.createContext("/login", new LoginHandler());
-        server.createContext("/users/me", new UsersMeHandler());
-        server.createContext("/users/me/accounts", new UsersMeAccountsHandler()); // create/list/get/delete
-
-
-        // Thread pool for handling requests
-        server.setExecutor(Executors.newFixedThreadPool(10));
-        System.out.println("Server started on port 8080");
-        server.start();
+        // Route table: exact templates, compiled into a trie and served from a single root context
+        UsersMeAccountsHandler accounts = new UsersMeAccountsHandler();
+        Router<HttpHandler> routes = new Router<HttpHandler>()
+                .add(null, "/hello", new HelloHandler())
+                .add(null, "/signup", new SignupHandler())
+                .add(null, "/listUsers", new ListUsersHandler())
+                .add(null, "/login", new LoginHandler())
+                .add(null, "/users/me", new UsersMeHandler())
+                .add(null, "/metrics", new MetricsHandler())
+                .add(null, "/admin/users:import", new UserImportHandler());
+        for (String template : accounts.templates()) routes.add(null, template, accounts); // create/list/get/delete + transactions
+
+        // Executor kind for every bulkhead: -Deagle.executor=platform|virtual|forkjoin
+        ExecutorMode mode = ExecutorMode.parse(Config.str("eagle.executor", null), ExecutorMode.PLATFORM);
+        if (mode == ExecutorMode.VIRTUAL && Config.bool("eagle.pinning.monitor", true)) {
+            PinningMonitor pinning = PinningMonitor.start(Config.longVal("eagle.pinning.thresholdMs", 20));
+            if (pinning != null) Metrics.register("pinning.bySite", pinning::snapshot);
+        }
+
+        // Bulkheads: one executor + admission queue per route class; overflow is shed with 503 + Retry-After.
+        // -Deagle.bulkhead.<auth|read|write|admin|stream>.threads|maxConcurrent|queue=N
+        // -Deagle.limit=adaptive (gradient limit between min and maxConcurrent) | fixed (always maxConcurrent);
+        // streamed routes always get a fixed limit, since their duration is the client's, not the backend's
+        Bulkheads bulkheads = new Bulkheads();
+        StringBuilder sizes = new StringBuilder();
+        for (Bulkhead b : Bulkhead.values()) {
+            String p = "eagle.bulkhead." + b.key() + ".";
+            int threads = Config.intVal(p + "threads", b.defaultThreads);
+            ExecutorService executor = mode.create(b.key(), threads);
+            int maxConcurrent = Config.intVal(p + "maxConcurrent", mode == ExecutorMode.VIRTUAL ? 256 : threads);
+            Limit limit = b == Bulkhead.STREAM ? Limit.fixed(maxConcurrent) : limit(maxConcurrent);
+            bulkheads.add(b, new AdmissionControl(b.key(), executor, limit, Config.intVal(p + "queue", b.defaultQueue)));
+            if (executor instanceof ThreadPoolExecutor pool) Metrics.register("bulkhead." + b.key() + ".activeThreads", pool::getActiveCount);
+            sizes.append(sizes.length() == 0 ? "" : " ").append(b.key()).append('=').append(mode == ExecutorMode.VIRTUAL ? maxConcurrent : threads);
+        }
+        bulkheads.assign("/signup", Bulkhead.AUTH).assign("/login", Bulkhead.AUTH)
+                .assign("/listUsers", Bulkhead.ADMIN).assign("/metrics", Bulkhead.ADMIN)
+                .assign("/admin/users:import", Bulkhead.STREAM)
+                .assign("/users/me/accounts/{id:int}/transactions:export", Bulkhead.STREAM);
+        // Reassign with -Deagle.bulkhead.routes=/users/me=admin,...
+        Config.map("eagle.bulkhead.routes").forEach((template, b) -> bulkheads.assign(template, Bulkhead.parse(b)));
+
+        // Per-route caps: -Deagle.limit.routes=/listUsers=4,/users/me/accounts/{id:int}/transactions=20
+        Map<String, RouteLimiter> routeLimits = new HashMap<>();
+        Config.map("eagle.limit.routes").forEach((template, max) -> {
+            if (!routes.templates().contains(template)) throw new IllegalArgumentException("Unknown route in eagle.limit.routes: " + template);
+            int cap = Integer.parseInt(max);
+            RouteLimiter limiter = new RouteLimiter(bulkheads.assigned(template) == Bulkhead.STREAM ? Limit.fixed(cap) : limit(cap));
+            routeLimits.put(template, limiter);
+            Metrics.register("limit.route." + template + ".limit", limiter::limit);
+            Metrics.register("limit.route." + template + ".inFlight", limiter::inFlight);
+            Metrics.register("limit.route." + template + ".rejected", limiter::rejected);
+        });
+        HttpHandler root = new RoutingHandler(routes, bulkheads, Set.of("/hello", "/metrics"), routeLimits);
+
+        // Webhooks: -Deagle.webhooks.endpoints=name=url,... turns the transactional outbox on; delivery runs in the background
+        WebhookDispatcher webhooks = WebhookDispatcher.fromConfig();
+        if (webhooks != null) webhooks.start();
+
+        // Transport: -Deagle.transport=jdk (com.sun HttpServer) | nio (selector-per-core, keep-alive + pipelining)
+        InetSocketAddress address = new InetSocketAddress(8080);
+        String transport = Config.str("eagle.transport", "jdk");
+        if ("nio".equalsIgnoreCase(transport)) {
+            NioHttpServer server = NioHttpServer.create(address,
+                    Config.intVal("eagle.nio.selectors", Runtime.getRuntime().availableProcessors()));
+            server.createContext("/", root);
+            server.setExecutor(null); // route + admit on the transport thread; handlers run on the bulkheads, 404/503 writes on their own threads
+            server.start();
+        } else {
+            HttpServer server = HttpServer.create(address, 0);
+            server.createContext("/", root);
+            server.setExecutor(null); // route + admit on the transport thread; handlers run on the bulkheads, 404/503 writes on their own threads
+            server.start();
+        }
+        System.out.println("Server started on port 8080 (transport=" + transport + ", executor=" + mode
+                + ", bulkheads: " + sizes + ")");
+    }
+
+    /** Adaptive limit starting at {@code max} and free to settle anywhere in [eagle.limit.min, max]. */
+    private static Limit limit(int max) {
+        if ("fixed".equalsIgnoreCase(Config.str("eagle.limit", "adaptive"))) return Limit.fixed(max);
+        return new GradientLimit(max, Config.intVal("eagle.limit.min", 2), max);
     }
 }
@@ -0,0 +1,38 @@
+package com.eagle.http;
+
+import java.util.Locale;
+
+/**
+ * Isolated executor classes. Each one gets its own threads, limit and admission queue, so a storm on one
+ * (e.g. a signup storm on AUTH) cannot starve the others. Sizes are overridable per bulkhead with
+ * {@code -Deagle.bulkhead.<name>.threads|maxConcurrent|queue}.
+ */
+public enum Bulkhead {
+    /** Signup and login: token issuing plus user-table writes. */
+    AUTH(4, 50),
+    /** Cheap reads: health, profile, account and transaction lookups. */
+    READ(8, 200),
+    /** Account creation/deletion and money movement. */
+    WRITE(8, 100),
+    /** Operator endpoints: user listing, metrics. */
+    ADMIN(2, 20),
+    /**
+     * Streamed transfers (transaction exports, bulk imports), each holding its thread for the whole body. Kept apart
+     * so slow consumers cannot starve short requests, and given a fixed limit: a stream's duration is not a latency.
+     */
+    STREAM(4, 20);
+
+    final int defaultThreads;
+    final int defaultQueue;
+
+    Bulkhead(int defaultThreads, int defaultQueue) {
+        this.defaultThreads = defaultThreads;
+        this.defaultQueue = defaultQueue;
+    }
+
+    public String key() { return name().toLowerCase(Locale.ROOT); }
+
+    public static Bulkhead parse(String value) {
+        return valueOf(value.trim().toUpperCase(Locale.ROOT));
+    }
+}
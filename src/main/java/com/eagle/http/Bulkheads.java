@@ -0,0 +1,33 @@
+package com.eagle.http;
+
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Maps routes to their {@link Bulkhead}'s {@link AdmissionControl}. Routes assigned explicitly always use that
+ * bulkhead; anything else goes to READ for safe methods and WRITE otherwise.
+ */
+public final class Bulkheads {
+    private final Map<Bulkhead, AdmissionControl> stages = new EnumMap<>(Bulkhead.class);
+    private final Map<String, Bulkhead> assignments = new HashMap<>();
+
+    public Bulkheads add(Bulkhead bulkhead, AdmissionControl stage) {
+        stages.put(bulkhead, stage);
+        return this;
+    }
+
+    public Bulkheads assign(String template, Bulkhead bulkhead) {
+        assignments.put(template, bulkhead);
+        return this;
+    }
+
+    /** The bulkhead {@code template} was assigned to, or null when it goes by method. */
+    public Bulkhead assigned(String template) { return assignments.get(template); }
+
+    public AdmissionControl select(String method, String template) {
+        Bulkhead b = assignments.get(template);
+        if (b == null) b = Priority.classify(false, method) == Priority.READ ? Bulkhead.READ : Bulkhead.WRITE;
+        return stages.get(b);
+    }
+}
@@ -0,0 +1,270 @@
+package com.eagle.http;
+
+import com.eagle.util.Metrics;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Server-Sent Events fan-out keyed by account id.
+ * - A subscriber is an open response stream; it holds no thread while idle. Published frames go onto its bounded
+ *   queue and a virtual thread drains it while there is something to write, so a burst on one account never blocks
+ *   the publisher and a client that stops reading only ever holds up its own stream.
+ * - A subscriber whose queue overflows (a client not reading) is closed; it reconnects with {@code Last-Event-ID}
+ *   and catches up from the database instead of from memory.
+ * - A write to the client that takes longer than {@code writeTimeoutMs} closes the stream too: the watchdog
+ *   interrupts the writing thread, which aborts a blocking socket write and closes the connection with it.
+ * - Every {@code heartbeatMs} each subscriber gets a comment line, which keeps proxies from timing the stream out
+ *   and finds closed connections.
+ * - New subscribers start paused: the caller replays what they missed straight to the stream, then
+ *   {@link Subscriber#resume(long)} drops queued frames the replay already covered and hands over to the writers.
+ */
+public final class EventHub {
+    private static final Logger log = LogManager.getLogger(EventHub.class);
+    private static final byte[] PING = ": ping\n\n".getBytes(StandardCharsets.US_ASCII);
+
+    private final Map<Integer, Set<Subscriber>> byKey = new ConcurrentHashMap<>();
+    private final Set<Subscriber> closing = ConcurrentHashMap.newKeySet(); // unregistered, onClose still running
+    private final AtomicInteger subscribers = new AtomicInteger();
+    private final int maxSubscribers;
+    private final int maxQueued;
+    private final long writeTimeoutNanos;
+    private final ExecutorService writers;
+    private final LongAdder published = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder writeTimeouts = new LongAdder();
+
+    public EventHub(String name, int maxSubscribers, int maxQueued, long writeTimeoutMs, long heartbeatMs) {
+        this.maxSubscribers = maxSubscribers;
+        this.maxQueued = Math.max(1, maxQueued);
+        this.writeTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, writeTimeoutMs));
+        this.writers = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name(name + "-writer-", 0).factory());
+        ScheduledExecutorService timers = Executors.newSingleThreadScheduledExecutor(daemon(name + "-timer"));
+        timers.scheduleWithFixedDelay(this::ping, heartbeatMs, heartbeatMs, TimeUnit.MILLISECONDS);
+        long watchMs = Math.max(50, writeTimeoutMs / 4);
+        timers.scheduleWithFixedDelay(this::watch, watchMs, watchMs, TimeUnit.MILLISECONDS);
+        Metrics.register(name + ".subscribers", subscribers::get);
+        Metrics.register(name + ".published", published::sum);
+        Metrics.register(name + ".droppedSlow", dropped::sum);
+        Metrics.register(name + ".writeTimeouts", writeTimeouts::sum);
+    }
+
+    /** One SSE frame; {@code id} 0 leaves out the {@code id:} line. {@code data} must be a single line (JSON is). */
+    public static byte[] frame(long id, String event, String data) {
+        StringBuilder sb = new StringBuilder(data.length() + 48);
+        if (id > 0) sb.append("id: ").append(id).append('\n');
+        if (event != null) sb.append("event: ").append(event).append('\n');
+        return sb.append("data: ").append(data).append("\n\n").toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Registers a paused subscriber for {@code key}, or returns null when the hub is full. {@code onClose} runs once,
+     * when the stream fails, overflows or is closed. Everything written to the client, the replay included, must go
+     * through {@link Subscriber#stream()} so the write timeout covers it.
+     */
+    public Subscriber subscribe(int key, OutputStream out, Runnable onClose) {
+        if (subscribers.incrementAndGet() > maxSubscribers) {
+            subscribers.decrementAndGet();
+            return null;
+        }
+        Subscriber s = new Subscriber(key, out, onClose);
+        byKey.computeIfAbsent(key, k -> ConcurrentHashMap.newKeySet()).add(s);
+        return s;
+    }
+
+    /** Queues a frame with event id {@code id} for every subscriber of {@code key}; {@code frame} runs only if any. */
+    public void publish(int key, long id, Supplier<byte[]> frame) {
+        Set<Subscriber> set = byKey.get(key);
+        if (set == null) return;
+        published.increment();
+        byte[] bytes = frame.get();
+        for (Subscriber s : set) s.offer(id, bytes);
+    }
+
+    private void ping() {
+        try {
+            for (Set<Subscriber> set : byKey.values()) for (Subscriber s : set) s.offer(0, PING);
+        } catch (RuntimeException e) {
+            log.warn("SSE heartbeat failed: {}", e.toString());
+        }
+    }
+
+    /** Closes streams whose current write has been blocked for longer than the write timeout. */
+    private void watch() {
+        try {
+            long now = System.nanoTime();
+            for (Set<Subscriber> set : byKey.values()) for (Subscriber s : set) s.watch(now);
+            for (Subscriber s : closing) s.watch(now);
+        } catch (RuntimeException e) {
+            log.warn("SSE write watchdog failed: {}", e.toString());
+        }
+    }
+
+    private void remove(Subscriber s) {
+        subscribers.decrementAndGet();
+        byKey.computeIfPresent(s.key, (k, set) -> {
+            set.remove(s);
+            return set.isEmpty() ? null : set;
+        });
+    }
+
+    private record Frame(long id, byte[] bytes) {}
+
+    /** One open event stream. Frames are written in queue order by at most one writer thread at a time. */
+    public final class Subscriber {
+        private final int key;
+        private final OutputStream out;
+        private final OutputStream guarded = new Guarded();
+        private final Runnable onClose;
+        private final Queue<Frame> queue = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger queued = new AtomicInteger();
+        private final AtomicBoolean draining = new AtomicBoolean();
+        private final AtomicBoolean closed = new AtomicBoolean();
+        private volatile boolean live;
+        private long watermark; // written before live is set, read by the draining writer after
+        private volatile Thread writer; // inside a write to the client, since writingSince
+        private volatile long writingSince;
+
+        private Subscriber(int key, OutputStream out, Runnable onClose) {
+            this.key = key;
+            this.out = out;
+            this.onClose = onClose;
+        }
+
+        /** The client stream, with every write and flush timed by the watchdog. */
+        public OutputStream stream() { return guarded; }
+
+        /**
+         * Ends the replay: queued frames with an id at or below {@code replayedUpTo} are skipped, everything else is
+         * written from now on.
+         */
+        public void resume(long replayedUpTo) {
+            watermark = replayedUpTo;
+            live = true;
+            schedule();
+        }
+
+        private void offer(long id, byte[] bytes) {
+            if (closed.get()) return;
+            if (queued.incrementAndGet() > maxQueued) {
+                dropped.increment();
+                close();
+                return;
+            }
+            queue.add(new Frame(id, bytes));
+            schedule();
+        }
+
+        private void schedule() {
+            if (!live || closed.get() || !draining.compareAndSet(false, true)) return;
+            try {
+                writers.execute(this::drain);
+            } catch (RuntimeException e) {
+                draining.set(false);
+                close();
+            }
+        }
+
+        private void drain() {
+            try {
+                Frame f;
+                while (!closed.get() && (f = queue.poll()) != null) {
+                    queued.decrementAndGet();
+                    if (f.id() > 0 && f.id() <= watermark) continue; // already sent by the replay
+                    guarded.write(f.bytes());
+                }
+                guarded.flush();
+            } catch (IOException e) {
+                close();
+                return;
+            } finally {
+                draining.set(false);
+            }
+            if (!queue.isEmpty()) schedule(); // a frame arrived after the last poll
+        }
+
+        /**
+         * Unregisters, aborts a write in progress and runs {@code onClose} on a thread of its own (closing flushes,
+         * which may block on the client like any write, and is timed the same way). Safe to call more than once.
+         */
+        public void close() {
+            if (!closed.compareAndSet(false, true)) return;
+            remove(this);
+            queue.clear();
+            Thread stuck = writer;
+            if (stuck != null) stuck.interrupt(); // a blocking socket write ends, closing the connection
+            try {
+                closing.add(this);
+                writers.execute(() -> {
+                    try { timed(onClose); } finally { closing.remove(this); }
+                });
+            } catch (RuntimeException e) {
+                closing.remove(this);
+                onClose.run();
+            }
+        }
+
+        private void watch(long now) {
+            Thread t = writer;
+            if (t == null || now - writingSince < writeTimeoutNanos) return;
+            writeTimeouts.increment();
+            close();
+            t.interrupt();
+        }
+
+        private void timed(Runnable r) {
+            writingSince = System.nanoTime();
+            writer = Thread.currentThread();
+            try { r.run(); } finally { writer = null; }
+        }
+
+        /** Marks the calling thread as writing for the duration of each call, for {@link #watch}. */
+        private final class Guarded extends OutputStream {
+            @Override
+            public void write(int b) throws IOException { write(new byte[] {(byte) b}, 0, 1); }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                begin();
+                try { out.write(b, off, len); } finally { writer = null; }
+            }
+
+            @Override
+            public void flush() throws IOException {
+                begin();
+                try { out.flush(); } finally { writer = null; }
+            }
+
+            private void begin() throws IOException {
+                writingSince = System.nanoTime();
+                writer = Thread.currentThread();
+            }
+        }
+    }
+
+    private static ThreadFactory daemon(String prefix) {
+        AtomicInteger seq = new AtomicInteger();
+        return r -> {
+            Thread t = new Thread(r, prefix + "-" + seq.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        };
+    }
+}
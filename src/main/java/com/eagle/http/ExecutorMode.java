@@ -0,0 +1,51 @@
+package com.eagle.http;
+
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Executor strategies for running handlers, selected with {@code -Deagle.executor=virtual|platform|forkjoin}.
+ * - VIRTUAL: one virtual thread per request; blocking JDBC parks the virtual thread, not a carrier.
+ * - PLATFORM: fixed pool of platform threads (the original behaviour).
+ * - FORKJOIN: work-stealing pool in async (FIFO) mode.
+ */
+public enum ExecutorMode {
+    VIRTUAL,
+    PLATFORM,
+    FORKJOIN;
+
+    /** Builds the executor; {@code threads} is ignored for VIRTUAL. Threads are named {@code http-<pool>-...}. */
+    public ExecutorService create(String pool, int threads) {
+        int n = Math.max(1, threads);
+        return switch (this) {
+            case VIRTUAL -> Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("http-" + pool + "-vt-", 0).factory());
+            case PLATFORM -> Executors.newFixedThreadPool(n, named("http-" + pool + "-"));
+            case FORKJOIN -> new ForkJoinPool(n, fj -> {
+                ForkJoinWorkerThread t = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(fj);
+                t.setName("http-" + pool + "-fj-" + t.getPoolIndex());
+                return t;
+            }, null, true);
+        };
+    }
+
+    /** Lenient parse; unknown or blank values fall back to {@code def}. */
+    public static ExecutorMode parse(String value, ExecutorMode def) {
+        if (value == null || value.isBlank()) return def;
+        try { return valueOf(value.trim().toUpperCase(Locale.ROOT)); }
+        catch (IllegalArgumentException e) { return def; }
+    }
+
+    private static ThreadFactory named(String prefix) {
+        AtomicInteger seq = new AtomicInteger();
+        return r -> {
+            Thread t = new Thread(r, prefix + seq.incrementAndGet());
+            t.setDaemon(false);
+            return t;
+        };
+    }
+}
@@ -0,0 +1,77 @@
+package com.eagle.http;
+
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordedStackTrace;
+import jdk.jfr.consumer.RecordingStream;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Watches for virtual threads that block while pinned to their carrier (typically a JDBC call
+ * made while Derby holds a monitor) using the JFR {@code jdk.VirtualThreadPinned} event.
+ * Each pin is attributed to the first {@code com.eagle} frame on the stack, e.g. {@code TransactionDao.deposit}.
+ */
+public final class PinningMonitor implements AutoCloseable {
+    private static final Logger log = LogManager.getLogger(PinningMonitor.class);
+    private static final String EVENT = "jdk.VirtualThreadPinned";
+
+    private final RecordingStream stream;
+    private final Map<String, LongAdder> pinsBySite = new ConcurrentHashMap<>();
+
+    private PinningMonitor(Duration threshold) {
+        stream = new RecordingStream();
+        stream.enable(EVENT).withThreshold(threshold).withStackTrace();
+        stream.onEvent(EVENT, this::onPinned);
+    }
+
+    /** Starts streaming pin events in the background; returns null if JFR is unavailable. */
+    public static PinningMonitor start(long thresholdMs) {
+        try {
+            PinningMonitor m = new PinningMonitor(Duration.ofMillis(Math.max(0, thresholdMs)));
+            m.stream.startAsync();
+            log.info("Virtual-thread pinning monitor started (threshold={}ms)", thresholdMs);
+            return m;
+        } catch (Exception | LinkageError e) {
+            log.warn("Pinning monitor unavailable: {}", e.toString());
+            return null;
+        }
+    }
+
+    /** Pin counts keyed by application call site. */
+    public Map<String, Long> snapshot() {
+        Map<String, Long> out = new TreeMap<>();
+        pinsBySite.forEach((k, v) -> out.put(k, v.sum()));
+        return out;
+    }
+
+    private void onPinned(RecordedEvent e) {
+        String site = appSite(e.getStackTrace());
+        pinsBySite.computeIfAbsent(site, k -> new LongAdder()).increment();
+        log.warn("Virtual thread pinned for {}ms at {}", e.getDuration().toMillis(), site);
+    }
+
+    private static String appSite(RecordedStackTrace st) {
+        if (st == null) return "unknown";
+        for (RecordedFrame f : st.getFrames()) {
+            if (!f.isJavaFrame()) continue;
+            String type = f.getMethod().getType().getName();
+            if (type.startsWith("com.eagle.")) {
+                return type.substring(type.lastIndexOf('.') + 1) + "." + f.getMethod().getName();
+            }
+        }
+        RecordedFrame top = st.getFrames().isEmpty() ? null : st.getFrames().get(0);
+        return top == null ? "unknown" : top.getMethod().getType().getName() + "." + top.getMethod().getName();
+    }
+
+    @Override
+    public void close() {
+        stream.close();
+    }
+}
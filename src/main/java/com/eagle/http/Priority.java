@@ -0,0 +1,17 @@
+package com.eagle.http;
+
+/** Admission priority; lower ordinal is served first when requests queue up. */
+public enum Priority {
+    HEALTH,
+    READ,
+    WRITE;
+
+    /** Health routes first, then safe methods, then everything that writes. */
+    public static Priority classify(boolean healthRoute, String method) {
+        if (healthRoute) return HEALTH;
+        return switch (method) {
+            case "GET", "HEAD", "OPTIONS" -> READ;
+            default -> WRITE;
+        };
+    }
+}
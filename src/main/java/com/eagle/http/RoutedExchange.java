@@ -0,0 +1,52 @@
+package com.eagle.http;
+
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpContext;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpPrincipal;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Delegating exchange with attributes of its own. The JDK server keeps {@link HttpExchange#setAttribute}
+ * values in the shared {@link HttpContext} map on older runtimes, so per-request state (route, deadline) set by
+ * {@link RoutingHandler} would leak between concurrent requests. Handed from the transport thread to the
+ * handler thread through the executor, so a plain map is enough.
+ */
+final class RoutedExchange extends HttpExchange {
+    private final HttpExchange delegate;
+    private final Map<String, Object> attributes = new HashMap<>(4);
+
+    RoutedExchange(HttpExchange delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override public Object getAttribute(String name) { return attributes.get(name); }
+
+    @Override
+    public void setAttribute(String name, Object value) {
+        if (value == null) attributes.remove(name); else attributes.put(name, value);
+    }
+
+    @Override public Headers getRequestHeaders() { return delegate.getRequestHeaders(); }
+    @Override public Headers getResponseHeaders() { return delegate.getResponseHeaders(); }
+    @Override public URI getRequestURI() { return delegate.getRequestURI(); }
+    @Override public String getRequestMethod() { return delegate.getRequestMethod(); }
+    @Override public HttpContext getHttpContext() { return delegate.getHttpContext(); }
+    @Override public void close() { delegate.close(); }
+    @Override public InputStream getRequestBody() { return delegate.getRequestBody(); }
+    @Override public OutputStream getResponseBody() { return delegate.getResponseBody(); }
+    @Override public void sendResponseHeaders(int rCode, long responseLength) throws IOException { delegate.sendResponseHeaders(rCode, responseLength); }
+    @Override public InetSocketAddress getRemoteAddress() { return delegate.getRemoteAddress(); }
+    @Override public int getResponseCode() { return delegate.getResponseCode(); }
+    @Override public InetSocketAddress getLocalAddress() { return delegate.getLocalAddress(); }
+    @Override public String getProtocol() { return delegate.getProtocol(); }
+    @Override public void setStreams(InputStream i, OutputStream o) { delegate.setStreams(i, o); }
+    @Override public HttpPrincipal getPrincipal() { return delegate.getPrincipal(); }
+}
@@ -0,0 +1,128 @@
+package com.eagle.http;
+
+import com.eagle.http.limit.RouteLimiter;
+import com.eagle.http.routing.RouteMatch;
+import com.eagle.http.routing.Router;
+import com.eagle.model.response.ErrorResponse;
+import com.eagle.util.Config;
+import com.eagle.util.Deadline;
+import com.eagle.util.HttpIO;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Single root handler for the server: matches the path against the compiled route table and hands the
+ * exchange to the registered handler. The matched template is stored as the {@link #ROUTE_ATTRIBUTE} attribute,
+ * the match itself (with its path parameters) as {@link #MATCH_ATTRIBUTE}.
+ * Routing runs on the transport thread; the handler itself runs once the route's bulkhead ({@link Bulkheads})
+ * admits it, and requests that cannot be queued are shed with 503 + Retry-After before any work is done.
+ * Routes with their own {@link RouteLimiter} are also shed once that route alone reaches its limit.
+ * Those 404 and 503 replies are written on virtual threads of their own, never on the transport thread, so a client
+ * slow to read one cannot hold up routing for everyone else; past {@code eagle.admission.maxRejecting} such writes in
+ * flight, a rejected connection is just closed.
+ */
+public class RoutingHandler implements HttpHandler {
+    private static final Logger log = LogManager.getLogger(RoutingHandler.class);
+    public static final String ROUTE_ATTRIBUTE = "eagle.route";
+    /** The {@link RouteMatch}, so handlers with a route table of their own read parameters without matching again. */
+    public static final String MATCH_ATTRIBUTE = "eagle.match";
+    /** Absolute {@link Deadline} (nanoTime) computed on arrival from {@link Deadline#HEADER}; absent when none. */
+    public static final String DEADLINE_ATTRIBUTE = "eagle.deadline";
+
+    private final Router<HttpHandler> routes;
+    private final Bulkheads bulkheads;
+    private final Set<String> healthRoutes;
+    private final Map<String, RouteLimiter> routeLimits;
+    private final String retryAfter = String.valueOf(Config.intVal("eagle.admission.retryAfter", 1));
+    private final ExecutorService rejections = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("http-reject-", 0).factory());
+    private final Semaphore rejecting = new Semaphore(Config.intVal("eagle.admission.maxRejecting", 256));
+
+    public RoutingHandler(Router<HttpHandler> routes, Bulkheads bulkheads, Set<String> healthRoutes,
+                          Map<String, RouteLimiter> routeLimits) {
+        this.routes = routes;
+        this.bulkheads = bulkheads;
+        this.healthRoutes = healthRoutes;
+        this.routeLimits = routeLimits;
+    }
+
+    @Override
+    public void handle(HttpExchange transportExchange) throws IOException {
+        HttpExchange ex = new RoutedExchange(transportExchange); // per-request attributes
+        RouteMatch<HttpHandler> m = new RouteMatch<>();
+        if (!routes.match(ex.getRequestMethod(), ex.getRequestURI().getPath(), m)) {
+            reject(ex, 404, new ErrorResponse("not_found", "No route for " + ex.getRequestURI().getPath()));
+            return;
+        }
+        String template = m.template();
+        HttpHandler target = m.target();
+        ex.setAttribute(ROUTE_ATTRIBUTE, template);
+        ex.setAttribute(MATCH_ATTRIBUTE, m);
+        Long deadline = Deadline.fromHeader(ex.getRequestHeaders().getFirst(Deadline.HEADER), System.nanoTime());
+        if (deadline != null) ex.setAttribute(DEADLINE_ATTRIBUTE, deadline);
+        Priority priority = Priority.classify(healthRoutes.contains(template), ex.getRequestMethod());
+        AdmissionControl admission = bulkheads.select(ex.getRequestMethod(), template);
+
+        RouteLimiter limiter = routeLimits.get(template);
+        if (limiter == null) {
+            if (!admission.offer(priority, () -> run(target, ex))) shed(ex);
+            return;
+        }
+        int inFlightAtStart = limiter.tryAcquire();
+        if (inFlightAtStart < 0) { shed(ex); return; }
+        Runnable work = () -> {
+            long start = System.nanoTime();
+            try {
+                run(target, ex);
+            } finally {
+                limiter.release(System.nanoTime() - start, inFlightAtStart);
+            }
+        };
+        if (!admission.offer(priority, work)) {
+            limiter.cancel();
+            shed(ex);
+        }
+    }
+
+    private void shed(HttpExchange ex) {
+        ex.getResponseHeaders().set("Retry-After", retryAfter);
+        reject(ex, 503, new ErrorResponse("overloaded", "Server is busy, retry later"));
+    }
+
+    /** Writes a rejection off the transport thread; the write may block on a client that does not read. */
+    private void reject(HttpExchange ex, int status, ErrorResponse body) {
+        if (!rejecting.tryAcquire()) { ex.close(); return; }
+        try {
+            rejections.execute(() -> {
+                try {
+                    HttpIO.writeJson(ex, status, body);
+                } catch (IOException e) {
+                    ex.close();
+                } finally {
+                    rejecting.release();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            rejecting.release();
+            ex.close();
+        }
+    }
+
+    private static void run(HttpHandler target, HttpExchange ex) {
+        try {
+            target.handle(ex);
+        } catch (Throwable t) {
+            log.error("Handler failed for {} {}", ex.getRequestMethod(), ex.getRequestURI(), t);
+            ex.close();
+        }
+    }
+}
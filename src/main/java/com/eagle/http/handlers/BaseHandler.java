@@ -1,5 +1,21 @@
 package com.eagle.http.handlers;
 
+import com.eagle.http.RoutingHandler;
+import com.eagle.http.limit.BodyLimits;
+import com.eagle.http.limit.RateLimiter;
+import com.eagle.http.routing.RouteMatch;
+import com.eagle.http.routing.Router;
+import com.eagle.model.response.ErrorResponse;
+import com.eagle.util.Cbor;
+import com.eagle.util.Compression;
+import com.eagle.util.Config;
+import com.eagle.util.Deadline;
+import com.eagle.util.FieldSelection;
+import com.eagle.util.Jsons;
+import com.eagle.util.OutputBuffer;
+import com.eagle.util.ResponseCache;
+import com.eagle.util.SingleFlight;
+import com.eagle.util.TokenIndex;
 import com.google.gson.Gson;
 import com.google.gson.JsonSyntaxException;
 import com.sun.net.httpserver.Headers;
@@ -7,34 +23,108 @@ import com.sun.net.httpserver.HttpExchange;
 import com.sun.net.httpserver.HttpHandler;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
 import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * Common utilities for lightweight HttpServer handlers.
  * - Final {@link #handle(HttpExchange)} wraps {@link #doHandle(HttpExchange)} with a 500 safety net.
- * - Helpers for JSON I/O, method checks, bearer parsing, and query params.
+ * - The request's {@link Deadline} is installed for DAO calls; expired requests get 504 without running.
+ * - Per-client rate limits (bearer token, else remote address) are enforced before {@code doHandle}.
+ * - Request bodies are checked against the route's size cap and accepted types (413/415) before any byte is read,
+ *   then streamed to the handler through {@link BodyLimits} (cap and receive timeout enforced while reading).
+ * - ETag / If-None-Match helpers for 304 replies.
+ * - GETs on cached routes are answered from {@link ResponseCache} when possible; handlers tag what they write.
+ * - {@code ?fields=} parsing for sparse responses.
+ * - Bodies are JSON unless the client negotiates CBOR ({@code Accept} / {@code Content-Type: application/cbor}).
+ * - Helpers for JSON I/O, method checks, route-table dispatch, bearer parsing, and query params.
  */
 public abstract class BaseHandler implements HttpHandler {
-    protected static final Gson GSON = new Gson();
+    protected static final Gson GSON = Jsons.gson(); // model types use the streaming codecs, not reflection
+    private static final String JSON_TYPE = "application/json; charset=UTF-8";
+
+    /**
+     * Route-level limits, overridable with -Deagle.ratelimit.routes=... in the same format
+     * (requests/seconds per client; an optional method prefix narrows the entry).
+     */
+    private static final String DEFAULT_RATE_LIMITS = "/login=10/60,POST /users/me/accounts/{id:int}/transactions=20/1";
+    private static final RateLimiter RATE_LIMITS = new RateLimiter(ratePolicies());
+    /** Routes that authenticate the caller themselves: always limited per address, whatever token is sent. */
+    private static final Set<String> ANONYMOUS_ROUTES = Set.of("/login", "/signup");
+
+    /**
+     * Body caps in bytes per route (optional method prefix), overridable with -Deagle.body.routes=...;
+     * other routes get -Deagle.body.maxBytes. -Deagle.body.timeoutMs bounds how long a whole body may take to arrive.
+     */
+    private static final String DEFAULT_BODY_LIMITS = "/signup=4096,/login=2048,PATCH /users/me=4096,"
+            + "POST /users/me/accounts=1024,POST /users/me/accounts/{id:int}/transactions=2048,"
+            + "POST /users/me/accounts/{id:int}/transactions:batch=262144,POST /admin/users:import=536870912";
+    private static final BodyLimits BODY_LIMITS = new BodyLimits(bodyLimits(),
+            Config.longVal("eagle.body.maxBytes", 16 * 1024), Config.longVal("eagle.body.timeoutMs", 10_000));
+
+    private static final ResponseCache RESPONSES = ResponseCache.fromConfig();
+    private static final String FILL_ATTRIBUTE = "eagle.cache.fill";
+    /** Opaque cursor for the next page of a list whose body is a bare array; cached together with the body. */
+    protected static final String NEXT_CURSOR = "X-Next-Cursor";
 
     @Override
     public final void handle(HttpExchange exchange) throws IOException {
+        Long deadline = deadlineOf(exchange);
         try {
+            if (!checkRateLimit(exchange)) return;
+            if (Deadline.expired(deadline)) { // the client has already given up; don't start any work
+                Deadline.dropped();
+                writeJson(exchange, 504, new ErrorResponse("deadline_exceeded", "Request deadline passed before processing"));
+                return;
+            }
+            String cacheKey = cacheKey(exchange);
+            if (cacheKey != null && writeCached(exchange, cacheKey)) return;
+            ResponseCache.Fill fill = null;
+            if (cacheKey != null) {
+                fill = RESPONSES.begin((String) exchange.getAttribute(RoutingHandler.ROUTE_ATTRIBUTE), cacheKey);
+                exchange.setAttribute(FILL_ATTRIBUTE, fill);
+                exchange.getResponseHeaders().set("X-Cache", "MISS");
+            }
+            if (!admitBody(exchange)) return;
+            Deadline.set(deadline);
             doHandle(exchange);
+            if (fill != null) fill.commit();
+        } catch (BodyLimits.TooLarge e) {
+            rejectBody(exchange, 413, new ErrorResponse("payload_too_large", e.getMessage()));
+        } catch (BodyLimits.TimedOut e) {
+            rejectBody(exchange, 408, new ErrorResponse("request_timeout", e.getMessage()));
+        } catch (Deadline.Exceeded e) {
+            try { writeJson(exchange, 504, new ErrorResponse("deadline_exceeded", "Request deadline exceeded")); }
+            catch (Exception ignore) {
+                try { exchange.sendResponseHeaders(504, -1); } catch (Exception ignored) {}
+            }
         } catch (Exception e) {
             // Last-resort safety net
             try { writeJson(exchange, 500, Map.of("ok", false, "message", "Server error")); }
             catch (Exception ignore) {
                 try { exchange.sendResponseHeaders(500, -1); } catch (Exception ignored) {}
             }
+        } finally {
+            Deadline.clear();
         }
     }
 
+    /** Deadline fixed at routing time (so queueing counts), or derived from the header now when not routed. */
+    private static Long deadlineOf(HttpExchange ex) {
+        Object routed = ex.getAttribute(RoutingHandler.DEADLINE_ATTRIBUTE);
+        if (routed instanceof Long d) return d;
+        return Deadline.fromHeader(ex.getRequestHeaders().getFirst(Deadline.HEADER), System.nanoTime());
+    }
+
     /** Subclasses implement their logic here. Throwing propagates to the safety net above. */
     protected abstract void doHandle(HttpExchange exchange) throws Exception;
 
@@ -50,6 +140,200 @@ public abstract class BaseHandler implements HttpHandler {
         return false;
     }
 
+    /**
+     * Resolves the request's method against a method-aware route table, reusing the path match from
+     * {@link #routeMatch}. On a miss it writes 404, or the OPTIONS/405 reply with the Allow header taken
+     * from the table, and returns null.
+     */
+    protected <T> T route(HttpExchange ex, Router<T> routes) throws IOException {
+        RouteMatch<?> m = routeMatch(ex, routes);
+        String method = ex.getRequestMethod();
+        T target = m.pathFound() ? routes.target(method, m.template()) : null;
+        if (target != null) return target;
+        String allow = m.pathFound() ? routes.allow(m.template()) : null;
+        if (allow == null) {
+            writeJson(ex, 404, new ErrorResponse("not_found", "No such resource"));
+            return null;
+        }
+        ex.getResponseHeaders().set("Allow", allow);
+        ex.sendResponseHeaders("OPTIONS".equals(method) ? 204 : 405, -1);
+        return null;
+    }
+
+    /**
+     * Path match (template and parameters) stored by {@link RoutingHandler}; when the handler is mounted
+     * without it, the path is matched against {@code routes} here.
+     */
+    protected static RouteMatch<?> routeMatch(HttpExchange ex, Router<?> routes) {
+        if (ex.getAttribute(RoutingHandler.MATCH_ATTRIBUTE) instanceof RouteMatch<?> routed) return routed;
+        return matchHere(ex, routes);
+    }
+
+    private static <T> RouteMatch<T> matchHere(HttpExchange ex, Router<T> routes) {
+        RouteMatch<T> m = new RouteMatch<>();
+        routes.match(ex.getRequestMethod(), ex.getRequestURI().getPath(), m);
+        ex.setAttribute(RoutingHandler.MATCH_ATTRIBUTE, m);
+        return m;
+    }
+
+    // ---- Rate limiting ----
+
+    /** Applies the route's token bucket to this client; writes 429 with reset headers and returns false when exhausted. */
+    private boolean checkRateLimit(HttpExchange ex) throws IOException {
+        String template = (String) ex.getAttribute(RoutingHandler.ROUTE_ATTRIBUTE);
+        RateLimiter.Policy policy = RATE_LIMITS.policyFor(ex.getRequestMethod(), template);
+        if (policy == null) return true;
+        RateLimiter.Decision d = RATE_LIMITS.acquire(policy, template, clientKey(ex, template));
+        Headers h = ex.getResponseHeaders();
+        h.set("X-RateLimit-Limit", String.valueOf(d.limit()));
+        h.set("X-RateLimit-Remaining", String.valueOf(d.remaining()));
+        h.set("X-RateLimit-Reset", String.valueOf(d.resetSeconds()));
+        if (d.allowed()) return true;
+        h.set("Retry-After", String.valueOf(d.retryAfterSeconds()));
+        writeJson(ex, 429, new ErrorResponse("rate_limited", "Too many requests, retry in " + d.retryAfterSeconds() + "s"));
+        return false;
+    }
+
+    /**
+     * Bearer token once it has authenticated (each session gets its own bucket), otherwise the remote IP: an unchecked
+     * token would let a client mint a fresh bucket per request.
+     */
+    private String clientKey(HttpExchange ex, String template) {
+        if (!ANONYMOUS_ROUTES.contains(template)) {
+            String token = parseBearer(ex.getRequestHeaders().getFirst("Authorization"));
+            if (token != null && TokenIndex.userId(token) != null) return "t:" + token;
+        }
+        InetSocketAddress remote = ex.getRemoteAddress();
+        return "a:" + (remote == null || remote.getAddress() == null ? "unknown" : remote.getAddress().getHostAddress());
+    }
+
+    private static Map<String, RateLimiter.Policy> ratePolicies() {
+        Map<String, RateLimiter.Policy> out = new HashMap<>();
+        Config.map("eagle.ratelimit.routes", DEFAULT_RATE_LIMITS).forEach((route, spec) -> out.put(route, RateLimiter.Policy.parse(spec)));
+        return out;
+    }
+
+    // ---- Request bodies ----
+
+    /**
+     * Admits the request body, if any: 415 when the handler does not read its Content-Type, 413 when the declared
+     * length exceeds the route's cap. Otherwise the body stream is replaced by a capped, timed one.
+     */
+    private boolean admitBody(HttpExchange ex) throws IOException {
+        Headers h = ex.getRequestHeaders();
+        long declared = -1;
+        String cl = h.getFirst("Content-Length");
+        if (cl != null) {
+            try { declared = Long.parseLong(cl.trim()); } catch (NumberFormatException ignore) {}
+        }
+        if (declared <= 0 && !h.containsKey("Transfer-Encoding")) return true; // no body
+        String method = ex.getRequestMethod();
+        if (("POST".equals(method) || "PUT".equals(method) || "PATCH".equals(method)) && !acceptsBody(ex)) {
+            BODY_LIMITS.rejectedUnsupported();
+            rejectBody(ex, 415, new ErrorResponse("unsupported_media_type", "Content-Type must be " + bodyTypes()));
+            return false;
+        }
+        long max = BODY_LIMITS.maxBytesFor(method, (String) ex.getAttribute(RoutingHandler.ROUTE_ATTRIBUTE));
+        if (declared > max) {
+            BODY_LIMITS.rejectedTooLarge();
+            rejectBody(ex, 413, new ErrorResponse("payload_too_large", "Request body exceeds " + max + " bytes"));
+            return false;
+        }
+        ex.setStreams(BODY_LIMITS.limit(ex.getRequestBody(), max, bodyTimeoutMs(), ex::close), null); // a stalled body closes the exchange
+        return true;
+    }
+
+    /** Whether this handler reads a body of the request's Content-Type; JSON and CBOR unless overridden. */
+    protected boolean acceptsBody(HttpExchange ex) { return isJsonRequest(ex); }
+
+    /** The types {@link #acceptsBody} allows, for the 415 message. */
+    protected String bodyTypes() { return "application/json or application/cbor"; }
+
+    /** How long the whole body may take to arrive; streaming handlers allow more than -Deagle.body.timeoutMs. */
+    protected long bodyTimeoutMs() { return BODY_LIMITS.timeoutMs(); }
+
+    /** The rest of a refused body is not read, so the connection cannot be reused. */
+    private void rejectBody(HttpExchange ex, int status, ErrorResponse error) {
+        try {
+            ex.getResponseHeaders().set("Connection", "close");
+            writeJson(ex, status, error);
+        } catch (Exception ignore) {
+            try { ex.sendResponseHeaders(status, -1); } catch (Exception ignored) {}
+        }
+    }
+
+    private static Map<String, Long> bodyLimits() {
+        Map<String, Long> out = new HashMap<>();
+        Config.map("eagle.body.routes", DEFAULT_BODY_LIMITS).forEach((route, bytes) -> out.put(route, Long.parseLong(bytes)));
+        return out;
+    }
+
+    // ---- Conditional requests ----
+
+    /** Sets the validator for a 200 response; per-user data must always be revalidated, never reused blindly. */
+    protected void setEtag(HttpExchange ex, String etag) {
+        ex.getResponseHeaders().set("ETag", etag);
+        ex.getResponseHeaders().set("Cache-Control", "private, no-cache");
+    }
+
+    /**
+     * Sends 304 and returns true when If-None-Match lists {@code etag} (or {@code *}).
+     * Weak comparison; the gzip/deflate and CBOR suffixes of other representations are ignored.
+     */
+    protected boolean notModified(HttpExchange ex, String etag) throws IOException {
+        String inm = ex.getRequestHeaders().getFirst("If-None-Match");
+        if (inm == null || etag == null) return false;
+        for (String candidate : inm.split(",")) {
+            String c = candidate.trim();
+            if (c.startsWith("W/")) c = c.substring(2);
+            if (c.equals("*") || Cbor.stripVariant(Compression.stripCoding(c)).equals(Cbor.stripVariant(etag))) {
+                setEtag(ex, etag);
+                ex.sendResponseHeaders(304, -1);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // ---- Response cache ----
+
+    /** Key for a cacheable GET (route, path, query and bearer token), or null when the route is not cached. */
+    private String cacheKey(HttpExchange ex) {
+        String template = (String) ex.getAttribute(RoutingHandler.ROUTE_ATTRIBUTE);
+        if (!"GET".equals(ex.getRequestMethod()) || !RESPONSES.caches(template)) return null;
+        if (ex.getRequestHeaders().containsKey("X-HTTP-Method-Override")) return null;
+        String token = parseBearer(ex.getRequestHeaders().getFirst("Authorization"));
+        String query = ex.getRequestURI().getRawQuery();
+        return template + ' ' + ex.getRequestURI().getRawPath() + (query == null ? "" : "?" + query)
+                + ' ' + (token == null ? "" : token) + (wantsCbor(ex) ? " cbor" : "");
+    }
+
+    /** Serves a hit (or 304 against its ETag); tokens must still be known, so a rotated token never reads the cache. */
+    private boolean writeCached(HttpExchange ex, String key) throws IOException {
+        String token = parseBearer(ex.getRequestHeaders().getFirst("Authorization"));
+        if (token != null && TokenIndex.userId(token) == null) return false;
+        ResponseCache.Entry e = RESPONSES.get(key);
+        if (e == null) return false;
+        ex.getResponseHeaders().set("X-Cache", "HIT");
+        if (notModified(ex, e.etag())) return true;
+        if (e.etag() != null) setEtag(ex, e.etag());
+        if (e.nextCursor() != null) ex.getResponseHeaders().set(NEXT_CURSOR, e.nextCursor());
+        ex.getResponseHeaders().set("Content-Type", e.contentType());
+        ex.getResponseHeaders().add("Vary", "Accept");
+        byte[] out = Compression.encode(ex, e.json(), e::encoded);
+        ex.sendResponseHeaders(200, out.length);
+        try (OutputStream os = ex.getResponseBody()) { os.write(out); }
+        return true;
+    }
+
+    /** Makes this GET's 200 response cacheable under {@code tags}; untagged responses are never stored. */
+    protected void cacheTags(HttpExchange ex, String... tags) {
+        if (ex.getAttribute(FILL_ATTRIBUTE) instanceof ResponseCache.Fill fill) fill.tags(tags);
+    }
+
+    /** Called by write paths: drops every cached response carrying one of {@code tags}. */
+    protected static void invalidate(String... tags) { RESPONSES.invalidate(tags); }
+
     // ---- Auth helpers ----
 
     /** Returns the bearer token value (without the "Bearer ") or null if missing/invalid. */
@@ -62,40 +346,131 @@ public abstract class BaseHandler implements HttpHandler {
 
     // ---- JSON helpers ----
 
+    /** True for a JSON body, or a CBOR one (both bind to the same model types in {@link #readJson}). */
     protected boolean isJsonRequest(HttpExchange ex) {
         String ct = ex.getRequestHeaders().getFirst("Content-Type");
         if (ct == null) return false;
         String mime = ct.split(";", 2)[0].trim();
-        return "application/json".equalsIgnoreCase(mime);
+        return "application/json".equalsIgnoreCase(mime) || Cbor.CONTENT_TYPE.equalsIgnoreCase(mime);
     }
 
     protected <T> T readJson(HttpExchange ex, Class<T> type) throws IOException, JsonSyntaxException {
+        if (Cbor.isCbor(ex.getRequestHeaders().getFirst("Content-Type"))) {
+            try (InputStream in = ex.getRequestBody()) {
+                return GSON.fromJson(Cbor.decode(in.readAllBytes()), type);
+            }
+        }
         try (InputStreamReader r = new InputStreamReader(ex.getRequestBody(), StandardCharsets.UTF_8)) {
             return GSON.fromJson(r, type);
         }
     }
 
+    /** True when the client ranks application/cbor above JSON in {@code Accept}. */
+    protected static boolean wantsCbor(HttpExchange ex) {
+        return Cbor.preferred(ex.getRequestHeaders().getFirst("Accept"));
+    }
+
     protected void writeJson(HttpExchange ex, int status, Object body) throws IOException {
-        byte[] out = (body instanceof String s) ? s.getBytes(StandardCharsets.UTF_8)
-                : GSON.toJson(body).getBytes(StandardCharsets.UTF_8);
-        ex.getResponseHeaders().set("Content-Type", "application/json; charset=UTF-8");
+        if (wantsCbor(ex)) {
+            byte[] cbor = body instanceof String s ? Cbor.fromJson(s.getBytes(StandardCharsets.UTF_8)) : Cbor.encode(GSON, body);
+            writeBody(ex, status, cbor, Cbor.CONTENT_TYPE);
+            return;
+        }
+        if (body instanceof String s) { writeBody(ex, status, s.getBytes(StandardCharsets.UTF_8), JSON_TYPE); return; }
+        OutputBuffer out = Jsons.toJsonBuffer(body);
+        try { writeBody(ex, status, out, JSON_TYPE); } finally { out.release(); }
+    }
+
+    protected static byte[] toJsonBytes(Object body) {
+        return (body instanceof String s) ? s.getBytes(StandardCharsets.UTF_8) : Jsons.toJsonBytes(body);
+    }
+
+    /** Writes pre-serialised JSON, transcoded to CBOR when that was negotiated. */
+    protected void writeJsonBytes(HttpExchange ex, int status, byte[] out) throws IOException {
+        if (wantsCbor(ex)) writeBody(ex, status, Cbor.fromJson(out), Cbor.CONTENT_TYPE);
+        else writeBody(ex, status, out, JSON_TYPE);
+    }
+
+    private void writeBody(HttpExchange ex, int status, byte[] out, String contentType) throws IOException {
+        setContentHeaders(ex, contentType);
+        if (status == 200 && ex.getAttribute(FILL_ATTRIBUTE) instanceof ResponseCache.Fill fill) {
+            fill.body(out, contentType, ex.getResponseHeaders().getFirst("ETag"), // before the coding suffix is added
+                    ex.getResponseHeaders().getFirst(NEXT_CURSOR));
+        }
+        out = Compression.encode(ex, out); // gzip/deflate when negotiated and above the size threshold
         ex.sendResponseHeaders(status, out.length);
         try (OutputStream os = ex.getResponseBody()) { os.write(out); }
     }
 
+    /** Writes a pooled body straight from its buffer; the caller still owns (and releases) it. */
+    private void writeBody(HttpExchange ex, int status, OutputBuffer out, String contentType) throws IOException {
+        if (status == 200 && ex.getAttribute(FILL_ATTRIBUTE) instanceof ResponseCache.Fill) {
+            writeBody(ex, status, out.toByteArray(), contentType); // the cache needs a copy it can keep
+            return;
+        }
+        setContentHeaders(ex, contentType);
+        byte[] encoded = Compression.encode(ex, out);
+        if (encoded != null) {
+            ex.sendResponseHeaders(status, encoded.length);
+            try (OutputStream os = ex.getResponseBody()) { os.write(encoded); }
+            return;
+        }
+        ex.sendResponseHeaders(status, out.length());
+        try (OutputStream os = ex.getResponseBody()) { out.writeTo(os); }
+    }
+
+    private static void setContentHeaders(HttpExchange ex, String contentType) {
+        Headers h = ex.getResponseHeaders();
+        h.set("Content-Type", contentType);
+        h.add("Vary", "Accept");
+        if (Cbor.CONTENT_TYPE.equals(contentType) && h.containsKey("ETag")) h.set("ETag", Cbor.markEtag(h.getFirst("ETag")));
+    }
+
+    // ---- Request coalescing ----
+
+    /** A fully serialised response that identical concurrent requests can share (see {@link SingleFlight}). */
+    protected record Shared(int status, byte[] json, String etag) {}
+
+    protected void writeShared(HttpExchange ex, Shared r) throws IOException {
+        if (r.etag() != null) setEtag(ex, r.etag());
+        writeJsonBytes(ex, r.status(), r.json());
+    }
+
     // ---- Query helpers ----
 
-    /** Parses the query string into a LinkedHashMap (later params override earlier ones). */
+    /** Parses the query string into a LinkedHashMap (later params override earlier ones); keys and values are URL-decoded. */
     protected Map<String, String> queryParams(HttpExchange ex) {
-        String q = ex.getRequestURI().getQuery();
+        String q = ex.getRequestURI().getRawQuery();
         Map<String,String> out = new LinkedHashMap<>();
         if (q == null || q.isEmpty()) return out;
         for (String pair : q.split("&")) {
+            if (pair.isEmpty()) continue;
             int i = pair.indexOf('=');
             String k = i >= 0 ? pair.substring(0, i) : pair;
             String v = i >= 0 ? pair.substring(i + 1) : "";
-            out.put(k, v);
+            out.put(decode(k), decode(v));
         }
         return out;
     }
+
+    /** Parses {@code ?fields=} against a resource's fields; writes 400 and returns null on an unknown name. */
+    protected FieldSelection fields(HttpExchange ex, Map<String, String> columnsByField) throws IOException {
+        try {
+            return FieldSelection.parse(queryParams(ex).get("fields"), columnsByField);
+        } catch (IllegalArgumentException e) {
+            writeJson(ex, 400, new ErrorResponse("bad_request", e.getMessage()));
+            return null;
+        }
+    }
+
+    /** Integer query parameter, or {@code def} when missing or not a number. */
+    protected static int queryInt(Map<String, String> query, String key, int def) {
+        String v = query.get(key);
+        if (v == null || v.isEmpty()) return def;
+        try { return Integer.parseInt(v.trim()); } catch (NumberFormatException e) { return def; }
+    }
+
+    private static String decode(String s) {
+        try { return URLDecoder.decode(s, StandardCharsets.UTF_8); } catch (IllegalArgumentException e) { return s; }
+    }
 }
@@ -3,13 +3,42 @@ package com.eagle.http.handlers;
 import com.eagle.dao.UserDao;
 import com.eagle.model.response.ErrorResponse;
 import com.eagle.model.response.UserListResponse;
+import com.eagle.util.Config;
+import com.eagle.util.Deadline;
+import com.eagle.util.ResponseCache;
+import com.eagle.util.SingleFlight;
+import com.eagle.util.Versions;
+import com.google.gson.stream.JsonWriter;
 import com.sun.net.httpserver.HttpExchange;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
 
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
+import java.util.Map;
 
-/** Example handler using BaseHandler utilities. */
+/**
+ * Example handler using BaseHandler utilities.
+ * Concurrent calls share one query and one serialised body per user-directory version and page; the body is cached
+ * until the next signup.
+ * - {@code [?limit=N][&after=<username>]}: one keyset page in username order, {@value #DEFAULT_PAGE} users unless
+ *   {@code limit} says otherwise; {@code next} in the body is the {@code after} for the following page and is
+ *   absent on the last one. A bare {@code /listUsers} is the first page, so no request loads the whole directory.
+ * - {@code ?stream=true[&after=<username>]}: every (remaining) user, written as rows are read with chunked
+ *   encoding, so neither the handler nor the DAO holds the list. Always JSON, never cached. A body that ends
+ *   without its closing {@code ]}} means the listing failed part way.
+ */
 public class ListUsersHandler extends BaseHandler {
+    private static final Logger log = LogManager.getLogger(ListUsersHandler.class);
+    private static final int DEFAULT_PAGE = 100;
+    private static final int MAX_PAGE = Math.max(1, Config.intVal("eagle.users.maxPageSize", 1000));
+
     private final UserDao userDao = new UserDao();
+    private final SingleFlight<String, Shared> flights = new SingleFlight<>("listUsers");
 
     @Override
     protected void doHandle(HttpExchange ex) throws Exception {
@@ -20,12 +49,50 @@ public class ListUsersHandler extends BaseHandler {
             return;
         }
 
+        Map<String, String> q = queryParams(ex);
+        String after = q.get("after");
+        if (after != null && after.isEmpty()) after = null;
+        if ("true".equalsIgnoreCase(q.get("stream"))) { stream(ex, after); return; }
+        int limit = Math.max(1, Math.min(MAX_PAGE, queryInt(q, "limit", DEFAULT_PAGE)));
+        String cursor = after;
+
         try {
-            List<String> users = userDao.getAllUsers();
-            UserListResponse resp = new UserListResponse("users list", users);
-            writeJson(ex, 200, resp);
+            String key = Versions.userList() + " " + limit + " " + cursor;
+            Shared r = flights.execute(key, () -> page(cursor, limit));
+            if (r.status() == 200) cacheTags(ex, ResponseCache.USERS);
+            writeShared(ex, r);
+        } catch (Deadline.Exceeded e) {
+            throw e; // 504 from BaseHandler
         } catch (Exception e) {
-            writeJson(ex, 500, new ErrorResponse("internal_error", e.getMessage()));
+            log.error("listUsers failed", e);
+            writeJson(ex, 500, new ErrorResponse("internal_error", "Could not list users"));
+        }
+    }
+
+    /** Fetches one row past the page to learn whether a next page exists. */
+    private Shared page(String after, int limit) {
+        List<String> users = userDao.listUsernames(after, limit + 1);
+        if (users == null) return new Shared(500, toJsonBytes(new ErrorResponse("internal_error", "Database error")), null);
+        String next = null;
+        if (users.size() > limit) {
+            users = users.subList(0, limit);
+            next = users.get(limit - 1);
+        }
+        return new Shared(200, toJsonBytes(new UserListResponse("users list", users, next)), null);
+    }
+
+    /** Same body shape as the full listing, written element by element straight from the ResultSet. */
+    private void stream(HttpExchange ex, String after) throws IOException {
+        ex.getResponseHeaders().set("Content-Type", "application/json; charset=UTF-8");
+        ex.sendResponseHeaders(200, 0); // chunked
+        try (OutputStream os = new BufferedOutputStream(ex.getResponseBody(), 16 * 1024)) {
+            JsonWriter out = new JsonWriter(new OutputStreamWriter(os, StandardCharsets.UTF_8));
+            out.setHtmlSafe(true); // same escaping as Gson
+            out.beginObject().name("message").value("users list").name("users").beginArray();
+            long count = userDao.streamUsernames(after, out::value);
+            if (count < 0) log.warn("listUsers stream aborted by a database error; the body is left unterminated");
+            else out.endArray().endObject();
+            out.flush();
         }
     }
 }
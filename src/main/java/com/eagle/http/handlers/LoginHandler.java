@@ -5,10 +5,13 @@ import com.eagle.model.request.LoginRequest;
 import com.eagle.model.response.ErrorResponse;
 import com.eagle.model.response.LoginResponse;
 import com.eagle.util.JwtUtil;
+import com.google.gson.JsonParseException;
 import com.sun.net.httpserver.HttpExchange;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import java.io.IOException;
+
 /**
  * Refactored LoginHandler using BaseHandler utilities.
  */
@@ -28,14 +31,14 @@ public class LoginHandler extends BaseHandler {
         }
 
         if (!isJsonRequest(ex)) {
-            writeJson(ex, 415, new ErrorResponse("unsupported_media_type", "Content-Type must be application/json"));
+            writeJson(ex, 415, new ErrorResponse("unsupported_media_type", "Content-Type must be application/json or application/cbor"));
             return;
         }
 
         LoginRequest req;
         try {
             req = readJson(ex, LoginRequest.class);
-        } catch (Exception parseErr) {
+        } catch (JsonParseException | IOException parseErr) { // body limit errors pass through to BaseHandler
             writeJson(ex, 400, new ErrorResponse("bad_request", "Malformed JSON body"));
             return;
         }
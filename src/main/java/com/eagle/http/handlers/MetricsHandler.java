@@ -0,0 +1,19 @@
+package com.eagle.http.handlers;
+
+import com.eagle.util.Metrics;
+import com.sun.net.httpserver.HttpExchange;
+
+/** Exposes {@link Metrics#snapshot()} as JSON for load tests and dashboards. */
+public class MetricsHandler extends BaseHandler {
+
+    @Override
+    protected void doHandle(HttpExchange ex) throws Exception {
+        if (!ensureMethod(ex, "GET", "OPTIONS")) return; // writes 405 + Allow on mismatch
+        if ("OPTIONS".equalsIgnoreCase(ex.getRequestMethod())) {
+            ex.getResponseHeaders().set("Allow", "GET, OPTIONS");
+            ex.sendResponseHeaders(204, -1);
+            return;
+        }
+        writeJson(ex, 200, Metrics.snapshot());
+    }
+}
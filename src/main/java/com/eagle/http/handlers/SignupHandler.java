@@ -4,10 +4,14 @@ import com.eagle.dao.UserDao;
 import com.eagle.model.request.SignupRequest;
 import com.eagle.model.response.ErrorResponse;
 import com.eagle.model.response.SignupResponse;
+import com.eagle.util.ResponseCache;
+import com.eagle.util.Versions;
+import com.google.gson.JsonParseException;
 import com.sun.net.httpserver.HttpExchange;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import java.io.IOException;
 import java.time.LocalDate;
 
 /**
@@ -27,14 +31,14 @@ public class SignupHandler extends BaseHandler {
         }
 
         if (!isJsonRequest(ex)) {
-            writeJson(ex, 415, new ErrorResponse("unsupported_media_type", "Content-Type must be application/json"));
+            writeJson(ex, 415, new ErrorResponse("unsupported_media_type", "Content-Type must be application/json or application/cbor"));
             return;
         }
 
         SignupRequest req;
         try {
             req = readJson(ex, SignupRequest.class);
-        } catch (Exception parseErr) {
+        } catch (JsonParseException | IOException parseErr) { // body limit errors pass through to BaseHandler
             writeJson(ex, 400, new ErrorResponse("bad_request", "Malformed JSON body"));
             return;
         }
@@ -76,6 +80,8 @@ public class SignupHandler extends BaseHandler {
             writeJson(ex, 409, new ErrorResponse("conflict", "Username already exists or could not be saved"));
             return;
         }
+        Versions.bumpUserList();
+        invalidate(ResponseCache.USERS);
 
         // Success: fetch bearer token generated on save
         String authToken = null;
@@ -0,0 +1,265 @@
+package com.eagle.http.handlers;
+
+import com.eagle.dao.UserDao;
+import com.eagle.http.limit.BodyLimits;
+import com.eagle.model.request.SignupRequest;
+import com.eagle.model.response.ErrorResponse;
+import com.eagle.model.response.UserImportResult;
+import com.eagle.model.response.UserImportSummary;
+import com.eagle.util.Config;
+import com.eagle.util.Jsons;
+import com.eagle.util.Metrics;
+import com.eagle.util.ResponseCache;
+import com.eagle.util.Versions;
+import com.google.gson.JsonParseException;
+import com.sun.net.httpserver.HttpExchange;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Admin bulk import: {@code POST /admin/users:import} with one {@link SignupRequest} per line
+ * ({@code application/x-ndjson}).
+ * - Lines are parsed as they stream in; every {@code eagle.import.chunkSize} records become one JDBC batch and one
+ *   commit over a single connection ({@link UserDao.BulkInsert}), so memory and per-record cost stay flat.
+ * - After each commit the chunk's outcomes stream back as NDJSON ({@link UserImportResult}, in input order),
+ *   followed by a {@link UserImportSummary} line. Created users are final even if a later chunk fails.
+ * - Requires {@code Authorization: Bearer <eagle.admin.token>}; without a configured token the endpoint is off.
+ */
+public class UserImportHandler extends BaseHandler {
+    private static final Logger log = LogManager.getLogger(UserImportHandler.class);
+    private static final String NDJSON = "application/x-ndjson";
+    private static final int CHUNK = Math.max(1, Config.intVal("eagle.import.chunkSize", 500));
+    private static final int MAX_LINE = Config.intVal("eagle.import.maxLineBytes", 16 * 1024);
+    private static final long BODY_TIMEOUT_MS = Config.longVal("eagle.import.bodyTimeoutMs", 600_000);
+    private static final String ADMIN_TOKEN = Config.str("eagle.admin.token", null);
+
+    private static final LongAdder CREATED = new LongAdder();
+    private static final LongAdder REJECTED = new LongAdder();
+
+    static {
+        Metrics.register("import.users.created", CREATED::sum);
+        Metrics.register("import.users.rejected", REJECTED::sum);
+    }
+
+    private final UserDao userDao = new UserDao();
+
+    @Override
+    protected void doHandle(HttpExchange ex) throws Exception {
+        if (!ensureMethod(ex, "POST", "OPTIONS")) return;
+        if ("OPTIONS".equalsIgnoreCase(ex.getRequestMethod())) {
+            ex.getResponseHeaders().set("Allow", "POST, OPTIONS");
+            ex.sendResponseHeaders(204, -1);
+            return;
+        }
+        if (ADMIN_TOKEN == null) { writeJson(ex, 403, new ErrorResponse("forbidden", "Bulk import is disabled (no eagle.admin.token)")); return; }
+        String token = parseBearer(ex.getRequestHeaders().getFirst("Authorization"));
+        if (token == null || !MessageDigest.isEqual(token.getBytes(StandardCharsets.UTF_8), ADMIN_TOKEN.getBytes(StandardCharsets.UTF_8))) {
+            writeJson(ex, 401, new ErrorResponse("unauthorized", "Admin token required"));
+            return;
+        }
+        if (!acceptsBody(ex)) { writeJson(ex, 415, new ErrorResponse("unsupported_media_type", "Content-Type must be " + bodyTypes())); return; }
+
+        try (UserDao.BulkInsert bulk = userDao.bulkInsert()) {
+            if (bulk == null) { writeJson(ex, 503, new ErrorResponse("unavailable", "Database unavailable")); return; }
+            ex.getResponseHeaders().set("Content-Type", NDJSON + "; charset=UTF-8");
+            ex.sendResponseHeaders(200, 0); // chunked: results follow each commit
+            try (OutputStream out = new BufferedOutputStream(ex.getResponseBody(), 16 * 1024)) {
+                run(ex.getRequestBody(), bulk, out);
+            }
+        }
+    }
+
+    @Override
+    protected boolean acceptsBody(HttpExchange ex) {
+        String ct = ex.getRequestHeaders().getFirst("Content-Type");
+        if (ct == null) return false;
+        String mime = ct.split(";", 2)[0].trim();
+        return NDJSON.equalsIgnoreCase(mime) || "application/jsonl".equalsIgnoreCase(mime);
+    }
+
+    @Override
+    protected String bodyTypes() { return NDJSON; }
+
+    @Override
+    protected long bodyTimeoutMs() { return BODY_TIMEOUT_MS; }
+
+    /** Reads, inserts and reports chunk by chunk, ending with the summary line. */
+    private void run(InputStream body, UserDao.BulkInsert bulk, OutputStream out) throws IOException {
+        long started = System.nanoTime();
+        Chunk chunk = new Chunk();
+        long[] totals = new long[2]; // created, rejected
+        String error = null, details = null;
+        try (InputStream in = body) {
+            LineReader lines = new LineReader(in);
+            long lineNo = 0;
+            byte[] line;
+            while ((line = lines.next()) != null) {
+                lineNo++;
+                if (lines.length() > MAX_LINE) chunk.reject(lineNo, null, "bad_request", "Line longer than " + MAX_LINE + " bytes"); // only its head is buffered
+                else if (lines.length() == 0 || isBlank(line, lines.length())) continue;
+                else parse(new String(line, 0, lines.length(), StandardCharsets.UTF_8), lineNo, chunk);
+                if (chunk.lines.size() >= CHUNK && !flush(chunk, bulk, out, totals)) { error = "internal_error"; details = "Database error; later records were not imported"; break; }
+            }
+            if (error == null && !flush(chunk, bulk, out, totals)) { error = "internal_error"; details = "Database error; later records were not imported"; }
+        } catch (BodyLimits.TooLarge | BodyLimits.TimedOut e) {
+            error = e instanceof BodyLimits.TooLarge ? "payload_too_large" : "request_timeout";
+            details = e.getMessage();
+            if (!flush(chunk, bulk, out, totals)) details += "; the last chunk was not imported";
+        }
+        long elapsedMs = (System.nanoTime() - started) / 1_000_000;
+        writeLine(out, new UserImportSummary(error == null, totals[0], totals[1], elapsedMs, error, details));
+        log.info("User import: created={} rejected={} in {} ms{}", totals[0], totals[1], elapsedMs, error == null ? "" : " (stopped: " + error + ")");
+    }
+
+    /** Same rules as /signup: username and password required, a malformed dob is dropped. */
+    private static void parse(String json, long lineNo, Chunk chunk) {
+        SignupRequest r;
+        try {
+            r = Jsons.fromJson(json, SignupRequest.class);
+        } catch (JsonParseException e) {
+            chunk.reject(lineNo, null, "bad_request", "Malformed JSON");
+            return;
+        }
+        if (r == null || isBlank(r.getUsername()) || isBlank(r.getPassword())) {
+            chunk.reject(lineNo, r == null ? null : r.getUsername(), "bad_request", "username and password are required");
+            return;
+        }
+        LocalDate dob = null;
+        if (!isBlank(r.getDob())) {
+            try { dob = LocalDate.parse(r.getDob().trim()); } catch (DateTimeParseException ignore) {}
+        }
+        chunk.add(lineNo, new UserDao.NewUser(r.getUsername(), r.getPassword(), nullIfBlank(r.getEmail()), dob,
+                nullIfBlank(r.getAddress()), nullIfBlank(r.getPin()), nullIfBlank(r.getPhone())));
+    }
+
+    /** Commits the chunk and writes its results; false when the database failed (nothing of the chunk kept). */
+    private boolean flush(Chunk chunk, UserDao.BulkInsert bulk, OutputStream out, long[] totals) throws IOException {
+        if (chunk.lines.isEmpty()) return true;
+        String[] reasons = chunk.users.isEmpty() ? new String[0] : bulk.insert(chunk.users);
+        if (reasons == null) return false;
+        int u = 0, created = 0;
+        for (int i = 0; i < chunk.lines.size(); i++) {
+            UserImportResult r = chunk.results.get(i);
+            if (r == null) { // a record sent to the database
+                String reason = reasons[u];
+                String username = chunk.users.get(u++).username();
+                r = reason == null
+                        ? new UserImportResult(chunk.lines.get(i), username, UserImportResult.CREATED, null, null)
+                        : new UserImportResult(chunk.lines.get(i), username, UserImportResult.REJECTED, reason, "Username already exists");
+            }
+            if (UserImportResult.CREATED.equals(r.getStatus())) created++;
+            writeLine(out, r);
+        }
+        out.flush();
+        totals[0] += created;
+        totals[1] += chunk.lines.size() - created;
+        CREATED.add(created);
+        REJECTED.add(chunk.lines.size() - created);
+        if (created > 0) {
+            Versions.bumpUserList();
+            invalidate(ResponseCache.USERS);
+        }
+        chunk.clear();
+        return true;
+    }
+
+    private static void writeLine(OutputStream out, Object value) throws IOException {
+        out.write(Jsons.toJsonBytes(value));
+        out.write('\n');
+    }
+
+    /** Records of the current chunk in input order; {@code results} holds rejections, null for records to insert. */
+    private static final class Chunk {
+        final List<Long> lines = new ArrayList<>();
+        final List<UserImportResult> results = new ArrayList<>();
+        final List<UserDao.NewUser> users = new ArrayList<>();
+
+        void add(long line, UserDao.NewUser user) {
+            lines.add(line);
+            results.add(null);
+            users.add(user);
+        }
+
+        void reject(long line, String username, String error, String details) {
+            lines.add(line);
+            results.add(new UserImportResult(line, username, UserImportResult.REJECTED, error, details));
+        }
+
+        void clear() {
+            lines.clear();
+            results.clear();
+            users.clear();
+        }
+    }
+
+    /**
+     * Splits a byte stream on '\n', reading it in large blocks. Lines are copied into one reused array that keeps
+     * at most {@link #MAX_LINE} + 1 bytes; {@link #length()} still reports the full length, so overlong lines show.
+     */
+    private static final class LineReader {
+        private final InputStream in;
+        private final byte[] block = new byte[64 * 1024];
+        private int pos, end;
+        private byte[] line = new byte[1024];
+        private int length;
+
+        LineReader(InputStream in) { this.in = in; }
+
+        /** The next line (without '\n' or a trailing '\r'), or null at end of input. */
+        byte[] next() throws IOException {
+            length = 0;
+            boolean started = false;
+            while (true) {
+                if (pos == end) {
+                    int n = in.read(block, 0, block.length);
+                    if (n < 0) return started ? trimmed() : null;
+                    pos = 0;
+                    end = n;
+                }
+                started = true;
+                int i = pos;
+                while (i < end && block[i] != '\n') i++;
+                append(pos, i - pos);
+                if (i < end) { pos = i + 1; return trimmed(); }
+                pos = end;
+            }
+        }
+
+        int length() { return length; }
+
+        private void append(int from, int n) {
+            int keep = Math.min(n, MAX_LINE + 1 - length);
+            if (keep > 0) {
+                if (length + keep > line.length) line = Arrays.copyOf(line, Math.min(MAX_LINE + 1, Math.max(line.length * 2, length + keep)));
+                System.arraycopy(block, from, line, length, keep);
+            }
+            length += n;
+        }
+
+        private byte[] trimmed() {
+            if (length > 0 && length <= MAX_LINE && line[length - 1] == '\r') length--;
+            return line;
+        }
+    }
+
+    private static boolean isBlank(byte[] b, int len) {
+        for (int i = 0; i < len; i++) if (b[i] != ' ' && b[i] != '\t' && b[i] != '\r') return false;
+        return true;
+    }
+
+    private static boolean isBlank(String s) { return s == null || s.trim().isEmpty(); }
+    private static String nullIfBlank(String s) { return isBlank(s) ? null : s.trim(); }
+}
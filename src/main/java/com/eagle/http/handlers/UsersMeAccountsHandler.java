@@ -3,99 +3,164 @@ package com.eagle.http.handlers;
 import com.eagle.dao.BankAccountDao;
 import com.eagle.dao.BankAccountDao.AccountRecord;
 import com.eagle.dao.TransactionDao;
+import com.eagle.dao.TransactionDao.TxFilter;
 import com.eagle.dao.TransactionDao.TxRecord;
 import com.eagle.dao.UserDao;
 import com.eagle.dao.UserDao.UserRecord;
+import com.eagle.http.EventHub;
+import com.eagle.http.routing.RouteMatch;
+import com.eagle.http.routing.Router;
 import com.eagle.model.request.CreateAccountRequest;
+import com.eagle.model.request.TransactionBatchRequest;
 import com.eagle.model.request.TransactionRequest;
 import com.eagle.model.response.AccountResponse;
 import com.eagle.model.response.ErrorResponse;
+import com.eagle.model.response.TransactionBatchResponse;
 import com.eagle.model.response.TransactionResponse;
+import com.eagle.util.Config;
+import com.eagle.util.FieldSelection;
+import com.eagle.util.Jsons;
+import com.eagle.util.Metrics;
+import com.eagle.util.ResponseCache;
+import com.eagle.util.TokenIndex;
+import com.eagle.util.Versions;
 import com.google.gson.JsonSyntaxException;
 import com.sun.net.httpserver.HttpExchange;
 
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
-import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
 import java.time.ZoneOffset;
 import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
+import java.util.Base64;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
-import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * Refactored to extend BaseHandler, with consistent JSON I/O, method/Allow handling,
  * Content-Type validation, pagination, and Location headers.
+ * Routes are declared once in {@link #ROUTES}; Allow/405 replies are derived from that table.
+ * GETs carry ETags from {@link Versions}; a matching If-None-Match from a known token gets 304 before any DAO call.
+ * GETs accept {@code ?fields=} (e.g. {@code id,balance}), which narrows the SELECT as well as the JSON.
+ * GET bodies are cached under the user's tag (list) or the account's tag; every write path fires those tags.
+ * {@code transactions:batch} applies many deposits/withdrawals with one auth, one account check and one commit.
+ * {@code transactions:export} streams a whole history (oldest first) as NDJSON or CSV, row by row from the cursor.
+ * {@code events} is a Server-Sent Events stream of the account's transactions as they commit (see {@link #streamEvents}).
+ * Transaction history pages by keyset: {@code before_id}/{@code after_id}, or the opaque {@code cursor} handed out
+ * in {@code X-Next-Cursor}; {@code offset} still works but reads every skipped row. {@code from}/{@code to} (ISO
+ * instant or date, UTC; {@code to} exclusive) and {@code type} filter in SQL and carry over unchanged to later pages.
  */
 public class UsersMeAccountsHandler extends BaseHandler {
     private static final DateTimeFormatter ISO = DateTimeFormatter.ISO_INSTANT;
+    private static final Set<String> ID_ONLY = Set.of("id");
+    private static final Set<String> OWNERSHIP = Set.of("id", "user_id");
+    private static final int BATCH_MAX = Config.intVal("eagle.batch.maxOperations", 1000);
+    private static final int EXPORT_FETCH_SIZE = Config.intVal("eagle.export.fetchSize", 1000);
+    private static final byte[] CSV_HEADER = "id,type,amount,balanceAfter,createdAt\n".getBytes(StandardCharsets.US_ASCII);
+    private static final LongAdder EXPORTED_ROWS = new LongAdder();
+
+    static { Metrics.register("export.transactions.rows", EXPORTED_ROWS::sum); }
+
+    /** Open {@code events} streams by account; subscribers hold no thread while idle. */
+    private static final EventHub EVENTS = new EventHub("sse", Config.intVal("eagle.sse.maxSubscribers", 10_000),
+            Config.intVal("eagle.sse.maxQueued", 256), Config.longVal("eagle.sse.writeTimeoutMs", 10_000),
+            Config.longVal("eagle.sse.heartbeatMs", 15_000));
+    private static final int SSE_MAX_REPLAY = Math.max(1, Config.intVal("eagle.sse.maxReplay", 1000));
+    private static final byte[] SSE_RETRY = ("retry: " + Config.longVal("eagle.sse.retryMs", 3000) + "\n\n").getBytes(StandardCharsets.US_ASCII);
+
+    /** A route action, invoked after authentication; static so the table is built once, without {@code this}. */
+    @FunctionalInterface
+    private interface Action {
+        void run(UsersMeAccountsHandler h, HttpExchange ex, UserRecord me, RouteMatch<?> m) throws Exception;
+    }
+
+    private static final Router<Action> ROUTES = new Router<Action>()
+            .add("GET",    "/users/me/accounts", (h, ex, me, m) -> h.listAccounts(ex, me.id))
+            .add("POST",   "/users/me/accounts", (h, ex, me, m) -> h.createAccount(ex, me.id))
+            .add("GET",    "/users/me/accounts/{id:int}", (h, ex, me, m) -> h.getOneAccount(ex, me.id, m.intParam("id")))
+            .add("DELETE", "/users/me/accounts/{id:int}", (h, ex, me, m) -> h.deleteAccount(ex, me.id, m.intParam("id")))
+            .add("GET",    "/users/me/accounts/{id:int}/transactions", (h, ex, me, m) -> h.listTransactions(ex, me.id, m.intParam("id")))
+            .add("POST",   "/users/me/accounts/{id:int}/transactions", (h, ex, me, m) -> h.createTransaction(ex, me.id, m.intParam("id")))
+            .add("POST",   "/users/me/accounts/{id:int}/transactions:batch", (h, ex, me, m) -> h.createTransactionBatch(ex, me.id, m.intParam("id")))
+            .add("GET",    "/users/me/accounts/{id:int}/transactions:export", (h, ex, me, m) -> h.exportTransactions(ex, me.id, m.intParam("id")))
+            .add("GET",    "/users/me/accounts/{id:int}/events", (h, ex, me, m) -> h.streamEvents(ex, me.id, m.intParam("id")));
 
     private final UserDao userDao = new UserDao();
     private final BankAccountDao bankDao = new BankAccountDao();
     private final TransactionDao txDao = new TransactionDao();
 
+    /** Path templates served by this handler, for mounting on the server's root router. */
+    public List<String> templates() { return ROUTES.templates(); }
+
     @Override
     protected void doHandle(HttpExchange ex) throws Exception {
-        RouteInfo route = parseRoute(ex.getRequestURI());
-        String allow = allowedFor(route);
-
-        switch (ex.getRequestMethod()) {
-            case "GET" -> handleGet(ex, route);
-            case "POST" -> handlePost(ex, route, allow);
-            case "DELETE" -> handleDelete(ex, route, allow);
-            case "OPTIONS" -> { ex.getResponseHeaders().set("Allow", allow); ex.sendResponseHeaders(204, -1); }
-            default -> { ex.getResponseHeaders().set("Allow", allow); ex.sendResponseHeaders(405, -1); }
-        }
-    }
+        Action action = route(ex, ROUTES); // writes 404 / 405 / OPTIONS itself
+        if (action == null) return;
+        RouteMatch<?> m = routeMatch(ex, ROUTES);
 
-    // ========= dispatchers =========
+        if ("POST".equals(ex.getRequestMethod()) && !isJsonRequest(ex)) {
+            writeJson(ex, 415, new ErrorResponse("unsupported_media_type", "Content-Type must be application/json or application/cbor"));
+            return;
+        }
 
-    private void handleGet(HttpExchange ex, RouteInfo r) throws Exception {
         String token = parseBearer(ex.getRequestHeaders().getFirst("Authorization"));
         if (token == null) { writeJson(ex, 401, new ErrorResponse("unauthorized", "Missing or invalid Authorization header")); return; }
-        UserRecord me = userDao.getUserByAuthToken(token);
+        if ("GET".equals(ex.getRequestMethod()) && ex.getRequestHeaders().containsKey("If-None-Match")) {
+            Integer knownUser = TokenIndex.userId(token);
+            if (knownUser != null && notModified(ex, currentEtag(ex, m, knownUser))) return;
+        }
+        UserRecord me = userDao.getUserByAuthToken(token, ID_ONLY); // routes only need the caller's id
         if (me == null) { writeJson(ex, 401, new ErrorResponse("unauthorized", "Invalid token")); return; }
+        TokenIndex.put(token, me.id);
+        if ("GET".equals(ex.getRequestMethod()) && ex.getRequestHeaders().containsKey("If-None-Match")
+                && notModified(ex, currentEtag(ex, m, me.id))) return; // index entry had expired; the DAO confirmed it
 
-        if (r.accountId == null && !r.isTransactions) {
-            listAccounts(ex, me.id);
-        } else if (r.accountId != null && !r.isTransactions) {
-            getOneAccount(ex, me.id, r.accountId);
-        } else if (r.accountId != null && r.isTransactions) {
-            listTransactions(ex, me.id, r.accountId);
-        } else {
-            methodNotAllowed(ex, r);
-        }
+        action.run(this, ex, me, m);
     }
 
-    private void handlePost(HttpExchange ex, RouteInfo r, String allow) throws Exception {
-        if (!isJsonRequest(ex)) { writeJson(ex, 415, new ErrorResponse("unsupported_media_type", "Content-Type must be application/json")); return; }
-
-        String token = parseBearer(ex.getRequestHeaders().getFirst("Authorization"));
-        if (token == null) { writeJson(ex, 401, new ErrorResponse("unauthorized", "Missing or invalid Authorization header")); return; }
-        UserRecord me = userDao.getUserByAuthToken(token);
-        if (me == null) { writeJson(ex, 401, new ErrorResponse("unauthorized", "Invalid token")); return; }
+    // ========= ETags =========
 
-        if (r.accountId == null && !r.isTransactions) {
-            createAccount(ex, me.id);
-        } else if (r.accountId != null && r.isTransactions) {
-            createTransaction(ex, me.id, r.accountId);
-        } else {
-            ex.getResponseHeaders().set("Allow", allow); ex.sendResponseHeaders(405, -1);
+    /** Validator the GET route would send now, or null when the account is not known to belong to {@code userId}. */
+    private String currentEtag(HttpExchange ex, RouteMatch<?> m, int userId) {
+        if (m.template().endsWith(":export") || m.template().endsWith("/events")) return null; // streamed, never validated
+        boolean transactions = m.template().endsWith("/transactions");
+        Map<String, String> q = queryParams(ex);
+        String variant;
+        try {
+            variant = FieldSelection.parse(q.get("fields"), transactions ? TransactionDao.FIELDS : BankAccountDao.FIELDS).variant();
+        } catch (IllegalArgumentException e) {
+            return null; // the route itself answers 400
         }
+        if (!m.template().contains("{id:int}")) return accountsTag(userId, variant);
+        int accountId = m.intParam("id");
+        if (!Integer.valueOf(userId).equals(Versions.ownerOf(accountId))) return null;
+        if (!transactions) return accountTag(accountId, Versions.account(accountId), variant);
+        TxPage page = TxPage.parse(q);
+        return page == null ? null : transactionsTag(accountId, page.key(), variant);
     }
 
-    private void handleDelete(HttpExchange ex, RouteInfo r, String allow) throws Exception {
-        String token = parseBearer(ex.getRequestHeaders().getFirst("Authorization"));
-        if (token == null) { writeJson(ex, 401, new ErrorResponse("unauthorized", "Missing or invalid Authorization header")); return; }
-        UserRecord me = userDao.getUserByAuthToken(token);
-        if (me == null) { writeJson(ex, 401, new ErrorResponse("unauthorized", "Invalid token")); return; }
+    private static String accountsTag(int userId, String fields) {
+        return Versions.etag("l", userId, Versions.userAccounts(userId), fields);
+    }
 
-        if (r.accountId != null && !r.isTransactions) {
-            deleteAccount(ex, me.id, r.accountId);
-        } else {
-            ex.getResponseHeaders().set("Allow", allow); ex.sendResponseHeaders(405, -1);
-        }
+    private static String accountTag(int accountId, long version, String fields) {
+        return Versions.etag("a", accountId, version, fields);
+    }
+
+    private static String transactionsTag(int accountId, String page, String fields) {
+        return Versions.etag("t", accountId, Versions.account(accountId), page + (fields == null ? "" : "." + fields));
     }
 
     // ========= Accounts =========
@@ -107,38 +172,39 @@ public class UsersMeAccountsHandler extends BaseHandler {
 
         AccountRecord r = bankDao.createForUser(userId, desired);
         if (r == null) { writeJson(ex, 409, Map.of("ok", false, "message", "Could not create account")); return; }
+        Versions.rememberOwner(r.id, userId);
+        Versions.bumpAccount(userId, r.id);
+        invalidate(ResponseCache.user(userId));
 
-        AccountResponse resp = new AccountResponse(
-                r.id,
-                r.accountNumber,
-                (r.balance == null ? "0.00" : r.balance.setScale(2, RoundingMode.DOWN).toPlainString())
-        );
         ex.getResponseHeaders().set("Location", "/users/me/accounts/" + r.id);
-        writeJson(ex, 201, resp);
+        writeJson(ex, 201, toResponse(r, FieldSelection.all(BankAccountDao.FIELDS)));
     }
 
     private void listAccounts(HttpExchange ex, int userId) throws Exception {
-        List<AccountRecord> rows = bankDao.listByUserId(userId);
+        FieldSelection fields = fields(ex, BankAccountDao.FIELDS);
+        if (fields == null) return;
+        String tag = accountsTag(userId, fields.variant()); // read before the query (see Versions)
+        List<AccountRecord> rows = bankDao.listByUserId(userId, fields.columns("id")); // id: ownership for 304s
         List<AccountResponse> out = new ArrayList<>();
         for (AccountRecord r : rows) {
-            out.add(new AccountResponse(
-                    r.id,
-                    r.accountNumber,
-                    (r.balance == null ? "0.00" : r.balance.setScale(2, RoundingMode.DOWN).toPlainString())
-            ));
+            out.add(toResponse(r, fields));
+            Versions.rememberOwner(r.id, userId);
         }
+        setEtag(ex, tag);
+        cacheTags(ex, ResponseCache.user(userId));
         writeJson(ex, 200, out);
     }
 
     private void getOneAccount(HttpExchange ex, int userId, int accountId) throws Exception {
-        AccountRecord r = bankDao.getById(accountId);
+        FieldSelection fields = fields(ex, BankAccountDao.FIELDS);
+        if (fields == null) return;
+        long version = Versions.account(accountId); // read before the query (see Versions), tagged once owned
+        AccountRecord r = bankDao.getById(accountId, fields.columns("id", "user_id"));
         if (r == null || r.userId != userId) { writeJson(ex, 404, Map.of("ok", false, "message", "Account not found")); return; }
-        AccountResponse resp = new AccountResponse(
-                r.id,
-                r.accountNumber,
-                (r.balance == null ? "0.00" : r.balance.setScale(2, RoundingMode.DOWN).toPlainString())
-        );
-        writeJson(ex, 200, resp);
+        Versions.rememberOwner(accountId, userId);
+        setEtag(ex, accountTag(accountId, version, fields.variant()));
+        cacheTags(ex, ResponseCache.account(accountId));
+        writeJson(ex, 200, toResponse(r, fields));
     }
 
     private void deleteAccount(HttpExchange ex, int userId, int accountId) throws Exception {
@@ -150,6 +216,9 @@ public class UsersMeAccountsHandler extends BaseHandler {
         }
         boolean deleted = bankDao.deleteIfZeroBalance(accountId, userId);
         if (!deleted) { writeJson(ex, 409, Map.of("ok", false, "message", "Could not delete account (maybe balance changed)")); return; }
+        Versions.forgetOwner(accountId);
+        Versions.bumpAccount(userId, accountId);
+        invalidate(ResponseCache.user(userId), ResponseCache.account(accountId));
         ex.getResponseHeaders().set("Content-Type", "application/json; charset=UTF-8");
         ex.sendResponseHeaders(204, -1);
     }
@@ -157,7 +226,7 @@ public class UsersMeAccountsHandler extends BaseHandler {
     // ========= Transactions =========
 
     private void createTransaction(HttpExchange ex, int userId, int accountId) throws Exception {
-        AccountRecord acct = bankDao.getById(accountId);
+        AccountRecord acct = bankDao.getById(accountId, OWNERSHIP);
         if (acct == null || acct.userId != userId) { writeJson(ex, 404, Map.of("ok", false, "message", "Account not found")); return; }
 
         TransactionRequest req;
@@ -166,14 +235,8 @@ public class UsersMeAccountsHandler extends BaseHandler {
         if (req == null || req.getType() == null || req.getAmount() == null) { writeJson(ex, 400, new ErrorResponse("bad_request", "type and amount are required")); return; }
 
         String type = req.getType().trim().toUpperCase();
-        BigDecimal amount;
-        try {
-            amount = new BigDecimal(req.getAmount().trim()).setScale(2, RoundingMode.UNNECESSARY);
-            if (amount.signum() <= 0) throw new IllegalArgumentException();
-        } catch (Exception ex2) {
-            writeJson(ex, 400, new ErrorResponse("bad_request", "amount must be a positive decimal with 2dp"));
-            return;
-        }
+        BigDecimal amount = parseAmount(req.getAmount());
+        if (amount == null) { writeJson(ex, 400, new ErrorResponse("bad_request", "amount must be a positive decimal with 2dp")); return; }
 
         TxRecord tx;
         switch (type) {
@@ -183,79 +246,346 @@ public class UsersMeAccountsHandler extends BaseHandler {
         }
 
         if (tx == null) { writeJson(ex, 409, new ErrorResponse("conflict", "Transaction failed")); return; }
+        Versions.bumpAccount(userId, accountId);
+        invalidate(ResponseCache.user(userId), ResponseCache.account(accountId));
+        publish(accountId, tx);
 
-        TransactionResponse resp = new TransactionResponse(
-                tx.id,
-                tx.type,
-                tx.amount.setScale(2, RoundingMode.DOWN).toPlainString(),
-                tx.balanceAfter.setScale(2, RoundingMode.DOWN).toPlainString(),
-                tx.createdAt.toInstant().atOffset(ZoneOffset.UTC).format(ISO)
-        );
         ex.getResponseHeaders().set("Location", "/users/me/accounts/" + accountId + "/transactions");
-        writeJson(ex, 201, resp);
+        writeJson(ex, 201, toResponse(tx, FieldSelection.all(TransactionDao.FIELDS)));
     }
 
-    private void listTransactions(HttpExchange ex, int userId, int accountId) throws Exception {
-        AccountRecord acct = bankDao.getById(accountId);
+    /**
+     * Validates every operation, then hands the valid ones to {@link TransactionDao#applyBatch} in one go.
+     * 201 when all operations were applied, 207 when a best-effort batch applied only some, otherwise 400 (invalid
+     * operations) or 409 (funds) with nothing applied. Per-operation outcomes are always listed.
+     */
+    private void createTransactionBatch(HttpExchange ex, int userId, int accountId) throws Exception {
+        AccountRecord acct = bankDao.getById(accountId, OWNERSHIP);
         if (acct == null || acct.userId != userId) { writeJson(ex, 404, Map.of("ok", false, "message", "Account not found")); return; }
 
-        String q = ex.getRequestURI().getQuery();
-        int limit = clamp(parseIntParam(q, "limit", 100), 1, 200);
-        int offset = Math.max(parseIntParam(q, "offset", 0), 0);
+        TransactionBatchRequest req;
+        try { req = readJson(ex, TransactionBatchRequest.class); }
+        catch (JsonSyntaxException jse) { writeJson(ex, 400, new ErrorResponse("bad_request", "Malformed JSON body")); return; }
+        if (req == null || req.getOperations() == null || req.getOperations().isEmpty()) {
+            writeJson(ex, 400, new ErrorResponse("bad_request", "operations must be a non-empty array"));
+            return;
+        }
+        String mode = req.getMode() == null ? TransactionBatchRequest.ATOMIC : req.getMode();
+        if (!mode.equals(TransactionBatchRequest.ATOMIC) && !mode.equals(TransactionBatchRequest.BEST_EFFORT)) {
+            writeJson(ex, 400, new ErrorResponse("bad_request", "mode must be atomic or bestEffort"));
+            return;
+        }
+        List<TransactionRequest> ops = req.getOperations();
+        if (ops.size() > BATCH_MAX) { writeJson(ex, 400, new ErrorResponse("bad_request", "at most " + BATCH_MAX + " operations per batch")); return; }
+        boolean atomic = mode.equals(TransactionBatchRequest.ATOMIC);
+
+        // Validation first; an atomic batch with any invalid operation never reaches the database
+        TransactionBatchResponse.Item[] items = new TransactionBatchResponse.Item[ops.size()];
+        List<TransactionDao.BatchOp> valid = new ArrayList<>(ops.size());
+        int[] validIndex = new int[ops.size()];
+        for (int i = 0; i < ops.size(); i++) {
+            TransactionRequest op = ops.get(i);
+            String type = op == null || op.getType() == null ? null : op.getType().trim().toUpperCase();
+            BigDecimal amount = op == null ? null : parseAmount(op.getAmount());
+            if (!"DEPOSIT".equals(type) && !"WITHDRAW".equals(type)) {
+                items[i] = rejected(i, "bad_request", "type must be DEPOSIT or WITHDRAW");
+            } else if (amount == null) {
+                items[i] = rejected(i, "bad_request", "amount must be a positive decimal with 2dp");
+            } else {
+                validIndex[valid.size()] = i;
+                valid.add(new TransactionDao.BatchOp(type, amount));
+            }
+        }
+        int invalid = ops.size() - valid.size();
+        if (invalid > 0 && (atomic || valid.isEmpty())) { writeBatch(ex, 400, mode, false, null, items); return; }
+
+        TransactionDao.BatchResult r = txDao.applyBatch(accountId, valid, atomic);
+        if (r == null) { writeJson(ex, 409, new ErrorResponse("conflict", "Transaction batch failed")); return; }
+        FieldSelection all = FieldSelection.all(TransactionDao.FIELDS);
+        for (int v = 0; v < valid.size(); v++) {
+            int i = validIndex[v];
+            if (r.applied[v] != null) items[i] = new TransactionBatchResponse.Item(i, TransactionBatchResponse.Item.APPLIED, toResponse(r.applied[v], all), null, null);
+            else if (r.rejected[v] != null) items[i] = rejected(i, r.rejected[v], "balance does not cover this withdrawal");
+            else items[i] = new TransactionBatchResponse.Item(i, TransactionBatchResponse.Item.SKIPPED, null, null, null);
+        }
+        if (r.committed) {
+            Versions.bumpAccount(userId, accountId);
+            invalidate(ResponseCache.user(userId), ResponseCache.account(accountId));
+            for (TxRecord t : r.applied) if (t != null) publish(accountId, t);
+        }
+        int applied = 0;
+        for (TxRecord t : r.applied) if (t != null) applied++;
+        int status = !r.committed ? 409 : applied == items.length ? 201 : 207;
+        writeBatch(ex, status, mode, r.committed, r.committed ? money(r.balance) : null, items);
+    }
 
-        List<TxRecord> rows = txDao.listByAccountId(accountId, limit, offset);
-        List<TransactionResponse> out = new ArrayList<>();
-        for (TxRecord t : rows) {
-            out.add(new TransactionResponse(
-                    t.id,
-                    t.type,
-                    t.amount.setScale(2, RoundingMode.DOWN).toPlainString(),
-                    t.balanceAfter.setScale(2, RoundingMode.DOWN).toPlainString(),
-                    t.createdAt.toInstant().atOffset(ZoneOffset.UTC).format(ISO)
-            ));
+    private static TransactionBatchResponse.Item rejected(int index, String error, String details) {
+        return new TransactionBatchResponse.Item(index, TransactionBatchResponse.Item.REJECTED, null, error, details);
+    }
+
+    private void writeBatch(HttpExchange ex, int status, String mode, boolean committed, String balance,
+                            TransactionBatchResponse.Item[] items) throws Exception {
+        int applied = 0, rejected = 0;
+        for (int i = 0; i < items.length; i++) {
+            if (items[i] == null) items[i] = new TransactionBatchResponse.Item(i, TransactionBatchResponse.Item.SKIPPED, null, null, null);
+            else if (TransactionBatchResponse.Item.APPLIED.equals(items[i].getStatus())) applied++;
+            else if (TransactionBatchResponse.Item.REJECTED.equals(items[i].getStatus())) rejected++;
+        }
+        writeJson(ex, status, new TransactionBatchResponse(mode, committed, applied, rejected, balance, List.of(items)));
+    }
+
+    private void listTransactions(HttpExchange ex, int userId, int accountId) throws Exception {
+        FieldSelection fields = fields(ex, TransactionDao.FIELDS);
+        if (fields == null) return;
+        TxPage page = TxPage.parse(queryParams(ex));
+        if (page == null) {
+            writeJson(ex, 400, new ErrorResponse("bad_request",
+                    "Use at most one of cursor, before_id or after_id; from/to take an ISO instant or date, type DEPOSIT or WITHDRAW"));
+            return;
         }
+        AccountRecord acct = bankDao.getById(accountId, OWNERSHIP);
+        if (acct == null || acct.userId != userId) { writeJson(ex, 404, Map.of("ok", false, "message", "Account not found")); return; }
+        Versions.rememberOwner(accountId, userId);
+        String tag = transactionsTag(accountId, page.key(), fields.variant()); // read before the page query (see Versions)
+
+        // One row past the page tells whether there is a next one; ids are read even when not selected, for the cursor
+        Set<String> columns = fields.columns("id");
+        List<TxRecord> rows = page.keyset()
+                ? txDao.listPage(accountId, page.limit() + 1, page.beforeId(), page.afterId(), page.filter(), columns)
+                : txDao.listByAccountId(accountId, page.limit() + 1, page.offset(), page.filter(), columns);
+        if (rows == null) { writeJson(ex, 500, new ErrorResponse("internal_error", "Could not list transactions")); return; }
+        if (rows.size() > page.limit()) {
+            boolean newer = page.afterId() != null; // newest-first either way; moving up drops the newest row
+            rows = newer ? rows.subList(1, rows.size()) : rows.subList(0, page.limit());
+            int edge = newer ? rows.get(0).id : rows.get(rows.size() - 1).id;
+            ex.getResponseHeaders().set(NEXT_CURSOR, TxPage.cursor(newer, edge));
+        }
+        List<TransactionResponse> out = new ArrayList<>();
+        for (TxRecord t : rows) out.add(toResponse(t, fields));
+        setEtag(ex, tag);
+        cacheTags(ex, ResponseCache.account(accountId));
         writeJson(ex, 200, out);
     }
 
-    // ========= helpers =========
+    private void exportTransactions(HttpExchange ex, int userId, int accountId) throws Exception {
+        TxPage page = TxPage.parse(queryParams(ex)); // only the filters apply
+        if (page == null) {
+            writeJson(ex, 400, new ErrorResponse("bad_request", "from/to take an ISO instant or date, type DEPOSIT or WITHDRAW"));
+            return;
+        }
+        String format = exportFormat(ex);
+        if (format == null) { writeJson(ex, 400, new ErrorResponse("bad_request", "format must be ndjson or csv")); return; }
+        boolean csv = format.equals("csv");
+        AccountRecord acct = bankDao.getById(accountId, OWNERSHIP);
+        if (acct == null || acct.userId != userId) { writeJson(ex, 404, Map.of("ok", false, "message", "Account not found")); return; }
+
+        ex.getResponseHeaders().set("Content-Type", csv ? "text/csv; charset=UTF-8" : "application/x-ndjson; charset=UTF-8");
+        ex.getResponseHeaders().set("Content-Disposition",
+                "attachment; filename=\"account-" + accountId + "-transactions." + (csv ? "csv" : "ndjson") + "\"");
+        ex.sendResponseHeaders(200, 0); // chunked
+        FieldSelection all = FieldSelection.all(TransactionDao.FIELDS);
+        try (OutputStream out = new BufferedOutputStream(ex.getResponseBody(), 64 * 1024)) {
+            if (csv) out.write(CSV_HEADER);
+            long rows = txDao.streamByAccountId(accountId, page.filter(), EXPORT_FETCH_SIZE, t -> {
+                if (csv) writeCsvRow(out, t);
+                else { out.write(Jsons.toJsonBytes(toResponse(t, all))); out.write('\n'); }
+            });
+            if (rows < 0) { // too late for a status: end with a line that cannot be mistaken for a row
+                String details = "Export aborted by a database error";
+                out.write(csv ? ("error,internal_error," + details + "\n").getBytes(StandardCharsets.UTF_8)
+                        : (Jsons.toJson(new ErrorResponse("internal_error", details)) + "\n").getBytes(StandardCharsets.UTF_8));
+            } else {
+                EXPORTED_ROWS.add(rows);
+            }
+        }
+    }
+
+    /**
+     * Server-Sent Events for one account: a {@code transaction} event per committed deposit or withdrawal, with the
+     * transaction id as event id and the history JSON as data ({@code balanceAfter} is the new balance).
+     * - With {@code Last-Event-ID} (or {@code ?lastEventId=}) the transactions after it are replayed from the table,
+     *   oldest first; more than {@code eagle.sse.maxReplay} of them gives a {@code reset} event (reload the history)
+     *   and a fresh start.
+     * - A fresh start sends the latest transaction, i.e. the current balance, before any live event.
+     * The subscriber is registered before the table is read and the overlap is dropped by id, so nothing committed
+     * meanwhile is lost or sent twice. Returns with the exchange still open; {@link #EVENTS} writes and closes it.
+     * Concurrent writes to one account may arrive out of id order; {@code balanceAfter} is always that row's own.
+     */
+    private void streamEvents(HttpExchange ex, int userId, int accountId) throws Exception {
+        AccountRecord acct = bankDao.getById(accountId, OWNERSHIP);
+        if (acct == null || acct.userId != userId) { writeJson(ex, 404, Map.of("ok", false, "message", "Account not found")); return; }
+        Integer lastId = lastEventId(ex);
+
+        EventHub.Subscriber sub = EVENTS.subscribe(accountId, new BufferedOutputStream(ex.getResponseBody(), 8 * 1024), ex::close);
+        if (sub == null) {
+            ex.getResponseHeaders().set("Retry-After", "5");
+            writeJson(ex, 503, new ErrorResponse("unavailable", "Too many open event streams"));
+            return;
+        }
+        OutputStream out = sub.stream();
+        long upTo;
+        try {
+            ex.getResponseHeaders().set("Content-Type", "text/event-stream; charset=UTF-8");
+            ex.getResponseHeaders().set("Cache-Control", "no-cache");
+            ex.getResponseHeaders().set("X-Accel-Buffering", "no"); // proxies must not hold events back
+            ex.sendResponseHeaders(200, 0); // chunked, open-ended
+            out.write(SSE_RETRY);
+            upTo = replay(accountId, lastId, out);
+            if (upTo < 0) out.write(EventHub.frame(0, "error", Jsons.toJson(new ErrorResponse("internal_error", "Could not read transactions"))));
+            out.flush();
+        } catch (IOException e) {
+            sub.close();
+            return;
+        }
+        if (upTo < 0) sub.close(); // the client retries after eagle.sse.retryMs
+        else sub.resume(upTo);
+    }
+
+    /** Writes what the subscriber has not seen; returns the highest id covered, or -1 on a DB error. */
+    private long replay(int accountId, Integer lastId, OutputStream out) throws IOException {
+        Set<String> columns = FieldSelection.all(TransactionDao.FIELDS).columns("id");
+        if (lastId != null) {
+            List<TxRecord> missed = txDao.listPage(accountId, SSE_MAX_REPLAY + 1, null, lastId, TxFilter.NONE, columns);
+            if (missed == null) return -1;
+            if (missed.size() <= SSE_MAX_REPLAY) {
+                for (int i = missed.size() - 1; i >= 0; i--) out.write(transactionEvent(missed.get(i))); // newest-first page
+                return missed.isEmpty() ? lastId : missed.get(0).id;
+            }
+            out.write(EventHub.frame(0, "reset", Jsons.toJson(new ErrorResponse("replay_limit",
+                    "More than " + SSE_MAX_REPLAY + " transactions were missed; reload the history"))));
+        }
+        List<TxRecord> latest = txDao.listPage(accountId, 1, null, null, TxFilter.NONE, columns);
+        if (latest == null) return -1;
+        if (latest.isEmpty()) return 0;
+        out.write(transactionEvent(latest.get(0)));
+        return latest.get(0).id;
+    }
+
+    /** {@code Last-Event-ID} as sent by a reconnecting EventSource, else {@code ?lastEventId=}; null if absent or bad. */
+    private Integer lastEventId(HttpExchange ex) {
+        String v = ex.getRequestHeaders().getFirst("Last-Event-ID");
+        if (v == null || v.isBlank()) v = queryParams(ex).get("lastEventId");
+        if (v == null) return null;
+        try {
+            int id = Integer.parseInt(v.trim());
+            return id >= 0 ? id : null;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
 
-    /** Holds parsed route info for /users/me/accounts and /users/me/accounts/{id}[/transactions] */
-    private static class RouteInfo { Integer accountId; boolean isTransactions; }
-
-    private static RouteInfo parseRoute(URI uri) {
-        RouteInfo r = new RouteInfo();
-        String path = Objects.requireNonNullElse(uri.getPath(), "");
-        if (path.endsWith("/")) path = path.substring(0, path.length() - 1);
-        String[] parts = path.split("/");
-        if (parts.length >= 5) { try { r.accountId = Integer.parseInt(parts[4]); } catch (Exception ignore) {} }
-        r.isTransactions = (parts.length == 6 && "transactions".equalsIgnoreCase(parts[5]));
-        return r;
+    private static void publish(int accountId, TxRecord t) {
+        EVENTS.publish(accountId, t.id, () -> transactionEvent(t)); // serialised only when someone listens
     }
 
-    private static String allowedFor(RouteInfo r) {
-        if (r == null) return "GET, POST, DELETE, OPTIONS";
-        if (r.accountId == null) return "GET, POST, OPTIONS"; // collection
-        if (r.isTransactions) return "GET, POST, OPTIONS";     // nested tx
-        return "GET, DELETE, OPTIONS";                          // single
+    private static byte[] transactionEvent(TxRecord t) {
+        return EventHub.frame(t.id, "transaction", Jsons.toJson(toResponse(t, FieldSelection.all(TransactionDao.FIELDS))));
     }
 
-    private static void methodNotAllowed(HttpExchange ex, RouteInfo r) throws Exception {
-        ex.getResponseHeaders().set("Allow", allowedFor(r));
-        ex.sendResponseHeaders(405, -1);
+    /** {@code ?format=ndjson|csv}, else {@code Accept: text/csv} picks CSV and anything else NDJSON; null if unknown. */
+    private String exportFormat(HttpExchange ex) {
+        String format = queryParams(ex).get("format");
+        if (format != null) {
+            format = format.trim().toLowerCase(Locale.ROOT);
+            return format.equals("csv") || format.equals("ndjson") ? format : null;
+        }
+        String accept = ex.getRequestHeaders().getFirst("Accept");
+        return accept != null && accept.toLowerCase(Locale.ROOT).contains("text/csv") ? "csv" : "ndjson";
+    }
+
+    /** Values are numbers, a type name and an ISO instant, so nothing needs quoting. */
+    private static void writeCsvRow(OutputStream out, TxRecord t) throws IOException {
+        String line = t.id + "," + t.type + "," + money(t.amount) + "," + money(t.balanceAfter) + ","
+                + t.createdAt.toInstant().atOffset(ZoneOffset.UTC).format(ISO) + "\n";
+        out.write(line.getBytes(StandardCharsets.US_ASCII));
     }
 
-    private static int parseIntParam(String query, String key, int def) {
-        if (query == null || query.isEmpty()) return def;
-        for (String p : query.split("&")) {
-            int i = p.indexOf('=');
-            String k = i >= 0 ? p.substring(0, i) : p;
-            if (k.equals(key)) {
-                String v = i >= 0 ? p.substring(i + 1) : "";
-                try { return Integer.parseInt(v); } catch (Exception ignore) { return def; }
+    /**
+     * Which page of a transaction history: a keyset bound ({@code before_id}, {@code after_id} or a {@code cursor}
+     * naming one of them) or, failing that, the old {@code offset}, plus the filters. Null when the parameters
+     * conflict or do not parse.
+     */
+    private record TxPage(int limit, Integer beforeId, Integer afterId, int offset, TxFilter filter) {
+        static TxPage parse(Map<String, String> q) {
+            String cursor = q.get("cursor"), before = q.get("before_id"), after = q.get("after_id");
+            if ((cursor != null ? 1 : 0) + (before != null ? 1 : 0) + (after != null ? 1 : 0) > 1) return null;
+            try {
+                if (cursor != null) {
+                    String c = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.US_ASCII);
+                    if (c.length() < 2 || (c.charAt(0) != 'a' && c.charAt(0) != 'b')) return null;
+                    if (c.charAt(0) == 'a') after = c.substring(1); else before = c.substring(1);
+                }
+                Integer b = before == null ? null : Integer.valueOf(before), a = after == null ? null : Integer.valueOf(after);
+                String type = q.get("type") == null ? null : q.get("type").trim().toUpperCase(Locale.ROOT);
+                if (type != null && !type.equals("DEPOSIT") && !type.equals("WITHDRAW")) return null;
+                TxFilter filter = new TxFilter(instant(q.get("from")), instant(q.get("to")), type);
+                return new TxPage(pageLimit(q), b, a, b == null && a == null ? pageOffset(q) : 0, filter);
+            } catch (IllegalArgumentException | DateTimeParseException e) { // bad base64, number or time
+                return null;
             }
         }
-        return def;
+
+        /** {@code 2025-01-31T12:00:00Z}, or a date meaning its start in UTC. */
+        private static Timestamp instant(String s) {
+            if (s == null || s.isBlank()) return null;
+            s = s.trim();
+            Instant i = s.length() == 10 ? LocalDate.parse(s).atStartOfDay(ZoneOffset.UTC).toInstant() : OffsetDateTime.parse(s).toInstant();
+            return Timestamp.from(i);
+        }
+
+        /** Opaque cursor continuing towards newer ({@code a}) or older ({@code b}) transactions from {@code id}. */
+        static String cursor(boolean newer, int id) {
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(((newer ? "a" : "b") + id).getBytes(StandardCharsets.US_ASCII));
+        }
+
+        boolean keyset() { return beforeId != null || afterId != null || offset == 0; }
+
+        /** Distinguishes pages in ETags. */
+        String key() {
+            return limit + (beforeId != null ? ".b" + beforeId : afterId != null ? ".a" + afterId : "." + offset)
+                    + (filter.from() == null ? "" : ".f" + filter.from().getTime())
+                    + (filter.to() == null ? "" : ".t" + filter.to().getTime())
+                    + (filter.type() == null ? "" : "." + filter.type());
+        }
     }
 
+    // ========= helpers =========
+
+    /** Unselected fields stay null, which Gson leaves out of the JSON. */
+    private static AccountResponse toResponse(AccountRecord r, FieldSelection f) {
+        return new AccountResponse(
+                f.has("id") ? r.id : null,
+                f.has("accountNumber") ? r.accountNumber : null,
+                f.has("balance") ? (r.balance == null ? "0.00" : money(r.balance)) : null
+        );
+    }
+
+    private static TransactionResponse toResponse(TxRecord t, FieldSelection f) {
+        return new TransactionResponse(
+                f.has("id") ? t.id : null,
+                f.has("type") ? t.type : null,
+                f.has("amount") ? money(t.amount) : null,
+                f.has("balanceAfter") ? money(t.balanceAfter) : null,
+                f.has("createdAt") ? t.createdAt.toInstant().atOffset(ZoneOffset.UTC).format(ISO) : null
+        );
+    }
+
+    /** Positive amount with at most 2dp, or null. */
+    private static BigDecimal parseAmount(String s) {
+        if (s == null) return null;
+        try {
+            BigDecimal amount = new BigDecimal(s.trim()).setScale(2, RoundingMode.UNNECESSARY);
+            return amount.signum() > 0 ? amount : null;
+        } catch (ArithmeticException | NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static String money(BigDecimal v) { return v.setScale(2, RoundingMode.DOWN).toPlainString(); }
+
+    private static int pageLimit(Map<String, String> q) { return clamp(queryInt(q, "limit", 100), 1, 200); }
+
+    private static int pageOffset(Map<String, String> q) { return Math.max(queryInt(q, "offset", 0), 0); }
+
     private static int clamp(int v, int min, int max) { return Math.max(min, Math.min(max, v)); }
 }
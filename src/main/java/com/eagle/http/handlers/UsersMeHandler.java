@@ -4,6 +4,11 @@ import com.eagle.dao.UserDao;
 import com.eagle.dao.UserDao.UserRecord;
 import com.eagle.model.response.ErrorResponse;
 import com.eagle.model.response.UserProfileResponse;
+import com.eagle.util.FieldSelection;
+import com.eagle.util.ResponseCache;
+import com.eagle.util.SingleFlight;
+import com.eagle.util.TokenIndex;
+import com.eagle.util.Versions;
 import com.google.gson.JsonSyntaxException;
 import com.sun.net.httpserver.HttpExchange;
 import org.apache.logging.log4j.LogManager;
@@ -11,14 +16,20 @@ import org.apache.logging.log4j.Logger;
 
 import java.time.LocalDate;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * UsersMeHandler refactored to use BaseHandler utilities.
  * Supports GET and PATCH (with X-HTTP-Method-Override: PATCH fallback).
+ * GET carries an ETag from the user's {@link Versions} counter, so repeat polls get 304 without a DAO call while
+ * the token's {@link TokenIndex} entry is fresh, and after an id-only token check once it has expired. Concurrent identical GETs (same token, same version) share one lookup and one body.
+ * {@code ?fields=username,email} narrows both the SELECT and the JSON.
  */
 public class UsersMeHandler extends BaseHandler {
     private static final Logger log = LogManager.getLogger(UsersMeHandler.class);
+    private static final Set<String> ID_ONLY = Set.of("id");
     private final UserDao userDao = new UserDao();
+    private final SingleFlight<String, Shared> flights = new SingleFlight<>("usersMe");
 
     @Override
     protected void doHandle(HttpExchange ex) throws Exception {
@@ -35,23 +46,43 @@ public class UsersMeHandler extends BaseHandler {
         String token = parseBearer(ex.getRequestHeaders().getFirst("Authorization"));
         if (token == null) { writeJson(ex, 401, new ErrorResponse("unauthorized", "Missing or invalid Authorization header")); return; }
 
-        UserRecord u = userDao.getUserByAuthToken(token);
-        if (u == null) { writeJson(ex, 401, new ErrorResponse("unauthorized", "Invalid token")); return; }
+        FieldSelection fields = fields(ex, UserDao.FIELDS); // unread columns stay null and drop out of the JSON
+        if (fields == null) return;
 
-        UserProfileResponse resp = new UserProfileResponse(
-                u.username,
-                u.email,
-                (u.dob == null ? null : u.dob.toString()),
-                u.address,
-                u.pin,
-                u.phone
-        );
-        writeJson(ex, 200, resp);
+        // The version must be read before the row, so the user id comes first: from a fresh index entry or the DB
+        Integer indexed = TokenIndex.userId(token);
+        if (indexed == null) {
+            UserRecord u = userDao.getUserByAuthToken(token, ID_ONLY);
+            if (u == null) { writeJson(ex, 401, new ErrorResponse("unauthorized", "Invalid token")); return; }
+            TokenIndex.put(token, u.id);
+            indexed = u.id;
+        }
+        int knownUser = indexed;
+        long version = Versions.user(knownUser);
+        String tag = Versions.etag("u", knownUser, version, fields.variant());
+        if (notModified(ex, tag)) return;
+
+        Shared r = flights.execute(token + '|' + version + '|' + fields.variant(), () -> {
+            UserRecord u = userDao.getUserByAuthToken(token, fields.columns("id"));
+            if (u == null) return new Shared(401, toJsonBytes(new ErrorResponse("unauthorized", "Invalid token")), null);
+            TokenIndex.put(token, u.id);
+            UserProfileResponse resp = new UserProfileResponse(
+                    u.username,
+                    u.email,
+                    (u.dob == null ? null : u.dob.toString()),
+                    u.address,
+                    u.pin,
+                    u.phone
+            );
+            return new Shared(200, toJsonBytes(resp), knownUser == u.id ? tag : null);
+        });
+        if (r.etag() != null) cacheTags(ex, ResponseCache.user(knownUser)); // only once the token is known to be this user's
+        writeShared(ex, r);
     }
 
     private void handlePatch(HttpExchange ex) throws Exception {
         if (!isJsonRequest(ex)) {
-            writeJson(ex, 415, new ErrorResponse("unsupported_media_type", "Content-Type must be application/json"));
+            writeJson(ex, 415, new ErrorResponse("unsupported_media_type", "Content-Type must be application/json or application/cbor"));
             return;
         }
 
@@ -88,6 +119,8 @@ public class UsersMeHandler extends BaseHandler {
 
         boolean ok = userDao.patchUserByAuthToken(token, email, dob, address, pin, phone);
         if (!ok) { writeJson(ex, 404, new ErrorResponse("not_found", "User not found or nothing changed")); return; }
+        Versions.bumpUser(authed.id);
+        invalidate(ResponseCache.user(authed.id));
 
         UserRecord u = userDao.getUserByAuthToken(token);
         UserProfileResponse resp = new UserProfileResponse(
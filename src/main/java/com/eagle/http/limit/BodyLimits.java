@@ -0,0 +1,156 @@
+package com.eagle.http.limit;
+
+import com.eagle.util.Metrics;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Map;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Per-route request body caps and a whole-body receive timeout.
+ * - A declared {@code Content-Length} above the route's cap is refused before anything is read.
+ * - Bodies without a length (chunked) are counted as the handler streams them; the read that crosses the cap throws
+ *   {@link TooLarge}, so at most cap + one buffer is ever held.
+ * - The whole body must arrive within {@code timeoutMs}. A slow drip fails on its next read with {@link TimedOut};
+ *   a client that stops sending altogether is cut off by a watchdog that runs {@code onStall} (closing the exchange)
+ *   and so unblocks the worker thread.
+ */
+public final class BodyLimits {
+
+    /** The body exceeded the route's cap; answered with 413. */
+    public static final class TooLarge extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        public TooLarge(long maxBytes) { super("Request body exceeds " + maxBytes + " bytes"); }
+    }
+
+    /** The body did not arrive within the receive timeout; answered with 408. */
+    public static final class TimedOut extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        public TimedOut(long timeoutMs) { super("Request body not received within " + timeoutMs + " ms"); }
+    }
+
+    private static final ScheduledThreadPoolExecutor WATCHDOG = new ScheduledThreadPoolExecutor(1, r -> {
+        Thread t = new Thread(r, "body-watchdog");
+        t.setDaemon(true);
+        return t;
+    });
+    static { WATCHDOG.setRemoveOnCancelPolicy(true); }
+
+    private final Map<String, Long> maxBytes;
+    private final long defaultMaxBytes;
+    private final long timeoutMs;
+    private final LongAdder tooLarge = new LongAdder();
+    private final LongAdder unsupported = new LongAdder();
+    private final LongAdder timedOut = new LongAdder();
+
+    /** {@code maxBytes} is keyed by route template, optionally prefixed with a method ({@code "POST /x"}). */
+    public BodyLimits(Map<String, Long> maxBytes, long defaultMaxBytes, long timeoutMs) {
+        this.maxBytes = Map.copyOf(maxBytes);
+        this.defaultMaxBytes = defaultMaxBytes;
+        this.timeoutMs = timeoutMs;
+        Metrics.register("body.rejected.tooLarge", tooLarge::sum);
+        Metrics.register("body.rejected.unsupportedType", unsupported::sum);
+        Metrics.register("body.rejected.timedOut", timedOut::sum);
+    }
+
+    /** Cap for a route, preferring a method-specific entry; the default applies to unlisted and unrouted requests. */
+    public long maxBytesFor(String method, String template) {
+        if (template == null) return defaultMaxBytes;
+        Long m = maxBytes.get(method + " " + template);
+        if (m == null) m = maxBytes.get(template);
+        return m != null ? m : defaultMaxBytes;
+    }
+
+    public long timeoutMs() { return timeoutMs; }
+
+    public void rejectedTooLarge() { tooLarge.increment(); }
+
+    public void rejectedUnsupported() { unsupported.increment(); }
+
+    /** Wraps a request body with {@code maxBytes} and a receive timeout of {@code timeoutMs} (0 = none), starting now. */
+    public InputStream limit(InputStream body, long maxBytes, long timeoutMs, Runnable onStall) {
+        return new LimitedBody(body, maxBytes, timeoutMs, onStall);
+    }
+
+    private final class LimitedBody extends FilterInputStream {
+        private final long max;
+        private final long timeoutMs;
+        private final long deadline;
+        private final ScheduledFuture<?> watchdog;
+        private volatile boolean stalled;
+        private long count;
+        private boolean done;
+
+        LimitedBody(InputStream in, long max, long timeoutMs, Runnable onStall) {
+            super(in);
+            this.max = max;
+            this.timeoutMs = timeoutMs;
+            this.deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+            this.watchdog = timeoutMs > 0 ? WATCHDOG.schedule(() -> {
+                stalled = true;
+                onStall.run();
+            }, timeoutMs, TimeUnit.MILLISECONDS) : null;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] one = new byte[1];
+            int n = read(one, 0, 1);
+            return n < 0 ? -1 : one[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (done) return -1;
+            int n;
+            try {
+                n = in.read(b, off, (int) Math.min(len, max - count + 1)); // one byte past the cap is enough to tell
+            } catch (IOException e) {
+                if (stalled) throw timedOut();
+                throw e;
+            }
+            if (n < 0) { finish(); return -1; }
+            count += n;
+            if (count > max) { finish(); tooLarge.increment(); throw new TooLarge(max); }
+            if (timeoutMs > 0 && System.nanoTime() - deadline > 0) { finish(); throw timedOut(); }
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            byte[] buf = new byte[(int) Math.min(n, 8192)];
+            long skipped = 0;
+            while (skipped < n) {
+                int r = read(buf, 0, (int) Math.min(buf.length, n - skipped));
+                if (r < 0) break;
+                skipped += r;
+            }
+            return skipped;
+        }
+
+        @Override
+        public void close() throws IOException {
+            finish();
+            super.close();
+        }
+
+        private TimedOut timedOut() {
+            timedOut.increment();
+            return new TimedOut(timeoutMs);
+        }
+
+        private void finish() {
+            done = true;
+            if (watchdog != null) watchdog.cancel(false);
+        }
+
+        @Override public boolean markSupported() { return false; }
+    }
+}
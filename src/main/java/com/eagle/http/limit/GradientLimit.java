@@ -0,0 +1,52 @@
+package com.eagle.http.limit;
+
+/**
+ * Gradient (Vegas-style) concurrency limit.
+ * Keeps a slow EWMA of latency as the "no queueing" baseline and compares each sample against it:
+ * when latency rises above baseline * tolerance the limit shrinks proportionally (down to half per step),
+ * otherwise it grows by roughly sqrt(limit), the allowance for queueing. Samples taken while the server
+ * is using less than half the limit are ignored for growth, so idle periods do not inflate the limit.
+ */
+public final class GradientLimit implements Limit {
+    private static final double TOLERANCE = 1.5;
+    private static final double SMOOTHING = 0.2;
+    private static final int LONG_WINDOW = 600;
+
+    private final int min;
+    private final int max;
+    private volatile int current;
+    private double limit;
+    private double longRtt; // nanos, 0 until the first sample
+
+    public GradientLimit(int initial, int min, int max) {
+        this.max = Math.max(1, max);
+        this.min = Math.max(1, Math.min(min, this.max));
+        this.limit = clamp(initial);
+        this.current = (int) limit;
+    }
+
+    @Override
+    public int current() { return current; }
+
+    public synchronized long baselineRttMicros() { return (long) (longRtt / 1000); }
+
+    @Override
+    public synchronized void onSample(long rttNanos, int inFlight) {
+        if (rttNanos <= 0) return;
+        if (longRtt == 0) longRtt = rttNanos;
+        else longRtt += (rttNanos - longRtt) / LONG_WINDOW;
+        // Let the baseline recover quickly after a sustained slowdown has passed
+        if (longRtt / rttNanos > 2) longRtt *= 0.95;
+
+        if (inFlight < limit / 2) return; // app-limited: no evidence the limit is too low or too high
+
+        double gradient = Math.max(0.5, Math.min(1.0, TOLERANCE * longRtt / rttNanos));
+        double next = limit * gradient + Math.sqrt(limit);
+        limit = clamp(limit * (1 - SMOOTHING) + next * SMOOTHING);
+        current = (int) limit;
+    }
+
+    private double clamp(double v) {
+        return Math.max(min, Math.min(max, v));
+    }
+}
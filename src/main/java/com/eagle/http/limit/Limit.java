@@ -0,0 +1,21 @@
+package com.eagle.http.limit;
+
+/**
+ * Allowed number of concurrent requests. Implementations may adapt from latency samples;
+ * {@link #current()} is read on every admission decision so it must be cheap.
+ */
+public interface Limit {
+
+    int current();
+
+    /** Reports one completed request: its latency and how many requests were in flight when it started. */
+    void onSample(long rttNanos, int inFlight);
+
+    static Limit fixed(int limit) {
+        int value = Math.max(1, limit);
+        return new Limit() {
+            @Override public int current() { return value; }
+            @Override public void onSample(long rttNanos, int inFlight) {}
+        };
+    }
+}
@@ -0,0 +1,94 @@
+package com.eagle.http.limit;
+
+import com.eagle.util.Metrics;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Per-client token buckets for a set of routes.
+ * Each bucket is a single {@link AtomicLong} holding the GCRA "theoretical arrival time", which is equivalent to a
+ * token bucket of {@code burst} tokens refilled at {@code burst / period}: a request is allowed when it would not push
+ * that time more than one full period ahead of now. Buckets live in a {@link ConcurrentHashMap} (lock-striped bins,
+ * CAS updates) and are evicted once they have refilled completely, so idle clients cost nothing.
+ */
+public final class RateLimiter {
+
+    /** {@code burst} requests per {@code periodNanos}, e.g. 10 per minute. */
+    public record Policy(int burst, long periodNanos) {
+        long intervalNanos() { return periodNanos / burst; }
+
+        /** Parses {@code <requests>/<seconds>}, e.g. {@code 10/60}. */
+        public static Policy parse(String spec) {
+            int slash = spec.indexOf('/');
+            int burst = Integer.parseInt((slash < 0 ? spec : spec.substring(0, slash)).trim());
+            long seconds = slash < 0 ? 1 : Long.parseLong(spec.substring(slash + 1).trim());
+            if (burst <= 0 || seconds <= 0) throw new IllegalArgumentException("Invalid rate limit: " + spec);
+            return new Policy(burst, TimeUnit.SECONDS.toNanos(seconds));
+        }
+    }
+
+    /** Outcome of {@link #acquire}: {@code resetSeconds} is when the bucket is full again, {@code retryAfterSeconds} when the next request fits. */
+    public record Decision(boolean allowed, int limit, int remaining, long resetSeconds, long retryAfterSeconds) {}
+
+    private static final long SWEEP_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(30);
+
+    private final Map<String, Policy> policies;
+    private final ConcurrentHashMap<String, AtomicLong> buckets = new ConcurrentHashMap<>();
+    private final AtomicLong nextSweep = new AtomicLong(System.nanoTime() + SWEEP_INTERVAL_NANOS);
+    private final LongAdder limited = new LongAdder();
+
+    /** {@code policies} is keyed by route template, optionally prefixed with a method ({@code "POST /x"}). */
+    public RateLimiter(Map<String, Policy> policies) {
+        this.policies = Map.copyOf(policies);
+        Metrics.register("ratelimit.buckets", buckets::size);
+        Metrics.register("ratelimit.limited", limited::sum);
+    }
+
+    /** Policy for a route, preferring a method-specific entry; null when the route is not limited. */
+    public Policy policyFor(String method, String template) {
+        if (template == null || policies.isEmpty()) return null;
+        Policy p = policies.get(method + " " + template);
+        return p != null ? p : policies.get(template);
+    }
+
+    /** Takes one token for {@code client} on {@code template}. */
+    public Decision acquire(Policy policy, String template, String client) {
+        long now = System.nanoTime();
+        sweepIfDue(now);
+        long interval = policy.intervalNanos();
+        long tolerance = policy.periodNanos();
+        AtomicLong tat = buckets.computeIfAbsent(template + '|' + client, k -> new AtomicLong(now));
+        while (true) {
+            long current = tat.get();
+            long next = Math.max(current, now) + interval;
+            long ahead = next - now;
+            if (ahead > tolerance) {
+                limited.increment();
+                long wait = ahead - tolerance;
+                return new Decision(false, policy.burst(), 0, seconds(current - now), seconds(wait));
+            }
+            if (tat.compareAndSet(current, next)) {
+                int remaining = (int) ((tolerance - ahead) / interval);
+                return new Decision(true, policy.burst(), remaining, seconds(ahead), 0);
+            }
+        }
+    }
+
+    /** Drops buckets that have fully refilled; runs on whichever request thread finds it due. */
+    private void sweepIfDue(long now) {
+        long due = nextSweep.get();
+        if (now - due < 0 || !nextSweep.compareAndSet(due, now + SWEEP_INTERVAL_NANOS)) return;
+        buckets.forEach((key, tat) -> {
+            long t = tat.get();
+            if (t - now <= 0) buckets.remove(key, tat);
+        });
+    }
+
+    private static long seconds(long nanos) {
+        return nanos <= 0 ? 0 : (nanos + 999_999_999L) / 1_000_000_000L;
+    }
+}
@@ -0,0 +1,39 @@
+package com.eagle.http.limit;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/** In-flight counter for a single route, capped by its own {@link Limit}. */
+public final class RouteLimiter {
+    private final Limit limit;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final LongAdder rejected = new LongAdder();
+
+    public RouteLimiter(Limit limit) {
+        this.limit = limit;
+    }
+
+    /** Takes a slot if the route is under its limit; returns the in-flight count including it, or -1. */
+    public int tryAcquire() {
+        while (true) {
+            int n = inFlight.get();
+            if (n >= limit.current()) { rejected.increment(); return -1; }
+            if (inFlight.compareAndSet(n, n + 1)) return n + 1;
+        }
+    }
+
+    /** Frees the slot and feeds the latency into the limit. */
+    public void release(long rttNanos, int inFlightAtStart) {
+        inFlight.decrementAndGet();
+        limit.onSample(rttNanos, inFlightAtStart);
+    }
+
+    /** Frees the slot without a sample (request was shed further down). */
+    public void cancel() {
+        inFlight.decrementAndGet();
+    }
+
+    public int inFlight() { return inFlight.get(); }
+    public int limit() { return limit.current(); }
+    public long rejected() { return rejected.sum(); }
+}
@@ -0,0 +1,405 @@
+package com.eagle.http.nio;
+
+import com.eagle.util.Config;
+import com.sun.net.httpserver.Headers;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * One client connection. Parsing, body feeding and socket writes happen on the owning selector thread;
+ * handler threads only touch the synchronized write queue. Exactly one request is in flight at a time:
+ * pipelined requests stay in the read buffer until the previous response has been fully queued.
+ */
+final class NioConnection {
+    private static final Logger log = LogManager.getLogger(NioConnection.class);
+    private static final int INITIAL_BUFFER = 8 * 1024;
+    private static final int MAX_HEADER_BYTES = 16 * 1024;
+    private static final long WRITE_HIGH_WATER = 256 * 1024;
+    private static final long WRITE_TIMEOUT_MS = Config.longVal("eagle.nio.writeTimeoutMs", 30_000);
+    private static final long BODY_TIMEOUT_MS = Config.longVal("eagle.nio.bodyTimeoutMs", 30_000);
+    private static final byte[] CONTINUE = "HTTP/1.1 100 Continue\r\n\r\n".getBytes(StandardCharsets.ISO_8859_1);
+
+    private enum ChunkState { SIZE, DATA, DATA_CRLF, TRAILER }
+
+    private final SelectorWorker worker;
+    private final SocketChannel channel;
+    private final SelectionKey key;
+    private final InetSocketAddress remote;
+    private final InetSocketAddress local;
+
+    // ---- selector-thread state ----
+    private ByteBuffer in = ByteBuffer.allocate(INITIAL_BUFFER); // write mode: [0, position) is unread data
+    private NioHttpExchange current;
+    private RequestBody body;
+    private boolean bodyDone;
+    private boolean chunked;
+    private long bodyRemaining;
+    private ChunkState chunkState;
+    private boolean responseQueued;
+    private volatile boolean keepAlive;
+    private boolean closeAfterDrain;
+    private long lastActive = System.currentTimeMillis();
+
+    // ---- shared write queue (guarded by this) ----
+    private final ArrayDeque<ByteBuffer> out = new ArrayDeque<>();
+    private long queuedBytes;
+    private boolean closed;
+
+    NioConnection(SelectorWorker worker, SocketChannel channel, SelectionKey key) throws IOException {
+        this.worker = worker;
+        this.channel = channel;
+        this.key = key;
+        this.remote = (InetSocketAddress) channel.getRemoteAddress();
+        this.local = (InetSocketAddress) channel.getLocalAddress();
+    }
+
+    InetSocketAddress remoteAddress() { return remote; }
+    InetSocketAddress localAddress() { return local; }
+    boolean keepAlive() { return keepAlive; }
+
+    boolean isIdle(long now, long idleTimeoutMs) {
+        boolean waitingOnClient = current == null || !bodyDone;
+        return waitingOnClient && now - lastActive > idleTimeoutMs;
+    }
+
+    boolean isBetweenRequests() { return current == null && in.position() == 0; }
+
+    // ========= reading =========
+
+    void onReadable() throws IOException {
+        if (!in.hasRemaining()) { updateInterest(); return; }
+        int n = channel.read(in);
+        if (n < 0) {
+            if (current == null ? isDrained() : !bodyDone) { close(); return; }
+            closeAfterDrain = true; // half-closed: still answer the request we already have and flush what is queued
+            updateInterest();
+            return;
+        }
+        lastActive = System.currentTimeMillis();
+        process();
+    }
+
+    private void process() {
+        try {
+            while (!closed) {
+                if (current == null) {
+                    if (!parseHead()) break;
+                } else if (!bodyDone) {
+                    feedBody();
+                    if (!bodyDone) break;
+                } else if (responseQueued) {
+                    if (!advance()) break;
+                } else {
+                    break; // request fully read; the next one waits for this response
+                }
+            }
+        } catch (BadRequest e) {
+            if (current == null) rejectAndClose(e.status, e.getMessage()); else close(); // mid-body: nothing sane to send
+        }
+        updateInterest();
+    }
+
+    /** Parses one request head from the buffer; returns false if more bytes are needed. */
+    private boolean parseHead() throws BadRequest {
+        byte[] a = in.array();
+        int end = in.position();
+        int start = 0;
+        while (start + 1 < end && a[start] == '\r' && a[start + 1] == '\n') start += 2; // tolerate leading CRLFs
+        int headEnd = indexOfHeadEnd(a, start, end);
+        if (headEnd < 0) {
+            if (start > 0) consume(start);
+            if (in.position() >= MAX_HEADER_BYTES) throw new BadRequest(431, "Request header too large");
+            if (!in.hasRemaining()) grow(Math.min(MAX_HEADER_BYTES, in.capacity() * 2));
+            return false;
+        }
+
+        String head = new String(a, start, headEnd - start, StandardCharsets.ISO_8859_1);
+        consume(headEnd + 4);
+        String[] lines = head.split("\r\n");
+        String[] requestLine = lines[0].split(" ");
+        if (requestLine.length != 3 || !requestLine[2].startsWith("HTTP/1.")) throw new BadRequest(400, "Malformed request line");
+        String method = requestLine[0];
+        String protocol = requestLine[2];
+        URI uri;
+        try { uri = new URI(requestLine[1]); } catch (URISyntaxException e) { throw new BadRequest(400, "Malformed request target"); }
+
+        Headers headers = new Headers();
+        for (int i = 1; i < lines.length; i++) {
+            int colon = lines[i].indexOf(':');
+            if (colon <= 0) throw new BadRequest(400, "Malformed header line");
+            headers.add(lines[i].substring(0, colon).trim(), lines[i].substring(colon + 1).trim());
+        }
+
+        // Framing must be unambiguous, or the body could be read as the next pipelined request
+        List<String> te = headers.get("Transfer-Encoding");
+        List<String> cl = headers.get("Content-Length");
+        if (te != null && cl != null) throw new BadRequest(400, "Both Transfer-Encoding and Content-Length");
+        chunked = false;
+        bodyRemaining = 0;
+        if (te != null) {
+            String[] codings = String.join(",", te).split(",");
+            if (!"chunked".equalsIgnoreCase(codings[codings.length - 1].trim())) throw new BadRequest(501, "Unsupported Transfer-Encoding");
+            for (int i = 0; i < codings.length - 1; i++) {
+                if (!codings[i].isBlank()) throw new BadRequest(501, "Unsupported Transfer-Encoding");
+            }
+            chunked = true;
+        } else if (cl != null) {
+            if (cl.size() > 1) throw new BadRequest(400, "Multiple Content-Length");
+            bodyRemaining = parseLength(cl.get(0).trim(), 10, "Invalid Content-Length");
+        }
+        chunkState = ChunkState.SIZE;
+        bodyDone = !chunked && bodyRemaining == 0;
+
+        String connection = headers.getFirst("Connection");
+        keepAlive = "HTTP/1.1".equals(protocol)
+                ? (connection == null || !connection.equalsIgnoreCase("close"))
+                : (connection != null && connection.equalsIgnoreCase("keep-alive"));
+        responseQueued = false;
+
+        body = new RequestBody(() -> worker.execute(this::process), BODY_TIMEOUT_MS);
+        if (bodyDone) body.finish();
+        String path = uri.getRawPath() == null ? "/" : uri.getRawPath();
+        NioHttpContext ctx = worker.server().findContext(path);
+        current = new NioHttpExchange(this, ctx, method, uri, protocol, headers, body);
+
+        if (!bodyDone && "100-continue".equalsIgnoreCase(headers.getFirst("Expect"))) {
+            enqueueQuietly(ByteBuffer.wrap(CONTINUE));
+        }
+        dispatch(current, ctx);
+        return true;
+    }
+
+    private void dispatch(NioHttpExchange ex, NioHttpContext ctx) {
+        if (ctx == null) { respondQuietly(ex, 404); return; }
+        try {
+            worker.server().executor().execute(() -> {
+                try {
+                    ctx.getHandler().handle(ex);
+                } catch (Throwable t) {
+                    log.warn("Handler threw for {} {}: {}", ex.getRequestMethod(), ex.getRequestURI(), t.toString());
+                    abort();
+                }
+            });
+        } catch (RejectedExecutionException rejected) {
+            respondQuietly(ex, 503);
+        }
+    }
+
+    private void feedBody() throws BadRequest {
+        byte[] a = in.array();
+        int pos = 0;
+        int end = in.position();
+        while (pos < end && !bodyDone && !body.isFull()) {
+            if (!chunked) {
+                int n = (int) Math.min(bodyRemaining, end - pos);
+                body.offer(Arrays.copyOfRange(a, pos, pos + n));
+                pos += n;
+                bodyRemaining -= n;
+                if (bodyRemaining == 0) bodyDone = true;
+                continue;
+            }
+            switch (chunkState) {
+                case SIZE, TRAILER -> {
+                    int eol = indexOfCrlf(a, pos, end);
+                    if (eol < 0) {
+                        if (end - pos > 1024) throw new BadRequest(400, "Chunk header too long");
+                        consume(pos);
+                        return;
+                    }
+                    String line = new String(a, pos, eol - pos, StandardCharsets.ISO_8859_1);
+                    pos = eol + 2;
+                    if (chunkState == ChunkState.TRAILER) {
+                        if (line.isEmpty()) bodyDone = true;
+                        continue;
+                    }
+                    int semi = line.indexOf(';');
+                    bodyRemaining = parseLength((semi >= 0 ? line.substring(0, semi) : line).trim(), 16, "Invalid chunk size");
+                    chunkState = bodyRemaining == 0 ? ChunkState.TRAILER : ChunkState.DATA;
+                }
+                case DATA -> {
+                    int n = (int) Math.min(bodyRemaining, end - pos);
+                    body.offer(Arrays.copyOfRange(a, pos, pos + n));
+                    pos += n;
+                    bodyRemaining -= n;
+                    if (bodyRemaining == 0) chunkState = ChunkState.DATA_CRLF;
+                }
+                case DATA_CRLF -> {
+                    if (end - pos < 2) { consume(pos); return; }
+                    if (a[pos] != '\r' || a[pos + 1] != '\n') throw new BadRequest(400, "Missing chunk terminator");
+                    pos += 2;
+                    chunkState = ChunkState.SIZE;
+                }
+            }
+        }
+        consume(pos);
+        if (bodyDone) body.finish();
+    }
+
+    // ========= exchange lifecycle =========
+
+    /** Called from the handler thread once the full response has been queued. */
+    void exchangeFinished(NioHttpExchange ex) {
+        worker.execute(() -> {
+            if (ex != current) return;
+            responseQueued = true;
+            if (!bodyDone) body.close(); // unread body bytes are skipped, not buffered
+            process();
+        });
+    }
+
+    /** Retires the finished exchange; returns true if the connection stays open for the next request. */
+    private boolean advance() {
+        current = null;
+        body = null;
+        if (keepAlive && !closeAfterDrain) return true;
+        closeAfterDrain = true;
+        if (isDrained()) close();
+        return false;
+    }
+
+    /** Closes the connection without a response (handler failure or protocol error). */
+    void abort() {
+        if (worker.inSelectorThread()) close(); else worker.execute(this::close);
+    }
+
+    private void rejectAndClose(int status, String message) {
+        keepAlive = false;
+        closeAfterDrain = true;
+        String resp = "HTTP/1.1 " + status + " " + message + "\r\nContent-Length: 0\r\nConnection: close\r\n\r\n";
+        enqueueQuietly(ByteBuffer.wrap(resp.getBytes(StandardCharsets.ISO_8859_1)));
+    }
+
+    private void respondQuietly(NioHttpExchange ex, int status) {
+        try { ex.sendResponseHeaders(status, -1); } catch (IOException e) { close(); }
+    }
+
+    // ========= writing =========
+
+    /** Queues bytes for the socket. Blocks handler threads while too much output is pending. */
+    void enqueue(ByteBuffer... buffers) throws IOException {
+        synchronized (this) {
+            if (closed) throw new IOException("Connection closed");
+            for (ByteBuffer b : buffers) { out.add(b); queuedBytes += b.remaining(); }
+        }
+        if (worker.inSelectorThread()) { flushQueue(); return; }
+        worker.execute(this::flushQueue);
+        synchronized (this) {
+            long deadline = System.currentTimeMillis() + WRITE_TIMEOUT_MS;
+            while (queuedBytes > WRITE_HIGH_WATER && !closed) {
+                long wait = deadline - System.currentTimeMillis();
+                if (wait <= 0) { abort(); throw new IOException("Write timed out (client not reading)"); }
+                try { wait(wait); } catch (InterruptedException e) { Thread.currentThread().interrupt(); throw new IOException("Interrupted"); }
+            }
+            if (closed) throw new IOException("Connection closed");
+        }
+    }
+
+    private void enqueueQuietly(ByteBuffer b) {
+        try { enqueue(b); } catch (IOException e) { close(); }
+    }
+
+    void onWritable() throws IOException { flushQueue(); }
+
+    private void flushQueue() {
+        try {
+            ByteBuffer[] batch;
+            synchronized (this) {
+                if (closed || out.isEmpty()) { batch = null; }
+                else batch = out.toArray(new ByteBuffer[0]);
+            }
+            if (batch != null) {
+                long written = channel.write(batch);
+                synchronized (this) {
+                    queuedBytes -= written;
+                    while (!out.isEmpty() && !out.peek().hasRemaining()) out.poll();
+                    notifyAll();
+                }
+                if (written > 0) lastActive = System.currentTimeMillis();
+            }
+        } catch (IOException e) {
+            close();
+            return;
+        }
+        if (closeAfterDrain && current == null && isDrained()) { close(); return; }
+        updateInterest();
+    }
+
+    private synchronized boolean isDrained() { return out.isEmpty(); }
+
+    private void updateInterest() {
+        if (!key.isValid()) return;
+        int ops = 0;
+        if (in.hasRemaining() && !closeAfterDrain && (body == null || !body.isFull())) ops |= SelectionKey.OP_READ;
+        if (!isDrained()) ops |= SelectionKey.OP_WRITE;
+        key.interestOps(ops);
+    }
+
+    void close() {
+        synchronized (this) {
+            if (closed) return;
+            closed = true;
+            out.clear();
+            queuedBytes = 0;
+            notifyAll();
+        }
+        if (body != null && !bodyDone) body.fail(new EOFException("Connection closed"));
+        key.cancel();
+        try { channel.close(); } catch (IOException ignore) {}
+        worker.unregister(this);
+    }
+
+    // ========= buffer helpers =========
+
+    private void consume(int n) {
+        if (n <= 0) return;
+        byte[] a = in.array();
+        int remaining = in.position() - n;
+        System.arraycopy(a, n, a, 0, remaining);
+        in.position(remaining);
+    }
+
+    private void grow(int capacity) {
+        if (capacity <= in.capacity()) return;
+        ByteBuffer bigger = ByteBuffer.allocate(capacity);
+        bigger.put(in.array(), 0, in.position());
+        in = bigger;
+    }
+
+    /** Non-negative length in {@code radix}; digits only, since {@link Long#parseLong} also takes a sign. */
+    private static long parseLength(String s, int radix, String error) throws BadRequest {
+        if (s.isEmpty() || Character.digit(s.charAt(0), radix) < 0) throw new BadRequest(400, error);
+        try { return Long.parseLong(s, radix); } catch (NumberFormatException e) { throw new BadRequest(400, error); }
+    }
+
+    private static int indexOfHeadEnd(byte[] a, int from, int end) {
+        for (int i = from; i + 3 < end; i++) {
+            if (a[i] == '\r' && a[i + 1] == '\n' && a[i + 2] == '\r' && a[i + 3] == '\n') return i;
+        }
+        return -1;
+    }
+
+    private static int indexOfCrlf(byte[] a, int from, int end) {
+        for (int i = from; i + 1 < end; i++) if (a[i] == '\r' && a[i + 1] == '\n') return i;
+        return -1;
+    }
+
+    private static final class BadRequest extends Exception {
+        private static final long serialVersionUID = 1L;
+        final int status;
+        BadRequest(int status, String message) { super(message, null, false, false); this.status = status; }
+    }
+}
@@ -0,0 +1,35 @@
+package com.eagle.http.nio;
+
+import com.sun.net.httpserver.Authenticator;
+import com.sun.net.httpserver.Filter;
+import com.sun.net.httpserver.HttpContext;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/** Minimal HttpContext for the NIO transport (no filters or authenticators are applied). */
+final class NioHttpContext extends HttpContext {
+    private final String path;
+    private volatile HttpHandler handler;
+    private final Map<String, Object> attributes = new ConcurrentHashMap<>();
+    private final List<Filter> filters = new CopyOnWriteArrayList<>();
+    private volatile Authenticator authenticator;
+
+    NioHttpContext(String path, HttpHandler handler) {
+        this.path = path;
+        this.handler = handler;
+    }
+
+    @Override public HttpHandler getHandler() { return handler; }
+    @Override public void setHandler(HttpHandler h) { this.handler = h; }
+    @Override public String getPath() { return path; }
+    @Override public HttpServer getServer() { return null; } // not backed by com.sun HttpServer
+    @Override public Map<String, Object> getAttributes() { return attributes; }
+    @Override public List<Filter> getFilters() { return filters; }
+    @Override public Authenticator setAuthenticator(Authenticator auth) { Authenticator old = authenticator; authenticator = auth; return old; }
+    @Override public Authenticator getAuthenticator() { return authenticator; }
+}
@@ -0,0 +1,256 @@
+package com.eagle.http.nio;
+
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpContext;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpPrincipal;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * HttpExchange backed by an {@link NioConnection}. Semantics follow the JDK server:
+ * responseLength -1 means no body, 0 means chunked, &gt;0 means fixed length; the exchange
+ * completes on {@link #close()} (or immediately for -1).
+ */
+final class NioHttpExchange extends HttpExchange {
+    private static final byte[] CRLF = {'\r', '\n'};
+    private static final byte[] LAST_CHUNK = "0\r\n\r\n".getBytes(StandardCharsets.ISO_8859_1);
+    private static volatile String cachedDate = "";
+    private static volatile long cachedDateSecond = -1;
+
+    private final NioConnection conn;
+    private final NioHttpContext context;
+    private final String method;
+    private final URI uri;
+    private final String protocol;
+    private final Headers requestHeaders;
+    private final Headers responseHeaders = new Headers();
+    private final Map<String, Object> attributes = new ConcurrentHashMap<>();
+    private final RequestBody body;
+    private final ResponseBody responseBody = new ResponseBody();
+    private InputStream in;
+    private OutputStream out;
+    private volatile int responseCode = -1;
+    private boolean headersSent;
+    private boolean finished;
+
+    NioHttpExchange(NioConnection conn, NioHttpContext context, String method, URI uri, String protocol,
+                    Headers requestHeaders, RequestBody body) {
+        this.conn = conn;
+        this.context = context;
+        this.method = method;
+        this.uri = uri;
+        this.protocol = protocol;
+        this.requestHeaders = requestHeaders;
+        this.body = body;
+        this.in = body;
+        this.out = responseBody;
+    }
+
+    @Override public Headers getRequestHeaders() { return requestHeaders; }
+    @Override public Headers getResponseHeaders() { return responseHeaders; }
+    @Override public URI getRequestURI() { return uri; }
+    @Override public String getRequestMethod() { return method; }
+    @Override public HttpContext getHttpContext() { return context; }
+    @Override public InputStream getRequestBody() { return in; }
+    @Override public OutputStream getResponseBody() { return out; }
+    @Override public int getResponseCode() { return responseCode; }
+    @Override public InetSocketAddress getRemoteAddress() { return conn.remoteAddress(); }
+    @Override public InetSocketAddress getLocalAddress() { return conn.localAddress(); }
+    @Override public String getProtocol() { return protocol; }
+    @Override public Object getAttribute(String name) { return attributes.get(name); }
+    @Override public HttpPrincipal getPrincipal() { return null; }
+
+    @Override
+    public void setAttribute(String name, Object value) {
+        if (value == null) attributes.remove(name); else attributes.put(name, value);
+    }
+
+    @Override
+    public void setStreams(InputStream i, OutputStream o) {
+        if (i != null) in = i;
+        if (o != null) out = o;
+    }
+
+    @Override
+    public synchronized void sendResponseHeaders(int code, long responseLength) throws IOException {
+        if (headersSent) throw new IOException("headers already sent");
+        headersSent = true;
+        responseCode = code;
+
+        boolean bodyless = code == 204 || code == 304 || (code >= 100 && code < 200);
+        boolean head = "HEAD".equals(method);
+        responseHeaders.remove("Content-length");
+        responseHeaders.remove("Transfer-encoding");
+
+        StringBuilder sb = new StringBuilder(256);
+        sb.append("HTTP/1.1 ").append(code).append(' ').append(reason(code)).append("\r\n");
+        for (Map.Entry<String, List<String>> e : responseHeaders.entrySet()) {
+            for (String v : e.getValue()) sb.append(e.getKey()).append(": ").append(v).append("\r\n");
+        }
+        if (!bodyless) {
+            if (responseLength > 0) sb.append("Content-Length: ").append(responseLength).append("\r\n");
+            else if (responseLength < 0) sb.append("Content-Length: 0\r\n");
+            else if (!head) sb.append("Transfer-Encoding: chunked\r\n");
+        }
+        sb.append("Date: ").append(httpDate()).append("\r\n");
+        if (!conn.keepAlive()) sb.append("Connection: close\r\n");
+        sb.append("\r\n");
+        byte[] headBytes = sb.toString().getBytes(StandardCharsets.ISO_8859_1);
+
+        if (bodyless || responseLength < 0) {
+            conn.enqueue(ByteBuffer.wrap(headBytes));
+            finish();
+        } else {
+            responseBody.start(headBytes, responseLength > 0 ? responseLength : -1, head);
+        }
+    }
+
+    @Override
+    public void close() {
+        try { in.close(); } catch (IOException ignore) {}
+        boolean sent;
+        synchronized (this) { sent = headersSent; }
+        if (!sent) { conn.abort(); return; }
+        try { out.close(); } catch (IOException e) { conn.abort(); }
+    }
+
+    private synchronized void finish() {
+        if (finished) return;
+        finished = true;
+        conn.exchangeFinished(this);
+    }
+
+    private static String httpDate() {
+        long sec = System.currentTimeMillis() / 1000;
+        if (sec != cachedDateSecond) {
+            cachedDate = DateTimeFormatter.RFC_1123_DATE_TIME.format(ZonedDateTime.now(ZoneOffset.UTC));
+            cachedDateSecond = sec;
+        }
+        return cachedDate;
+    }
+
+    private static String reason(int code) {
+        return switch (code) {
+            case 100 -> "Continue";
+            case 200 -> "OK";
+            case 201 -> "Created";
+            case 202 -> "Accepted";
+            case 204 -> "No Content";
+            case 206 -> "Partial Content";
+            case 304 -> "Not Modified";
+            case 400 -> "Bad Request";
+            case 401 -> "Unauthorized";
+            case 403 -> "Forbidden";
+            case 404 -> "Not Found";
+            case 405 -> "Method Not Allowed";
+            case 408 -> "Request Timeout";
+            case 409 -> "Conflict";
+            case 411 -> "Length Required";
+            case 413 -> "Payload Too Large";
+            case 415 -> "Unsupported Media Type";
+            case 429 -> "Too Many Requests";
+            case 431 -> "Request Header Fields Too Large";
+            case 500 -> "Internal Server Error";
+            case 503 -> "Service Unavailable";
+            case 504 -> "Gateway Timeout";
+            default -> "Status";
+        };
+    }
+
+    /** Buffers handler output and hands framed slices to the connection's write queue. */
+    private final class ResponseBody extends OutputStream {
+        private final byte[] buf = new byte[8192];
+        private int count;
+        private byte[] pendingHead;
+        private long fixedLength = -1; // -1 = chunked
+        private long written;
+        private boolean sink;          // HEAD: swallow body bytes
+        private boolean started;
+        private boolean closed;
+
+        synchronized void start(byte[] head, long fixedLength, boolean sink) {
+            this.pendingHead = head;
+            this.fixedLength = fixedLength;
+            this.sink = sink;
+            this.started = true;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public synchronized void write(byte[] b, int off, int len) throws IOException {
+            if (!started) throw new IOException("sendResponseHeaders not called");
+            if (closed) throw new IOException("stream closed");
+            if (sink || len == 0) return;
+            written += len;
+            if (fixedLength >= 0 && written > fixedLength) throw new IOException("too many bytes to write to stream");
+            if (len > buf.length - count) flushBuffer(false);
+            if (len >= buf.length) {
+                send(Arrays.copyOfRange(b, off, off + len), false);
+            } else {
+                System.arraycopy(b, off, buf, count, len);
+                count += len;
+            }
+        }
+
+        @Override
+        public synchronized void flush() throws IOException {
+            if (started && !closed && count > 0) flushBuffer(false);
+        }
+
+        @Override
+        public void close() throws IOException {
+            synchronized (this) {
+                if (closed || !started) return;
+                closed = true;
+                if (!sink && fixedLength >= 0 && written < fixedLength) {
+                    throw new IOException("insufficient bytes written to stream");
+                }
+                flushBuffer(true);
+            }
+            finish();
+        }
+
+        private void flushBuffer(boolean last) throws IOException {
+            byte[] data = count == 0 ? null : Arrays.copyOf(buf, count);
+            count = 0;
+            if (data == null && !last && pendingHead == null) return;
+            send(data, last);
+        }
+
+        private void send(byte[] data, boolean last) throws IOException {
+            ByteBuffer[] frames = new ByteBuffer[5];
+            int n = 0;
+            if (pendingHead != null) { frames[n++] = ByteBuffer.wrap(pendingHead); pendingHead = null; }
+            boolean chunked = fixedLength < 0 && !sink;
+            if (data != null && data.length > 0) {
+                if (chunked) {
+                    frames[n++] = ByteBuffer.wrap((Integer.toHexString(data.length) + "\r\n").getBytes(StandardCharsets.ISO_8859_1));
+                    frames[n++] = ByteBuffer.wrap(data);
+                    frames[n++] = ByteBuffer.wrap(CRLF);
+                } else {
+                    frames[n++] = ByteBuffer.wrap(data);
+                }
+            }
+            if (last && chunked) frames[n++] = ByteBuffer.wrap(LAST_CHUNK);
+            if (n > 0) conn.enqueue(Arrays.copyOf(frames, n));
+        }
+    }
+}
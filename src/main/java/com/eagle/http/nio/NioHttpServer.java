@@ -0,0 +1,98 @@
+package com.eagle.http.nio;
+
+import com.sun.net.httpserver.HttpHandler;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+
+/**
+ * HTTP/1.1 server on java.nio selectors, usable in place of {@code com.sun.net.httpserver.HttpServer}.
+ * - One acceptor thread hands connections round-robin to N selector workers (default: one per core).
+ * - Selector threads only parse and write; handlers run on the configured executor.
+ * - Connections are persistent; pipelined requests are answered strictly in order.
+ * Handlers receive a regular {@link com.sun.net.httpserver.HttpExchange}, so {@code BaseHandler} subclasses run unchanged.
+ */
+public class NioHttpServer {
+    private static final Logger log = LogManager.getLogger(NioHttpServer.class);
+
+    private final InetSocketAddress address;
+    private final SelectorWorker[] workers;
+    private final Map<String, NioHttpContext> contexts = new ConcurrentHashMap<>();
+    private volatile Executor executor = Runnable::run;
+    private ServerSocketChannel serverChannel;
+    private Thread acceptor;
+    private volatile boolean running;
+
+    private NioHttpServer(InetSocketAddress address, int selectors) throws IOException {
+        this.address = address;
+        this.workers = new SelectorWorker[Math.max(1, selectors)];
+        for (int i = 0; i < workers.length; i++) workers[i] = new SelectorWorker(this, i);
+    }
+
+    public static NioHttpServer create(InetSocketAddress address, int selectors) throws IOException {
+        return new NioHttpServer(address, selectors);
+    }
+
+    /** Registers a handler for a path prefix; the longest matching prefix wins (same rule as HttpServer). */
+    public void createContext(String path, HttpHandler handler) {
+        contexts.put(path, new NioHttpContext(path, handler));
+    }
+
+    public void setExecutor(Executor executor) {
+        this.executor = executor == null ? Runnable::run : executor;
+    }
+
+    Executor executor() { return executor; }
+
+    NioHttpContext findContext(String path) {
+        NioHttpContext best = null;
+        for (NioHttpContext c : contexts.values()) {
+            if (path.startsWith(c.getPath()) && (best == null || c.getPath().length() > best.getPath().length())) best = c;
+        }
+        return best;
+    }
+
+    public void start() throws IOException {
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.setOption(StandardSocketOptions.SO_REUSEADDR, true);
+        serverChannel.bind(address, 1024);
+        running = true;
+        for (SelectorWorker w : workers) w.start();
+        acceptor = new Thread(this::acceptLoop, "nio-acceptor");
+        acceptor.start();
+        log.info("NIO HTTP server listening on {} with {} selector(s)", address, workers.length);
+    }
+
+    /** Stops accepting, waits up to {@code delaySeconds} for in-flight exchanges, then closes everything. */
+    public void stop(int delaySeconds) {
+        running = false;
+        try { serverChannel.close(); } catch (IOException ignore) {}
+        long deadline = System.currentTimeMillis() + delaySeconds * 1000L;
+        for (SelectorWorker w : workers) w.shutdown(deadline);
+    }
+
+    private void acceptLoop() {
+        int next = 0;
+        while (running) {
+            try {
+                SocketChannel ch = serverChannel.accept();
+                ch.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                workers[next].register(ch);
+                next = (next + 1) % workers.length;
+            } catch (ClosedChannelException closed) {
+                break;
+            } catch (IOException e) {
+                log.warn("accept failed: {}", e.getMessage());
+            }
+        }
+    }
+}
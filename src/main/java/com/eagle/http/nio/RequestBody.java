@@ -0,0 +1,103 @@
+package com.eagle.http.nio;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.SocketTimeoutException;
+import java.util.ArrayDeque;
+
+/**
+ * Request body handed to the handler thread. The selector thread offers chunks as they arrive;
+ * the handler blocks in {@link #read} until data, end-of-body, or the read timeout.
+ * When the handler drains below the low-water mark the connection is asked to resume reading.
+ */
+final class RequestBody extends InputStream {
+    static final int HIGH_WATER = 64 * 1024;
+
+    private final ArrayDeque<byte[]> chunks = new ArrayDeque<>();
+    private final Runnable onDrained;
+    private final long readTimeoutMs;
+    private int headPos;
+    private int buffered;
+    private boolean finished;
+    private boolean discard;
+    private boolean paused; // the selector saw isFull() and stopped reading; set until the handler drains
+    private IOException failure;
+
+    RequestBody(Runnable onDrained, long readTimeoutMs) {
+        this.onDrained = onDrained;
+        this.readTimeoutMs = readTimeoutMs;
+    }
+
+    // ---- selector side ----
+
+    synchronized void offer(byte[] data) {
+        if (discard) return;
+        chunks.add(data);
+        buffered += data.length;
+        notifyAll();
+    }
+
+    synchronized void finish() { finished = true; notifyAll(); }
+
+    synchronized void fail(IOException e) { if (!finished) { failure = e; notifyAll(); } }
+
+    /** True if the selector should stop feeding until the handler catches up. */
+    synchronized boolean isFull() {
+        if (!discard && buffered >= HIGH_WATER) paused = true;
+        return paused;
+    }
+
+    // ---- handler side ----
+
+    @Override
+    public int read() throws IOException {
+        byte[] one = new byte[1];
+        int n = read(one, 0, 1);
+        return n < 0 ? -1 : one[0] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) return 0;
+        boolean resume;
+        int n;
+        synchronized (this) {
+            long deadline = System.currentTimeMillis() + readTimeoutMs;
+            while (chunks.isEmpty() && !finished && failure == null) {
+                long wait = deadline - System.currentTimeMillis();
+                if (wait <= 0) throw new SocketTimeoutException("Request body read timed out");
+                try { wait(wait); } catch (InterruptedException e) { throw new InterruptedIOException(); }
+            }
+            if (chunks.isEmpty()) {
+                if (failure != null) throw failure;
+                return -1;
+            }
+            byte[] head = chunks.peek();
+            n = Math.min(len, head.length - headPos);
+            System.arraycopy(head, headPos, b, off, n);
+            headPos += n;
+            buffered -= n;
+            if (headPos == head.length) { chunks.poll(); headPos = 0; }
+            resume = paused && buffered < HIGH_WATER / 2;
+            if (resume) paused = false;
+        }
+        if (resume) onDrained.run();
+        return n;
+    }
+
+    @Override
+    public synchronized int available() { return buffered; }
+
+    /** Drops anything not yet read; later chunks are discarded so the connection can move to the next request. */
+    @Override
+    public void close() {
+        synchronized (this) {
+            discard = true;
+            paused = false;
+            chunks.clear();
+            buffered = 0;
+        }
+        onDrained.run();
+    }
+}
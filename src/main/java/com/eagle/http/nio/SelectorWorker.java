@@ -0,0 +1,114 @@
+package com.eagle.http.nio;
+
+import com.eagle.util.Config;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/** One selector thread; owns the read/parse/write state of its connections. */
+final class SelectorWorker {
+    private static final Logger log = LogManager.getLogger(SelectorWorker.class);
+    static final long IDLE_TIMEOUT_MS = Config.longVal("eagle.nio.idleTimeoutMs", 30_000);
+
+    private final NioHttpServer server;
+    private final Selector selector;
+    private final Thread thread;
+    private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+    private final Set<NioConnection> connections = new HashSet<>(); // selector thread only
+    private volatile boolean running = true;
+    private volatile long drainDeadline = Long.MAX_VALUE;
+    private long lastSweep = System.currentTimeMillis();
+
+    SelectorWorker(NioHttpServer server, int index) throws IOException {
+        this.server = server;
+        this.selector = Selector.open();
+        this.thread = new Thread(this::loop, "nio-selector-" + index);
+    }
+
+    void start() { thread.start(); }
+
+    NioHttpServer server() { return server; }
+
+    boolean inSelectorThread() { return Thread.currentThread() == thread; }
+
+    /** Runs {@code task} on the selector thread, before it next waits for I/O. */
+    void execute(Runnable task) {
+        tasks.add(task);
+        if (!inSelectorThread()) selector.wakeup();
+    }
+
+    void register(SocketChannel ch) {
+        execute(() -> {
+            try {
+                ch.configureBlocking(false);
+                SelectionKey key = ch.register(selector, SelectionKey.OP_READ);
+                NioConnection c = new NioConnection(this, ch, key);
+                key.attach(c);
+                connections.add(c);
+            } catch (IOException e) {
+                try { ch.close(); } catch (IOException ignore) {}
+            }
+        });
+    }
+
+    void unregister(NioConnection c) { connections.remove(c); }
+
+    void shutdown(long deadline) {
+        drainDeadline = deadline;
+        running = false;
+        selector.wakeup();
+        try { thread.join(Math.max(1, deadline - System.currentTimeMillis()) + 1000); } catch (InterruptedException e) { Thread.currentThread().interrupt(); }
+    }
+
+    private void loop() {
+        while (running || (!connections.isEmpty() && System.currentTimeMillis() < drainDeadline)) {
+            try {
+                if (tasks.isEmpty()) selector.select(1000);
+                else selector.selectNow(); // queued from this thread, which execute() does not wake
+                for (Runnable r; (r = tasks.poll()) != null; ) {
+                    try { r.run(); } catch (RuntimeException e) { log.warn("selector task failed", e); }
+                }
+                Iterator<SelectionKey> it = selector.selectedKeys().iterator();
+                while (it.hasNext()) {
+                    SelectionKey key = it.next();
+                    it.remove();
+                    NioConnection c = (NioConnection) key.attachment();
+                    try {
+                        if (key.isValid() && key.isReadable()) c.onReadable();
+                        if (key.isValid() && key.isWritable()) c.onWritable();
+                    } catch (IOException | CancelledKeyException e) {
+                        c.close();
+                    } catch (RuntimeException e) { // one broken connection must not take the selector down
+                        log.warn("connection from {} failed", c.remoteAddress(), e);
+                        c.close();
+                    }
+                }
+                sweepIdle();
+            } catch (IOException e) {
+                log.error("selector loop error", e);
+            }
+        }
+        for (NioConnection c : new ArrayList<>(connections)) c.close();
+        try { selector.close(); } catch (IOException ignore) {}
+    }
+
+    private void sweepIdle() {
+        long now = System.currentTimeMillis();
+        if (now - lastSweep < 1000) return;
+        lastSweep = now;
+        for (NioConnection c : new ArrayList<>(connections)) {
+            if (c.isIdle(now, IDLE_TIMEOUT_MS) || (!running && c.isBetweenRequests())) c.close();
+        }
+    }
+}
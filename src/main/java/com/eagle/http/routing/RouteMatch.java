@@ -0,0 +1,55 @@
+package com.eagle.http.routing;
+
+/**
+ * Mutable result of {@link Router#match}. Parameters are stored as offsets into the path (and a
+ * pre-parsed int for {@code :int} parameters), so nothing is allocated unless {@link #param(String)} is called.
+ */
+public final class RouteMatch<T> {
+    private final String[] names = new String[Router.MAX_PARAMS];
+    private final int[] starts = new int[Router.MAX_PARAMS];
+    private final int[] ends = new int[Router.MAX_PARAMS];
+    private final int[] ints = new int[Router.MAX_PARAMS];
+    private String path;
+    Router.Node<T> node;
+    T target;
+
+    void reset(String path) {
+        this.path = path;
+        this.node = null;
+        this.target = null;
+        for (int i = 0; i < names.length; i++) names[i] = null;
+    }
+
+    void setParam(int index, String name, int start, int end, int intValue) {
+        names[index] = name;
+        starts[index] = start;
+        ends[index] = end;
+        ints[index] = intValue;
+    }
+
+    void clearParam(int index) { names[index] = null; }
+
+    /** The handler registered for the matched path and method, or null. */
+    public T target() { return target; }
+
+    /** True when the path matched a template, even if the method did not (405 rather than 404). */
+    public boolean pathFound() { return node != null; }
+
+    /** Template of the matched route, e.g. {@code /users/me/accounts/{id:int}}. */
+    public String template() { return node == null ? null : node.template; }
+
+    /** Value for the Allow header, derived from the methods registered on the matched template. */
+    public String allow() { return node == null ? null : node.allow; }
+
+    /** Value of an {@code :int} parameter; throws if the route has no such parameter. */
+    public int intParam(String name) {
+        for (int i = 0; i < names.length; i++) if (name.equals(names[i])) return ints[i];
+        throw new IllegalArgumentException("No path parameter " + name);
+    }
+
+    /** String value of a parameter (allocates a substring), or null if absent. */
+    public String param(String name) {
+        for (int i = 0; i < names.length; i++) if (name.equals(names[i])) return path.substring(starts[i], ends[i]);
+        return null;
+    }
+}
@@ -0,0 +1,192 @@
+package com.eagle.http.routing;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Route table compiled into a segment trie.
+ * Templates look like {@code /users/me/accounts/{id:int}/transactions}; parameters are {@code {name}} (any
+ * non-empty segment) or {@code {name:int}} (non-negative int). Literal segments win over parameters.
+ * Matching walks the path in place (no split, no boxing) and writes into a caller-supplied {@link RouteMatch}.
+ * A {@code null} method registers the target for every method (used for top-level dispatch); a handler with its own
+ * table then resolves the already matched template with {@link #target} instead of walking the path again.
+ */
+public final class Router<T> {
+    static final int MAX_PARAMS = 4;
+
+    private final Node<T> root = new Node<>();
+    private final List<String> templates = new ArrayList<>();
+    private final Map<String, Node<T>> byTemplate = new HashMap<>();
+
+    public Router<T> add(String method, String template, T target) {
+        Node<T> node = root;
+        int paramIndex = 0;
+        for (String seg : segments(template)) {
+            if (seg.startsWith("{") && seg.endsWith("}")) {
+                String spec = seg.substring(1, seg.length() - 1);
+                int colon = spec.indexOf(':');
+                String name = colon >= 0 ? spec.substring(0, colon) : spec;
+                ParamType type = colon >= 0 ? ParamType.parse(spec.substring(colon + 1)) : ParamType.STR;
+                if (paramIndex >= MAX_PARAMS) throw new IllegalArgumentException("Too many parameters in " + template);
+                node = node.paramChild(name, type, paramIndex++, template);
+            } else {
+                node = node.literalChild(seg);
+            }
+        }
+        if (node.template == null) { node.template = template; templates.add(template); byTemplate.put(template, node); }
+        if (method == null) node.anyMethod = target;
+        else node.byMethod.put(method.toUpperCase(), target);
+        node.allow = allowHeader(node.byMethod);
+        return this;
+    }
+
+    /** Distinct templates in registration order. */
+    public List<String> templates() { return Collections.unmodifiableList(templates); }
+
+    /**
+     * Matches {@code path} for {@code method}. Returns true when a target was found; otherwise
+     * {@link RouteMatch#pathFound()} tells 404 and 405 apart and {@link RouteMatch#allow()} lists the methods.
+     */
+    public boolean match(String method, String path, RouteMatch<T> out) {
+        out.reset(path);
+        int end = path.length();
+        while (end > 1 && path.charAt(end - 1) == '/') end--; // ignore trailing slash
+        Node<T> node = walk(root, path, 0, end, out);
+        if (node == null) return false;
+        out.node = node;
+        T target = node.byMethod.get(method);
+        if (target == null) target = node.anyMethod;
+        out.target = target;
+        return target != null;
+    }
+
+    /** Target registered on {@code template} for {@code method} (or for every method), or null. */
+    public T target(String method, String template) {
+        Node<T> node = byTemplate.get(template);
+        if (node == null) return null;
+        T target = node.byMethod.get(method);
+        return target != null ? target : node.anyMethod;
+    }
+
+    /** Allow header value for {@code template}, or null when the template is not in this table. */
+    public String allow(String template) {
+        Node<T> node = byTemplate.get(template);
+        return node == null ? null : node.allow;
+    }
+
+    // ---- matching ----
+
+    private Node<T> walk(Node<T> node, String path, int pos, int end, RouteMatch<T> out) {
+        if (pos < end && path.charAt(pos) == '/') pos++;
+        if (pos >= end) return node.template != null ? node : null;
+        int segEnd = path.indexOf('/', pos);
+        if (segEnd < 0 || segEnd > end) segEnd = end;
+        int len = segEnd - pos;
+        if (len == 0) return null; // empty segment ("//")
+
+        for (int i = 0; i < node.literalCount; i++) {
+            String lit = node.literals[i];
+            if (lit.length() == len && path.regionMatches(pos, lit, 0, len)) {
+                Node<T> hit = walk(node.literalNodes[i], path, segEnd, end, out);
+                if (hit != null) return hit;
+            }
+        }
+        Node<T> p = node.param;
+        if (p != null && p.paramType.accepts(path, pos, segEnd)) {
+            out.setParam(p.paramIndex, p.paramName, pos, segEnd, p.paramType == ParamType.INT ? parseInt(path, pos, segEnd) : 0);
+            Node<T> hit = walk(p, path, segEnd, end, out);
+            if (hit == null) out.clearParam(p.paramIndex);
+            return hit;
+        }
+        return null;
+    }
+
+    private static int parseInt(String s, int from, int to) {
+        int v = 0;
+        for (int i = from; i < to; i++) v = v * 10 + (s.charAt(i) - '0');
+        return v;
+    }
+
+    // ---- compile helpers ----
+
+    private static List<String> segments(String template) {
+        List<String> out = new ArrayList<>();
+        for (String s : template.split("/")) if (!s.isEmpty()) out.add(s);
+        return out;
+    }
+
+    private static String allowHeader(Map<String, ?> byMethod) {
+        if (byMethod.isEmpty()) return null;
+        List<String> methods = new ArrayList<>(byMethod.keySet());
+        if (!methods.contains("OPTIONS")) methods.add("OPTIONS");
+        return String.join(", ", methods);
+    }
+
+    enum ParamType {
+        STR, INT;
+
+        static ParamType parse(String s) {
+            return switch (s.trim().toLowerCase()) {
+                case "int" -> INT;
+                case "str", "string" -> STR;
+                default -> throw new IllegalArgumentException("Unknown parameter type: " + s);
+            };
+        }
+
+        boolean accepts(String path, int from, int to) {
+            if (this == STR) return to > from;
+            int len = to - from;
+            if (len == 0 || len > 10) return false;
+            for (int i = from; i < to; i++) { char c = path.charAt(i); if (c < '0' || c > '9') return false; }
+            if (len < 10) return true;
+            String max = "2147483647";
+            for (int i = 0; i < 10; i++) {
+                char c = path.charAt(from + i), m = max.charAt(i);
+                if (c != m) return c < m;
+            }
+            return true;
+        }
+    }
+
+    static final class Node<T> {
+        @SuppressWarnings("unchecked")
+        private Node<T>[] literalNodes = (Node<T>[]) new Node<?>[0];
+        private String[] literals = new String[0];
+        private int literalCount;
+        private Node<T> param;
+        String paramName;
+        ParamType paramType;
+        int paramIndex;
+        String template;
+        String allow;
+        T anyMethod;
+        final Map<String, T> byMethod = new LinkedHashMap<>();
+
+        Node<T> literalChild(String seg) {
+            for (int i = 0; i < literalCount; i++) if (literals[i].equals(seg)) return literalNodes[i];
+            Node<T> n = new Node<>();
+            literals = Arrays.copyOf(literals, literalCount + 1);
+            literalNodes = Arrays.copyOf(literalNodes, literalCount + 1);
+            literals[literalCount] = seg;
+            literalNodes[literalCount++] = n;
+            return n;
+        }
+
+        Node<T> paramChild(String name, ParamType type, int index, String template) {
+            if (param == null) {
+                param = new Node<>();
+                param.paramName = name;
+                param.paramType = type;
+                param.paramIndex = index;
+            } else if (!param.paramName.equals(name) || param.paramType != type) {
+                throw new IllegalArgumentException("Conflicting parameter {" + name + "} in " + template);
+            }
+            return param;
+        }
+    }
+}
@@ -0,0 +1,614 @@
+package com.eagle.model.codec;
+
+import com.eagle.model.request.CreateAccountRequest;
+import com.eagle.model.request.LoginRequest;
+import com.eagle.model.request.PatchUserRequest;
+import com.eagle.model.request.SignupRequest;
+import com.eagle.model.request.TransactionBatchRequest;
+import com.eagle.model.request.TransactionRequest;
+import com.eagle.model.response.AccountResponse;
+import com.eagle.model.response.ErrorResponse;
+import com.eagle.model.response.LoginResponse;
+import com.eagle.model.response.PingResponse;
+import com.eagle.model.response.SignupResponse;
+import com.eagle.model.response.TransactionBatchResponse;
+import com.eagle.model.response.TransactionResponse;
+import com.eagle.model.response.UserImportResult;
+import com.eagle.model.response.UserImportSummary;
+import com.eagle.model.response.UserListResponse;
+import com.eagle.model.response.UserProfileResponse;
+import com.eagle.model.response.WebhookBatch;
+import com.google.gson.GsonBuilder;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Hand-written streaming codecs for every {@code model.request} / {@code model.response} type, so no
+ * serialisation goes through Gson's reflection. Members are written in declaration order, matching what the
+ * reflective adapters produced; unknown members are skipped on read. Registered on the shared Gson in
+ * {@link com.eagle.util.Jsons}, they run unchanged against any {@link JsonWriter}: Gson's text writer,
+ * {@link com.eagle.util.Utf8JsonWriter} (bytes) or the CBOR writer.
+ */
+public final class ModelCodecs {
+    private ModelCodecs() {}
+
+    public static GsonBuilder register(GsonBuilder b) {
+        return b.registerTypeAdapter(AccountResponse.class, ACCOUNT_RESPONSE)
+                .registerTypeAdapter(TransactionResponse.class, TRANSACTION_RESPONSE)
+                .registerTypeAdapter(TransactionBatchResponse.class, TRANSACTION_BATCH_RESPONSE)
+                .registerTypeAdapter(UserProfileResponse.class, USER_PROFILE_RESPONSE)
+                .registerTypeAdapter(UserListResponse.class, USER_LIST_RESPONSE)
+                .registerTypeAdapter(UserImportResult.class, USER_IMPORT_RESULT)
+                .registerTypeAdapter(UserImportSummary.class, USER_IMPORT_SUMMARY)
+                .registerTypeAdapter(WebhookBatch.class, WEBHOOK_BATCH)
+                .registerTypeAdapter(ErrorResponse.class, ERROR_RESPONSE)
+                .registerTypeAdapter(LoginResponse.class, LOGIN_RESPONSE)
+                .registerTypeAdapter(PingResponse.class, PING_RESPONSE)
+                .registerTypeAdapter(SignupResponse.class, SIGNUP_RESPONSE)
+                .registerTypeAdapter(SignupRequest.class, SIGNUP_REQUEST)
+                .registerTypeAdapter(LoginRequest.class, LOGIN_REQUEST)
+                .registerTypeAdapter(TransactionRequest.class, TRANSACTION_REQUEST)
+                .registerTypeAdapter(TransactionBatchRequest.class, TRANSACTION_BATCH_REQUEST)
+                .registerTypeAdapter(CreateAccountRequest.class, CREATE_ACCOUNT_REQUEST)
+                .registerTypeAdapter(PatchUserRequest.class, PATCH_USER_REQUEST);
+    }
+
+    // ---- Responses ----
+
+    public static final TypeAdapter<AccountResponse> ACCOUNT_RESPONSE = new Codec<>() {
+        @Override void writeMembers(JsonWriter out, AccountResponse v) throws IOException {
+            out.name("id").value(v.getId());
+            out.name("accountNumber").value(v.getAccountNumber());
+            out.name("balance").value(v.getBalance());
+        }
+
+        @Override AccountResponse readObject(JsonReader in) throws IOException {
+            Integer id = null;
+            String accountNumber = null, balance = null;
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "id" -> id = nextInteger(in);
+                    case "accountNumber" -> accountNumber = nextString(in);
+                    case "balance" -> balance = nextString(in);
+                    default -> in.skipValue();
+                }
+            }
+            return new AccountResponse(id, accountNumber, balance);
+        }
+    };
+
+    public static final TypeAdapter<TransactionResponse> TRANSACTION_RESPONSE = new Codec<>() {
+        @Override void writeMembers(JsonWriter out, TransactionResponse v) throws IOException {
+            out.name("id").value(v.getId());
+            out.name("type").value(v.getType());
+            out.name("amount").value(v.getAmount());
+            out.name("balanceAfter").value(v.getBalanceAfter());
+            out.name("createdAt").value(v.getCreatedAt());
+        }
+
+        @Override TransactionResponse readObject(JsonReader in) throws IOException {
+            Integer id = null;
+            String type = null, amount = null, balanceAfter = null, createdAt = null;
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "id" -> id = nextInteger(in);
+                    case "type" -> type = nextString(in);
+                    case "amount" -> amount = nextString(in);
+                    case "balanceAfter" -> balanceAfter = nextString(in);
+                    case "createdAt" -> createdAt = nextString(in);
+                    default -> in.skipValue();
+                }
+            }
+            return new TransactionResponse(id, type, amount, balanceAfter, createdAt);
+        }
+    };
+
+    private static final TypeAdapter<TransactionBatchResponse.Item> BATCH_ITEM = new Codec<>() {
+        @Override void writeMembers(JsonWriter out, TransactionBatchResponse.Item v) throws IOException {
+            out.name("index").value(v.getIndex());
+            out.name("status").value(v.getStatus());
+            out.name("transaction");
+            TRANSACTION_RESPONSE.write(out, v.getTransaction());
+            out.name("error").value(v.getError());
+            out.name("details").value(v.getDetails());
+        }
+
+        @Override TransactionBatchResponse.Item readObject(JsonReader in) throws IOException {
+            int index = 0;
+            String status = null, error = null, details = null;
+            TransactionResponse transaction = null;
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "index" -> index = in.nextInt();
+                    case "status" -> status = nextString(in);
+                    case "transaction" -> transaction = TRANSACTION_RESPONSE.read(in);
+                    case "error" -> error = nextString(in);
+                    case "details" -> details = nextString(in);
+                    default -> in.skipValue();
+                }
+            }
+            return new TransactionBatchResponse.Item(index, status, transaction, error, details);
+        }
+    };
+
+    public static final TypeAdapter<TransactionBatchResponse> TRANSACTION_BATCH_RESPONSE = new Codec<>() {
+        @Override void writeMembers(JsonWriter out, TransactionBatchResponse v) throws IOException {
+            out.name("mode").value(v.getMode());
+            out.name("committed").value(v.isCommitted());
+            out.name("applied").value(v.getApplied());
+            out.name("rejected").value(v.getRejected());
+            out.name("balance").value(v.getBalance());
+            out.name("results");
+            writeList(out, v.getResults(), BATCH_ITEM);
+        }
+
+        @Override TransactionBatchResponse readObject(JsonReader in) throws IOException {
+            String mode = null, balance = null;
+            boolean committed = false;
+            int applied = 0, rejected = 0;
+            List<TransactionBatchResponse.Item> results = null;
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "mode" -> mode = nextString(in);
+                    case "committed" -> committed = in.nextBoolean();
+                    case "applied" -> applied = in.nextInt();
+                    case "rejected" -> rejected = in.nextInt();
+                    case "balance" -> balance = nextString(in);
+                    case "results" -> results = readList(in, BATCH_ITEM);
+                    default -> in.skipValue();
+                }
+            }
+            return new TransactionBatchResponse(mode, committed, applied, rejected, balance, results);
+        }
+    };
+
+    public static final TypeAdapter<UserProfileResponse> USER_PROFILE_RESPONSE = new Codec<>() {
+        @Override void writeMembers(JsonWriter out, UserProfileResponse v) throws IOException {
+            out.name("username").value(v.getUsername());
+            out.name("email").value(v.getEmail());
+            out.name("dob").value(v.getDob());
+            out.name("address").value(v.getAddress());
+            out.name("pin").value(v.getPin());
+            out.name("phone").value(v.getPhone());
+        }
+
+        @Override UserProfileResponse readObject(JsonReader in) throws IOException {
+            String username = null, email = null, dob = null, address = null, pin = null, phone = null;
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "username" -> username = nextString(in);
+                    case "email" -> email = nextString(in);
+                    case "dob" -> dob = nextString(in);
+                    case "address" -> address = nextString(in);
+                    case "pin" -> pin = nextString(in);
+                    case "phone" -> phone = nextString(in);
+                    default -> in.skipValue();
+                }
+            }
+            return new UserProfileResponse(username, email, dob, address, pin, phone);
+        }
+    };
+
+    public static final TypeAdapter<UserListResponse> USER_LIST_RESPONSE = new Codec<>() {
+        @Override void writeMembers(JsonWriter out, UserListResponse v) throws IOException {
+            out.name("message").value(v.getMessage());
+            out.name("users");
+            if (v.getUsers() == null) { out.nullValue(); return; }
+            out.beginArray();
+            for (String u : v.getUsers()) out.value(u);
+            out.endArray();
+            out.name("next").value(v.getNext());
+        }
+
+        @Override UserListResponse readObject(JsonReader in) throws IOException {
+            String message = null, next = null;
+            List<String> users = null;
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "message" -> message = nextString(in);
+                    case "users" -> {
+                        if (in.peek() == JsonToken.NULL) { in.nextNull(); break; }
+                        users = new ArrayList<>();
+                        in.beginArray();
+                        while (in.hasNext()) users.add(nextString(in));
+                        in.endArray();
+                    }
+                    case "next" -> next = nextString(in);
+                    default -> in.skipValue();
+                }
+            }
+            return new UserListResponse(message, users, next);
+        }
+    };
+
+    public static final TypeAdapter<UserImportResult> USER_IMPORT_RESULT = new Codec<>() {
+        @Override void writeMembers(JsonWriter out, UserImportResult v) throws IOException {
+            out.name("line").value(v.getLine());
+            out.name("username").value(v.getUsername());
+            out.name("status").value(v.getStatus());
+            out.name("error").value(v.getError());
+            out.name("details").value(v.getDetails());
+        }
+
+        @Override UserImportResult readObject(JsonReader in) throws IOException {
+            long line = 0;
+            String username = null, status = null, error = null, details = null;
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "line" -> line = in.nextLong();
+                    case "username" -> username = nextString(in);
+                    case "status" -> status = nextString(in);
+                    case "error" -> error = nextString(in);
+                    case "details" -> details = nextString(in);
+                    default -> in.skipValue();
+                }
+            }
+            return new UserImportResult(line, username, status, error, details);
+        }
+    };
+
+    public static final TypeAdapter<UserImportSummary> USER_IMPORT_SUMMARY = new Codec<>() {
+        @Override void writeMembers(JsonWriter out, UserImportSummary v) throws IOException {
+            out.name("done").value(v.isDone());
+            out.name("created").value(v.getCreated());
+            out.name("rejected").value(v.getRejected());
+            out.name("elapsedMs").value(v.getElapsedMs());
+            out.name("error").value(v.getError());
+            out.name("details").value(v.getDetails());
+        }
+
+        @Override UserImportSummary readObject(JsonReader in) throws IOException {
+            boolean done = false;
+            long created = 0, rejected = 0, elapsedMs = 0;
+            String error = null, details = null;
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "done" -> done = in.nextBoolean();
+                    case "created" -> created = in.nextLong();
+                    case "rejected" -> rejected = in.nextLong();
+                    case "elapsedMs" -> elapsedMs = in.nextLong();
+                    case "error" -> error = nextString(in);
+                    case "details" -> details = nextString(in);
+                    default -> in.skipValue();
+                }
+            }
+            return new UserImportSummary(done, created, rejected, elapsedMs, error, details);
+        }
+    };
+
+    private static final TypeAdapter<WebhookBatch.Event> WEBHOOK_EVENT = new Codec<>() {
+        @Override void writeMembers(JsonWriter out, WebhookBatch.Event v) throws IOException {
+            out.name("id").value(v.getId());
+            out.name("type").value(v.getType());
+            out.name("accountId").value(v.getAccountId());
+            out.name("transaction");
+            TRANSACTION_RESPONSE.write(out, v.getTransaction());
+        }
+
+        @Override WebhookBatch.Event readObject(JsonReader in) throws IOException {
+            String id = null, type = null;
+            int accountId = 0;
+            TransactionResponse transaction = null;
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "id" -> id = nextString(in);
+                    case "type" -> type = nextString(in);
+                    case "accountId" -> accountId = in.nextInt();
+                    case "transaction" -> transaction = TRANSACTION_RESPONSE.read(in);
+                    default -> in.skipValue();
+                }
+            }
+            return new WebhookBatch.Event(id, type, accountId, transaction);
+        }
+    };
+
+    public static final TypeAdapter<WebhookBatch> WEBHOOK_BATCH = new Codec<>() {
+        @Override void writeMembers(JsonWriter out, WebhookBatch v) throws IOException {
+            out.name("attempt").value(v.getAttempt());
+            out.name("events");
+            writeList(out, v.getEvents(), WEBHOOK_EVENT);
+        }
+
+        @Override WebhookBatch readObject(JsonReader in) throws IOException {
+            int attempt = 0;
+            List<WebhookBatch.Event> events = null;
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "attempt" -> attempt = in.nextInt();
+                    case "events" -> events = readList(in, WEBHOOK_EVENT);
+                    default -> in.skipValue();
+                }
+            }
+            return new WebhookBatch(attempt, events);
+        }
+    };
+
+    public static final TypeAdapter<ErrorResponse> ERROR_RESPONSE = new Codec<>() {
+        @Override void writeMembers(JsonWriter out, ErrorResponse v) throws IOException {
+            out.name("error").value(v.getError());
+            out.name("details").value(v.getDetails());
+        }
+
+        @Override ErrorResponse readObject(JsonReader in) throws IOException {
+            String error = null, details = null;
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "error" -> error = nextString(in);
+                    case "details" -> details = nextString(in);
+                    default -> in.skipValue();
+                }
+            }
+            return new ErrorResponse(error, details);
+        }
+    };
+
+    public static final TypeAdapter<LoginResponse> LOGIN_RESPONSE = new Codec<>() {
+        @Override void writeMembers(JsonWriter out, LoginResponse v) throws IOException {
+            out.name("token").value(v.getToken());
+            out.name("expiresInSeconds").value(v.getExpiresInSeconds());
+            out.name("message").value(v.getMessage());
+        }
+
+        @Override LoginResponse readObject(JsonReader in) throws IOException {
+            String token = null, message = null;
+            long expiresInSeconds = 0;
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "token" -> token = nextString(in);
+                    case "expiresInSeconds" -> expiresInSeconds = in.nextLong();
+                    case "message" -> message = nextString(in);
+                    default -> in.skipValue();
+                }
+            }
+            return new LoginResponse(token, expiresInSeconds, message);
+        }
+    };
+
+    public static final TypeAdapter<PingResponse> PING_RESPONSE = new Codec<>() {
+        @Override void writeMembers(JsonWriter out, PingResponse v) throws IOException {
+            out.name("message").value(v.getMessage());
+            out.name("timestamp").value(v.getTimestamp());
+        }
+
+        @Override PingResponse readObject(JsonReader in) throws IOException {
+            String message = null;
+            long timestamp = 0;
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "message" -> message = nextString(in);
+                    case "timestamp" -> timestamp = in.nextLong();
+                    default -> in.skipValue();
+                }
+            }
+            return new PingResponse(message, timestamp);
+        }
+    };
+
+    public static final TypeAdapter<SignupResponse> SIGNUP_RESPONSE = new Codec<>() {
+        @Override void writeMembers(JsonWriter out, SignupResponse v) throws IOException {
+            out.name("success").value(v.isSuccess());
+            out.name("message").value(v.getMessage());
+            out.name("username").value(v.getUsername());
+            out.name("email").value(v.getEmail());
+            out.name("dob").value(v.getDob());
+            out.name("address").value(v.getAddress());
+            out.name("pin").value(v.getPin());
+            out.name("phone").value(v.getPhone());
+            out.name("authToken").value(v.getAuthToken());
+        }
+
+        @Override SignupResponse readObject(JsonReader in) throws IOException {
+            boolean success = false;
+            String message = null, username = null, email = null, dob = null, address = null, pin = null,
+                    phone = null, authToken = null;
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "success" -> success = in.nextBoolean();
+                    case "message" -> message = nextString(in);
+                    case "username" -> username = nextString(in);
+                    case "email" -> email = nextString(in);
+                    case "dob" -> dob = nextString(in);
+                    case "address" -> address = nextString(in);
+                    case "pin" -> pin = nextString(in);
+                    case "phone" -> phone = nextString(in);
+                    case "authToken" -> authToken = nextString(in);
+                    default -> in.skipValue();
+                }
+            }
+            return new SignupResponse(success, message, username, email, dob, address, pin, phone, authToken);
+        }
+    };
+
+    // ---- Requests ----
+
+    public static final TypeAdapter<SignupRequest> SIGNUP_REQUEST = new Codec<>() {
+        @Override void writeMembers(JsonWriter out, SignupRequest v) throws IOException {
+            out.name("username").value(v.getUsername());
+            out.name("password").value(v.getPassword());
+            out.name("email").value(v.getEmail());
+            out.name("dob").value(v.getDob());
+            out.name("address").value(v.getAddress());
+            out.name("pin").value(v.getPin());
+            out.name("phone").value(v.getPhone());
+        }
+
+        @Override SignupRequest readObject(JsonReader in) throws IOException {
+            SignupRequest r = new SignupRequest();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "username" -> r.setUsername(nextString(in));
+                    case "password" -> r.setPassword(nextString(in));
+                    case "email" -> r.setEmail(nextString(in));
+                    case "dob" -> r.setDob(nextString(in));
+                    case "address" -> r.setAddress(nextString(in));
+                    case "pin" -> r.setPin(nextString(in));
+                    case "phone" -> r.setPhone(nextString(in));
+                    default -> in.skipValue();
+                }
+            }
+            return r;
+        }
+    };
+
+    public static final TypeAdapter<LoginRequest> LOGIN_REQUEST = new Codec<>() {
+        @Override void writeMembers(JsonWriter out, LoginRequest v) throws IOException {
+            out.name("username").value(v.getUsername());
+            out.name("password").value(v.getPassword());
+        }
+
+        @Override LoginRequest readObject(JsonReader in) throws IOException {
+            LoginRequest r = new LoginRequest();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "username" -> r.setUsername(nextString(in));
+                    case "password" -> r.setPassword(nextString(in));
+                    default -> in.skipValue();
+                }
+            }
+            return r;
+        }
+    };
+
+    public static final TypeAdapter<TransactionRequest> TRANSACTION_REQUEST = new Codec<>() {
+        @Override void writeMembers(JsonWriter out, TransactionRequest v) throws IOException {
+            out.name("amount").value(v.getAmount());
+            out.name("type").value(v.getType());
+            out.name("description").value(v.getDescription());
+        }
+
+        @Override TransactionRequest readObject(JsonReader in) throws IOException {
+            TransactionRequest r = new TransactionRequest();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "amount" -> r.setAmount(nextString(in));
+                    case "type" -> r.setType(nextString(in));
+                    case "description" -> r.setDescription(nextString(in));
+                    default -> in.skipValue();
+                }
+            }
+            return r;
+        }
+    };
+
+    public static final TypeAdapter<TransactionBatchRequest> TRANSACTION_BATCH_REQUEST = new Codec<>() {
+        @Override void writeMembers(JsonWriter out, TransactionBatchRequest v) throws IOException {
+            out.name("mode").value(v.getMode());
+            out.name("operations");
+            writeList(out, v.getOperations(), TRANSACTION_REQUEST);
+        }
+
+        @Override TransactionBatchRequest readObject(JsonReader in) throws IOException {
+            String mode = null;
+            List<TransactionRequest> operations = null;
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "mode" -> mode = nextString(in);
+                    case "operations" -> operations = readList(in, TRANSACTION_REQUEST);
+                    default -> in.skipValue();
+                }
+            }
+            return new TransactionBatchRequest(mode, operations);
+        }
+    };
+
+    public static final TypeAdapter<CreateAccountRequest> CREATE_ACCOUNT_REQUEST = new Codec<>() {
+        @Override void writeMembers(JsonWriter out, CreateAccountRequest v) throws IOException {
+            out.name("accountNumber").value(v.getAccountNumber());
+        }
+
+        @Override CreateAccountRequest readObject(JsonReader in) throws IOException {
+            String accountNumber = null;
+            while (in.hasNext()) {
+                if (in.nextName().equals("accountNumber")) accountNumber = nextString(in);
+                else in.skipValue();
+            }
+            return new CreateAccountRequest(accountNumber);
+        }
+    };
+
+    public static final TypeAdapter<PatchUserRequest> PATCH_USER_REQUEST = new Codec<>() {
+        @Override void writeMembers(JsonWriter out, PatchUserRequest v) throws IOException {
+            out.name("email").value(v.getEmail());
+            out.name("dob").value(v.getDob());
+            out.name("address").value(v.getAddress());
+            out.name("pin").value(v.getPin());
+            out.name("phone").value(v.getPhone());
+        }
+
+        @Override PatchUserRequest readObject(JsonReader in) throws IOException {
+            String email = null, dob = null, address = null, pin = null, phone = null;
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "email" -> email = nextString(in);
+                    case "dob" -> dob = nextString(in);
+                    case "address" -> address = nextString(in);
+                    case "pin" -> pin = nextString(in);
+                    case "phone" -> phone = nextString(in);
+                    default -> in.skipValue();
+                }
+            }
+            return new PatchUserRequest(email, dob, address, pin, phone);
+        }
+    };
+
+    // ---- helpers ----
+
+    /** Object codec skeleton: null handling and the enclosing braces live here, members in the subclass. */
+    private abstract static class Codec<T> extends TypeAdapter<T> {
+        abstract void writeMembers(JsonWriter out, T value) throws IOException;
+
+        abstract T readObject(JsonReader in) throws IOException;
+
+        @Override
+        public final void write(JsonWriter out, T value) throws IOException {
+            if (value == null) { out.nullValue(); return; }
+            out.beginObject();
+            writeMembers(out, value);
+            out.endObject();
+        }
+
+        @Override
+        public final T read(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) { in.nextNull(); return null; }
+            in.beginObject();
+            T value = readObject(in);
+            in.endObject();
+            return value;
+        }
+    }
+
+    private static <T> void writeList(JsonWriter out, List<T> list, TypeAdapter<T> element) throws IOException {
+        if (list == null) { out.nullValue(); return; }
+        out.beginArray();
+        for (T e : list) element.write(out, e);
+        out.endArray();
+    }
+
+    private static <T> List<T> readList(JsonReader in, TypeAdapter<T> element) throws IOException {
+        if (in.peek() == JsonToken.NULL) { in.nextNull(); return null; }
+        List<T> out = new ArrayList<>();
+        in.beginArray();
+        while (in.hasNext()) out.add(element.read(in));
+        in.endArray();
+        return out;
+    }
+
+    /** Like Gson's String adapter: null stays null, booleans and numbers are read as their text. */
+    private static String nextString(JsonReader in) throws IOException {
+        JsonToken t = in.peek();
+        if (t == JsonToken.NULL) { in.nextNull(); return null; }
+        if (t == JsonToken.BOOLEAN) return Boolean.toString(in.nextBoolean());
+        return in.nextString();
+    }
+
+    private static Integer nextInteger(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) { in.nextNull(); return null; }
+        return in.nextInt();
+    }
+}
@@ -6,6 +6,10 @@ import com.eagle.util.Jsons;
 public class CreateAccountRequest {
     private String accountNumber; // optional
 
+    public CreateAccountRequest() {}
+
+    public CreateAccountRequest(String accountNumber) { this.accountNumber = accountNumber; }
+
     public String getAccountNumber() { return accountNumber; }
     public String toJson() { return Jsons.toJson(this); }
     public static CreateAccountRequest fromJson(String json) { return Jsons.fromJson(json, CreateAccountRequest.class); }
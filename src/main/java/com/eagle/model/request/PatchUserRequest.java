@@ -9,6 +9,16 @@ public class PatchUserRequest {
     private String pin;
     private String phone;
 
+    public PatchUserRequest() {}
+
+    public PatchUserRequest(String email, String dob, String address, String pin, String phone) {
+        this.email = email;
+        this.dob = dob;
+        this.address = address;
+        this.pin = pin;
+        this.phone = phone;
+    }
+
     public String getEmail() { return email; }
     public String getDob() { return dob; }
     public String getAddress() { return address; }
@@ -1,7 +1,6 @@
 package com.eagle.model.request;
 
 import com.eagle.util.Jsons;
-import com.google.gson.Gson;
 
 public class SignupRequest {
     private String username;
@@ -12,10 +11,8 @@ public class SignupRequest {
     private String pin;
     private String phone;
 
-    private static final Gson GSON = new Gson();
-
     public SignupRequest() {
-        // No-arg constructor required for Gson
+        // No-arg constructor used by the codec in ModelCodecs
     }
 
     public SignupRequest(String username, String password, String email,
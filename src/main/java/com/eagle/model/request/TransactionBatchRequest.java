@@ -0,0 +1,25 @@
+package com.eagle.model.request;
+
+import com.eagle.util.Jsons;
+
+import java.util.List;
+
+public class TransactionBatchRequest {
+    public static final String ATOMIC = "atomic";           // all operations commit together or none does
+    public static final String BEST_EFFORT = "bestEffort";  // valid, fundable operations commit; the rest are reported
+
+    private String mode; // ATOMIC (default) or BEST_EFFORT
+    private List<TransactionRequest> operations;
+
+    public TransactionBatchRequest() {}
+
+    public TransactionBatchRequest(String mode, List<TransactionRequest> operations) {
+        this.mode = mode;
+        this.operations = operations;
+    }
+
+    public String getMode() { return mode; }
+    public List<TransactionRequest> getOperations() { return operations; }
+    public String toJson() { return Jsons.toJson(this); }
+    public static TransactionBatchRequest fromJson(String json) { return Jsons.fromJson(json, TransactionBatchRequest.class); }
+}
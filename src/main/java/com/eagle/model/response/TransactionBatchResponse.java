@@ -0,0 +1,59 @@
+package com.eagle.model.response;
+
+import com.eagle.util.Jsons;
+
+import java.util.List;
+
+public class TransactionBatchResponse {
+    private final String mode;
+    private final boolean committed;
+    private final int applied;
+    private final int rejected;
+    private final String balance; // after the batch; null when nothing was committed
+    private final List<Item> results;
+
+    public TransactionBatchResponse(String mode, boolean committed, int applied, int rejected, String balance, List<Item> results) {
+        this.mode = mode;
+        this.committed = committed;
+        this.applied = applied;
+        this.rejected = rejected;
+        this.balance = balance;
+        this.results = results;
+    }
+
+    public String getMode() { return mode; }
+    public boolean isCommitted() { return committed; }
+    public int getApplied() { return applied; }
+    public int getRejected() { return rejected; }
+    public String getBalance() { return balance; }
+    public List<Item> getResults() { return results; }
+    public String toJson() { return Jsons.toJson(this); }
+    public static TransactionBatchResponse fromJson(String json) { return Jsons.fromJson(json, TransactionBatchResponse.class); }
+
+    /** Outcome of one operation, in request order. */
+    public static class Item {
+        public static final String APPLIED = "applied";
+        public static final String REJECTED = "rejected";
+        public static final String SKIPPED = "skipped"; // valid, but an atomic batch failed elsewhere
+
+        private final int index;
+        private final String status;
+        private final TransactionResponse transaction; // APPLIED only
+        private final String error;                    // REJECTED only
+        private final String details;
+
+        public Item(int index, String status, TransactionResponse transaction, String error, String details) {
+            this.index = index;
+            this.status = status;
+            this.transaction = transaction;
+            this.error = error;
+            this.details = details;
+        }
+
+        public int getIndex() { return index; }
+        public String getStatus() { return status; }
+        public TransactionResponse getTransaction() { return transaction; }
+        public String getError() { return error; }
+        public String getDetails() { return details; }
+    }
+}
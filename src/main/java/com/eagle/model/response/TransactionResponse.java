@@ -3,13 +3,13 @@ package com.eagle.model.response;
 import com.eagle.util.Jsons;
 
 public class TransactionResponse {
-    private final int id;
+    private final Integer id; // null when left out by ?fields=
     private final String type;
     private final String amount;
     private final String balanceAfter;
     private final String createdAt;
 
-    public TransactionResponse(int id, String type, String amount, String balanceAfter, String createdAt) {
+    public TransactionResponse(Integer id, String type, String amount, String balanceAfter, String createdAt) {
         this.id = id;
         this.type = type;
         this.amount = amount;
@@ -17,7 +17,7 @@ public class TransactionResponse {
         this.createdAt = createdAt;
     }
 
-    public int getId() { return id; }
+    public Integer getId() { return id; }
     public String getType() { return type; }
     public String getAmount() { return amount; }
     public String getBalanceAfter() { return balanceAfter; }
@@ -0,0 +1,31 @@
+package com.eagle.model.response;
+
+import com.eagle.util.Jsons;
+
+/** One NDJSON line of a bulk import reply: the outcome of the record on input line {@code line}. */
+public class UserImportResult {
+    public static final String CREATED = "created";
+    public static final String REJECTED = "rejected";
+
+    private final long line;
+    private final String username;
+    private final String status;
+    private final String error;   // REJECTED only
+    private final String details;
+
+    public UserImportResult(long line, String username, String status, String error, String details) {
+        this.line = line;
+        this.username = username;
+        this.status = status;
+        this.error = error;
+        this.details = details;
+    }
+
+    public long getLine() { return line; }
+    public String getUsername() { return username; }
+    public String getStatus() { return status; }
+    public String getError() { return error; }
+    public String getDetails() { return details; }
+    public String toJson() { return Jsons.toJson(this); }
+    public static UserImportResult fromJson(String json) { return Jsons.fromJson(json, UserImportResult.class); }
+}
@@ -0,0 +1,31 @@
+package com.eagle.model.response;
+
+import com.eagle.util.Jsons;
+
+/** Last NDJSON line of a bulk import reply; {@code error} is set when the import stopped early. */
+public class UserImportSummary {
+    private final boolean done;
+    private final long created;
+    private final long rejected;
+    private final long elapsedMs;
+    private final String error;
+    private final String details;
+
+    public UserImportSummary(boolean done, long created, long rejected, long elapsedMs, String error, String details) {
+        this.done = done;
+        this.created = created;
+        this.rejected = rejected;
+        this.elapsedMs = elapsedMs;
+        this.error = error;
+        this.details = details;
+    }
+
+    public boolean isDone() { return done; }
+    public long getCreated() { return created; }
+    public long getRejected() { return rejected; }
+    public long getElapsedMs() { return elapsedMs; }
+    public String getError() { return error; }
+    public String getDetails() { return details; }
+    public String toJson() { return Jsons.toJson(this); }
+    public static UserImportSummary fromJson(String json) { return Jsons.fromJson(json, UserImportSummary.class); }
+}
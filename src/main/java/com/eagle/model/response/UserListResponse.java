@@ -7,14 +7,19 @@ import java.util.List;
 public class UserListResponse {
     private final String message;
     private final List<String> users;
+    private final String next; // cursor for the following page; null on the last page and for full listings
 
-    public UserListResponse(String message, List<String> users) {
+    public UserListResponse(String message, List<String> users) { this(message, users, null); }
+
+    public UserListResponse(String message, List<String> users, String next) {
         this.message = message;
         this.users = users;
+        this.next = next;
     }
 
     public String getMessage() { return message; }
     public List<String> getUsers() { return users; }
+    public String getNext() { return next; }
     public String toJson() { return Jsons.toJson(this); }
     public static UserListResponse fromJson(String json) { return Jsons.fromJson(json, UserListResponse.class); }
 }
@@ -0,0 +1,41 @@
+package com.eagle.model.response;
+
+import com.eagle.util.Jsons;
+
+import java.util.List;
+
+/** Body of one webhook delivery: events in outbox order; {@code attempt} is 1 on the first try. */
+public class WebhookBatch {
+    private final int attempt;
+    private final List<Event> events;
+
+    public WebhookBatch(int attempt, List<Event> events) {
+        this.attempt = attempt;
+        this.events = events;
+    }
+
+    public int getAttempt() { return attempt; }
+    public List<Event> getEvents() { return events; }
+    public String toJson() { return Jsons.toJson(this); }
+    public static WebhookBatch fromJson(String json) { return Jsons.fromJson(json, WebhookBatch.class); }
+
+    /** One committed transaction. Delivery is at-least-once, so receivers dedupe on {@code id}. */
+    public static class Event {
+        private final String id;
+        private final String type;
+        private final int accountId;
+        private final TransactionResponse transaction;
+
+        public Event(String id, String type, int accountId, TransactionResponse transaction) {
+            this.id = id;
+            this.type = type;
+            this.accountId = accountId;
+            this.transaction = transaction;
+        }
+
+        public String getId() { return id; }
+        public String getType() { return type; }
+        public int getAccountId() { return accountId; }
+        public TransactionResponse getTransaction() { return transaction; }
+    }
+}
@@ -0,0 +1,261 @@
+package com.eagle.service;
+
+import com.eagle.dao.OutboxDao;
+import com.eagle.dao.OutboxDao.Backlog;
+import com.eagle.dao.OutboxDao.OutboxEvent;
+import com.eagle.dao.TransactionDao.TxRecord;
+import com.eagle.model.response.TransactionResponse;
+import com.eagle.model.response.WebhookBatch;
+import com.eagle.util.Config;
+import com.eagle.util.Jsons;
+import com.eagle.util.Metrics;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.RoundingMode;
+import java.net.HttpURLConnection;
+import java.net.URI;
+import java.net.URL;
+import java.sql.Timestamp;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Delivers the transactional outbox ({@link OutboxDao}) to the endpoints in
+ * {@code -Deagle.webhooks.endpoints=name=url,...}, so webhook latency never adds to a deposit or withdrawal.
+ * - One claim loop per endpoint takes up to {@code eagle.webhooks.batchSize} due events and POSTs them as one
+ *   {@link WebhookBatch}; at most {@code eagle.webhooks.<name>.concurrency} batches are in flight per endpoint.
+ * - A 2xx deletes the batch. Anything else (status, timeout, refused connection) reschedules it with exponential
+ *   backoff and jitter, no sooner than a {@code Retry-After}; after {@code eagle.webhooks.maxAttempts} the events
+ *   are parked in the table and logged. Delivery is at-least-once and only roughly in order.
+ * - Metrics per endpoint under {@code webhooks.<name>.}: delivered/failed/parked counts, in-flight batches, the
+ *   commit-to-delivery lag of the last and slowest batch, and the pending backlog with the age of its oldest event.
+ */
+public final class WebhookDispatcher {
+    private static final Logger log = LogManager.getLogger(WebhookDispatcher.class);
+    private static final DateTimeFormatter ISO = DateTimeFormatter.ISO_INSTANT;
+
+    private final OutboxDao outbox = new OutboxDao();
+    private final List<Lane> lanes = new ArrayList<>();
+    private final int batchSize = Math.max(1, Config.intVal("eagle.webhooks.batchSize", 100));
+    private final long pollMs = Config.longVal("eagle.webhooks.pollMs", 250);
+    private final int timeoutMs = Config.intVal("eagle.webhooks.timeoutMs", 5000);
+    private final int maxAttempts = Config.intVal("eagle.webhooks.maxAttempts", 12);
+    private final long backoffMs = Config.longVal("eagle.webhooks.backoffMs", 1000);
+    private final long maxBackoffMs = Config.longVal("eagle.webhooks.maxBackoffMs", 300_000);
+
+    private WebhookDispatcher(Map<String, URL> endpoints) {
+        endpoints.forEach((name, url) -> lanes.add(new Lane(name, url,
+                Math.max(1, Config.intVal("eagle.webhooks." + name + ".concurrency", Config.intVal("eagle.webhooks.concurrency", 2))))));
+    }
+
+    /** Dispatcher for the configured endpoints, or null when there are none (the outbox then stays off). */
+    public static WebhookDispatcher fromConfig() {
+        Map<String, URL> endpoints = new LinkedHashMap<>();
+        String spec = Config.str("eagle.webhooks.endpoints", null);
+        if (spec == null) return null;
+        for (String pair : spec.split(",")) {
+            int eq = pair.indexOf('='); // first '=': URLs may carry their own
+            if (eq <= 0) throw new IllegalArgumentException("eagle.webhooks.endpoints entries are name=url: " + pair);
+            String name = pair.substring(0, eq).trim();
+            try {
+                endpoints.put(name, URI.create(pair.substring(eq + 1).trim()).toURL());
+            } catch (IOException | IllegalArgumentException e) {
+                throw new IllegalArgumentException("Bad webhook URL for " + name + ": " + e.getMessage());
+            }
+        }
+        return endpoints.isEmpty() ? null : new WebhookDispatcher(endpoints);
+    }
+
+    /** Turns the outbox on for every endpoint and starts their loops. */
+    public void start() {
+        OutboxDao.routeTo(lanes.stream().map(l -> l.name).toList());
+        for (Lane lane : lanes) {
+            lane.registerMetrics();
+            Thread t = new Thread(lane::run, "webhook-" + lane.name);
+            t.setDaemon(true);
+            t.start();
+            log.info("Webhooks for '{}' -> {} (concurrency {})", lane.name, lane.url, lane.permits.availablePermits());
+        }
+    }
+
+    /** Delay before attempt {@code attempts + 1}: doubling from backoffMs, capped, with jitter over its upper half. */
+    private long backoff(int attempts, long retryAfterMs) {
+        long exp = backoffMs << Math.min(attempts - 1, 20);
+        long delay = Math.min(maxBackoffMs, exp);
+        delay = delay / 2 + ThreadLocalRandom.current().nextLong(delay / 2 + 1);
+        return Math.max(delay, Math.min(retryAfterMs, maxBackoffMs));
+    }
+
+    /** One endpoint: its claim loop, its senders and its counters. */
+    private final class Lane {
+        final String name;
+        final URL url;
+        final int concurrency;
+        final Semaphore permits;
+        final ExecutorService senders;
+        final LongAdder delivered = new LongAdder();
+        final LongAdder failedAttempts = new LongAdder();
+        final LongAdder parked = new LongAdder();
+        final AtomicLong lastLagMs = new AtomicLong();
+        final AtomicLong maxLagMs = new AtomicLong();
+        private volatile Backlog backlog;
+        private volatile long backlogAt;
+
+        Lane(String name, URL url, int concurrency) {
+            this.name = name;
+            this.url = url;
+            this.concurrency = concurrency;
+            this.permits = new Semaphore(concurrency);
+            AtomicInteger seq = new AtomicInteger();
+            this.senders = Executors.newFixedThreadPool(concurrency, r -> {
+                Thread t = new Thread(r, "webhook-" + name + "-" + seq.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            });
+        }
+
+        void registerMetrics() {
+            String p = "webhooks." + name + ".";
+            Metrics.register(p + "delivered", delivered::sum);
+            Metrics.register(p + "failedAttempts", failedAttempts::sum);
+            Metrics.register(p + "parked", parked::sum);
+            Metrics.register(p + "inFlight", () -> concurrency - permits.availablePermits());
+            Metrics.register(p + "lagMs", lastLagMs::get);
+            Metrics.register(p + "maxLagMs", maxLagMs::get);
+            Metrics.register(p + "pending", () -> { Backlog b = backlog(); return b == null ? -1 : b.pending(); });
+            Metrics.register(p + "oldestPendingMs", () -> {
+                Backlog b = backlog();
+                return b == null || b.oldest() == null ? 0 : System.currentTimeMillis() - b.oldest().getTime();
+            });
+        }
+
+        /** Backlog from the table, at most once a second however often metrics are read. */
+        private Backlog backlog() {
+            long now = System.currentTimeMillis();
+            if (backlog == null || now - backlogAt > 1000) {
+                backlog = outbox.backlog(name);
+                backlogAt = now;
+            }
+            return backlog;
+        }
+
+        /** Claims while a sender is free; sleeps for pollMs when nothing is due or the database failed. */
+        void run() {
+            long leaseMs = 2L * timeoutMs + 10_000; // outlives any send, so a batch is never claimed twice meanwhile
+            while (true) {
+                try {
+                    permits.acquire();
+                    List<OutboxEvent> batch = outbox.claim(name, batchSize, leaseMs);
+                    if (batch == null || batch.isEmpty()) {
+                        permits.release();
+                        Thread.sleep(pollMs);
+                        continue;
+                    }
+                    senders.execute(() -> {
+                        try { deliver(batch); }
+                        finally { permits.release(); }
+                    });
+                } catch (InterruptedException e) {
+                    return;
+                } catch (RuntimeException e) {
+                    log.error("Webhook loop for '{}' failed: {}", name, e.toString(), e);
+                    permits.release();
+                }
+            }
+        }
+
+        private void deliver(List<OutboxEvent> batch) {
+            int attempt = 1;
+            List<WebhookBatch.Event> events = new ArrayList<>(batch.size());
+            List<Long> ids = new ArrayList<>(batch.size());
+            long oldest = Long.MAX_VALUE;
+            for (OutboxEvent e : batch) {
+                attempt = Math.max(attempt, e.attempts() + 1);
+                events.add(toEvent(e.tx()));
+                ids.add(e.id());
+                oldest = Math.min(oldest, e.tx().createdAt.getTime());
+            }
+            byte[] body = Jsons.toJsonBytes(new WebhookBatch(attempt, events));
+
+            int status = -1;
+            long retryAfterMs = 0;
+            String error;
+            try {
+                HttpURLConnection c = (HttpURLConnection) url.openConnection();
+                c.setConnectTimeout(timeoutMs);
+                c.setReadTimeout(timeoutMs);
+                c.setRequestMethod("POST");
+                c.setDoOutput(true);
+                c.setFixedLengthStreamingMode(body.length);
+                c.setRequestProperty("Content-Type", "application/json; charset=UTF-8");
+                c.setRequestProperty("User-Agent", "eagle-webhooks");
+                try (OutputStream os = c.getOutputStream()) { os.write(body); }
+                status = c.getResponseCode();
+                retryAfterMs = retryAfterMs(c.getHeaderField("Retry-After"));
+                drain(c, status); // lets the connection be reused
+                error = "HTTP " + status;
+            } catch (IOException e) {
+                error = e.toString();
+            }
+
+            if (status >= 200 && status < 300) {
+                if (!outbox.delete(ids)) log.warn("Webhook batch to '{}' delivered but not removed; it will be sent again", name);
+                delivered.add(ids.size());
+                long lag = System.currentTimeMillis() - oldest;
+                lastLagMs.set(lag);
+                maxLagMs.accumulateAndGet(lag, Math::max);
+                return;
+            }
+            failedAttempts.increment();
+            if (attempt >= maxAttempts) {
+                outbox.park(ids, error);
+                parked.add(ids.size());
+                log.error("Webhook batch of {} event(s) to '{}' parked after {} attempts ({}); outbox ids {}..{}",
+                        ids.size(), name, attempt, error, ids.get(0), ids.get(ids.size() - 1));
+            } else {
+                long delay = backoff(attempt, retryAfterMs);
+                outbox.reschedule(ids, new Timestamp(System.currentTimeMillis() + delay), error);
+                log.warn("Webhook batch of {} event(s) to '{}' failed on attempt {} ({}); retrying in {} ms",
+                        ids.size(), name, attempt, error, delay);
+            }
+        }
+    }
+
+    private static WebhookBatch.Event toEvent(TxRecord t) {
+        TransactionResponse tx = new TransactionResponse(t.id, t.type,
+                t.amount.setScale(2, RoundingMode.DOWN).toPlainString(),
+                t.balanceAfter.setScale(2, RoundingMode.DOWN).toPlainString(),
+                t.createdAt.toInstant().atOffset(ZoneOffset.UTC).format(ISO));
+        return new WebhookBatch.Event("tx-" + t.id, OutboxDao.TRANSACTION_CREATED, t.accountId, tx);
+    }
+
+    /** {@code Retry-After} in seconds (the HTTP-date form is ignored); 0 when absent. */
+    private static long retryAfterMs(String header) {
+        if (header == null) return 0;
+        try { return Math.max(0, Long.parseLong(header.trim())) * 1000; }
+        catch (NumberFormatException e) { return 0; }
+    }
+
+    private static void drain(HttpURLConnection c, int status) {
+        try (InputStream in = status >= 400 ? c.getErrorStream() : c.getInputStream()) {
+            if (in != null) in.transferTo(OutputStream.nullOutputStream());
+        } catch (IOException ignore) {
+            // the body is not used; a broken one only costs the pooled connection
+        }
+    }
+}
@@ -0,0 +1,365 @@
+package com.eagle.util;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonNull;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.Strictness;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+
+/**
+ * CBOR (RFC 8949) as a compact alternative to JSON, negotiated with {@code Accept} / {@code Content-Type: application/cbor}.
+ * Encoding streams Gson's type adapters into a {@link JsonWriter} that emits CBOR, so every model type is covered
+ * without a JSON detour; maps and arrays use indefinite lengths so nothing has to be counted up front.
+ * Decoding builds a {@link JsonElement} tree that Gson binds as usual (request bodies are small).
+ */
+public final class Cbor {
+    public static final String CONTENT_TYPE = "application/cbor";
+    /** Marks the ETag of a CBOR representation; {@link #stripVariant} removes it for comparison. */
+    private static final String ETAG_SUFFIX = "+cbor";
+    private static final int MAX_DEPTH = 64;
+
+    private static final int MAJOR_UINT = 0, MAJOR_NINT = 1, MAJOR_BYTES = 2, MAJOR_TEXT = 3,
+            MAJOR_ARRAY = 4, MAJOR_MAP = 5, MAJOR_TAG = 6, MAJOR_SIMPLE = 7;
+    private static final int FALSE = 0xf4, TRUE = 0xf5, NULL = 0xf6, FLOAT64 = 0xfb, BREAK = 0xff;
+    private static final int INDEFINITE = 31;
+
+    private Cbor() {}
+
+    // ---- Negotiation ----
+
+    /** True when {@code Accept} ranks application/cbor strictly above application/json (JSON stays the default). */
+    public static boolean preferred(String accept) {
+        if (accept == null || accept.isBlank()) return false;
+        double cbor = 0, json = 0;
+        for (String part : accept.split(",")) {
+            String[] p = part.split(";");
+            String type = p[0].trim().toLowerCase(Locale.ROOT);
+            double q = 1;
+            for (int i = 1; i < p.length; i++) {
+                String param = p[i].trim();
+                if (param.startsWith("q=")) {
+                    try { q = Double.parseDouble(param.substring(2)); } catch (NumberFormatException e) { q = 0; }
+                }
+            }
+            if (type.equals(CONTENT_TYPE)) cbor = q;
+            else if (type.equals("application/json")) json = q;
+        }
+        return cbor > 0 && cbor > json;
+    }
+
+    public static boolean isCbor(String contentType) {
+        return contentType != null && contentType.split(";", 2)[0].trim().equalsIgnoreCase(CONTENT_TYPE);
+    }
+
+    /** Adds the representation marker to a strong ETag. */
+    public static String markEtag(String etag) {
+        if (etag == null || !etag.endsWith("\"")) return etag;
+        return etag.substring(0, etag.length() - 1) + ETAG_SUFFIX + '"';
+    }
+
+    public static String stripVariant(String etag) {
+        if (etag.endsWith(ETAG_SUFFIX + "\"")) return etag.substring(0, etag.length() - ETAG_SUFFIX.length() - 1) + '"';
+        return etag;
+    }
+
+    // ---- Encoding ----
+
+    /** Serialises {@code value} with {@code gson}'s adapters straight to CBOR. */
+    public static byte[] encode(Gson gson, Object value) {
+        CborWriter w = new CborWriter();
+        if (value == null) w.nullValue();
+        else gson.toJson(value, value.getClass(), w);
+        return w.bytes();
+    }
+
+    /** Transcodes a JSON document to CBOR without building a tree (used for pre-serialised JSON bodies). */
+    public static byte[] fromJson(byte[] json) {
+        CborWriter w = new CborWriter();
+        try (JsonReader r = new JsonReader(new InputStreamReader(new ByteArrayInputStream(json), StandardCharsets.UTF_8))) {
+            r.setStrictness(Strictness.LENIENT);
+            copy(r, w, 0);
+        } catch (IOException e) {
+            throw new JsonSyntaxException(e);
+        }
+        return w.bytes();
+    }
+
+    private static void copy(JsonReader r, CborWriter w, int depth) throws IOException {
+        if (depth > MAX_DEPTH) throw new JsonSyntaxException("Nesting too deep");
+        switch (r.peek()) {
+            case BEGIN_ARRAY -> {
+                r.beginArray(); w.beginArray();
+                while (r.hasNext()) copy(r, w, depth + 1);
+                r.endArray(); w.endArray();
+            }
+            case BEGIN_OBJECT -> {
+                r.beginObject(); w.beginObject();
+                while (r.hasNext()) { w.name(r.nextName()); copy(r, w, depth + 1); }
+                r.endObject(); w.endObject();
+            }
+            case STRING -> w.value(r.nextString());
+            case NUMBER -> w.writeNumber(r.nextString());
+            case BOOLEAN -> w.value(r.nextBoolean());
+            case NULL -> { r.nextNull(); w.nullValue(); }
+            default -> throw new JsonSyntaxException("Unexpected " + r.peek());
+        }
+    }
+
+    /** A {@link JsonWriter} emitting CBOR; unlike JSON, object member names are deferred until their value arrives. */
+    private static final class CborWriter extends JsonWriter {
+        private final ByteArrayOutputStream out = new ByteArrayOutputStream(256);
+        private String pendingName;
+
+        CborWriter() { super(Writer.nullWriter()); }
+
+        byte[] bytes() { return out.toByteArray(); }
+
+        @Override public JsonWriter beginArray() { writeName(); out.write((MAJOR_ARRAY << 5) | INDEFINITE); return this; }
+        @Override public JsonWriter endArray() { out.write(BREAK); return this; }
+        @Override public JsonWriter beginObject() { writeName(); out.write((MAJOR_MAP << 5) | INDEFINITE); return this; }
+        @Override public JsonWriter endObject() { out.write(BREAK); return this; }
+
+        @Override
+        public JsonWriter name(String name) {
+            if (pendingName != null) throw new IllegalStateException("Name already pending: " + pendingName);
+            pendingName = name;
+            return this;
+        }
+
+        @Override
+        public JsonWriter value(String value) {
+            if (value == null) return nullValue();
+            writeName();
+            text(value);
+            return this;
+        }
+
+        @Override
+        public JsonWriter jsonValue(String value) {
+            if (value == null) return nullValue();
+            writeName();
+            byte[] cbor = fromJson(value.getBytes(StandardCharsets.UTF_8));
+            out.write(cbor, 0, cbor.length);
+            return this;
+        }
+
+        @Override
+        public JsonWriter nullValue() {
+            if (pendingName != null && !getSerializeNulls()) { pendingName = null; return this; } // member left out, as in JSON
+            writeName();
+            out.write(NULL);
+            return this;
+        }
+
+        @Override public JsonWriter value(boolean value) { writeName(); out.write(value ? TRUE : FALSE); return this; }
+        @Override public JsonWriter value(Boolean value) { return value == null ? nullValue() : value(value.booleanValue()); }
+        @Override public JsonWriter value(float value) { return value((double) value); }
+
+        @Override
+        public JsonWriter value(double value) {
+            writeName();
+            out.write(FLOAT64);
+            long bits = Double.doubleToLongBits(value);
+            for (int shift = 56; shift >= 0; shift -= 8) out.write((int) (bits >>> shift));
+            return this;
+        }
+
+        @Override
+        public JsonWriter value(long value) {
+            writeName();
+            if (value >= 0) head(MAJOR_UINT, value);
+            else head(MAJOR_NINT, -1 - value);
+            return this;
+        }
+
+        @Override
+        public JsonWriter value(Number value) {
+            if (value == null) return nullValue();
+            if (value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte) {
+                return value(value.longValue());
+            }
+            if (value instanceof Double || value instanceof Float) return value(value.doubleValue());
+            writeNumber(value.toString()); // BigDecimal, BigInteger, LazilyParsedNumber
+            return this;
+        }
+
+        /** Integral literals that fit a long go out as CBOR integers, everything else as float64. */
+        void writeNumber(String literal) {
+            if (literal.indexOf('.') < 0 && literal.indexOf('e') < 0 && literal.indexOf('E') < 0) {
+                try { value(Long.parseLong(literal)); return; } catch (NumberFormatException ignore) {}
+            }
+            value(new BigDecimal(literal).doubleValue());
+        }
+
+        @Override public void flush() {}
+        @Override public void close() {}
+
+        private void writeName() {
+            if (pendingName == null) return;
+            String n = pendingName;
+            pendingName = null;
+            text(n);
+        }
+
+        private void text(String s) {
+            byte[] b = s.getBytes(StandardCharsets.UTF_8);
+            head(MAJOR_TEXT, b.length);
+            out.write(b, 0, b.length);
+        }
+
+        private void head(int major, long n) {
+            int m = major << 5;
+            if (n < 24) out.write(m | (int) n);
+            else if (n <= 0xff) { out.write(m | 24); out.write((int) n); }
+            else if (n <= 0xffff) { out.write(m | 25); out.write((int) (n >>> 8)); out.write((int) n); }
+            else if (n <= 0xffffffffL) { out.write(m | 26); for (int s = 24; s >= 0; s -= 8) out.write((int) (n >>> s)); }
+            else { out.write(m | 27); for (int s = 56; s >= 0; s -= 8) out.write((int) (n >>> s)); }
+        }
+    }
+
+    // ---- Decoding ----
+
+    /** Parses one CBOR data item into a Gson tree; malformed input throws {@link JsonSyntaxException}. */
+    public static JsonElement decode(byte[] cbor) {
+        Decoder d = new Decoder(cbor);
+        JsonElement e = d.item(0);
+        if (d.pos != cbor.length) throw new JsonSyntaxException("Trailing bytes after CBOR item");
+        return e;
+    }
+
+    /** Renders a CBOR document as JSON text (for clients and logging). */
+    public static String toJson(byte[] cbor) {
+        return cbor.length == 0 ? "" : decode(cbor).toString();
+    }
+
+    private static final class Decoder {
+        private final byte[] in;
+        int pos;
+
+        Decoder(byte[] in) { this.in = in; }
+
+        JsonElement item(int depth) {
+            if (depth > MAX_DEPTH) throw new JsonSyntaxException("CBOR nesting too deep");
+            int initial = u8();
+            int major = initial >>> 5, info = initial & 0x1f;
+            switch (major) {
+                case MAJOR_UINT -> {
+                    long n = argument(info);
+                    return n >= 0 ? new JsonPrimitive(n) : new JsonPrimitive(new BigInteger(Long.toUnsignedString(n)));
+                }
+                case MAJOR_NINT -> {
+                    long n = argument(info);
+                    return n >= 0 ? new JsonPrimitive(-1 - n)
+                            : new JsonPrimitive(BigInteger.ONE.negate().subtract(new BigInteger(Long.toUnsignedString(n))));
+                }
+                case MAJOR_TEXT -> { return new JsonPrimitive(text(info)); }
+                case MAJOR_ARRAY -> {
+                    JsonArray a = new JsonArray();
+                    if (info == INDEFINITE) { while (!atBreak()) a.add(item(depth + 1)); pos++; }
+                    else for (long i = 0, n = length(info); i < n; i++) a.add(item(depth + 1));
+                    return a;
+                }
+                case MAJOR_MAP -> {
+                    JsonObject o = new JsonObject();
+                    if (info == INDEFINITE) { while (!atBreak()) o.add(key(), item(depth + 1)); pos++; }
+                    else for (long i = 0, n = length(info); i < n; i++) o.add(key(), item(depth + 1));
+                    return o;
+                }
+                case MAJOR_TAG -> { argument(info); return item(depth + 1); } // semantics of tags are ignored
+                case MAJOR_SIMPLE -> { return simple(info); }
+                default -> throw new JsonSyntaxException("Unsupported CBOR major type " + major + (major == MAJOR_BYTES ? " (byte string)" : ""));
+            }
+        }
+
+        private JsonElement simple(int info) {
+            return switch (info) {
+                case 20 -> new JsonPrimitive(false);
+                case 21 -> new JsonPrimitive(true);
+                case 22, 23 -> JsonNull.INSTANCE;
+                case 25 -> new JsonPrimitive(halfToDouble((int) bytesBE(2)));
+                case 26 -> new JsonPrimitive((double) Float.intBitsToFloat((int) bytesBE(4)));
+                case 27 -> new JsonPrimitive(Double.longBitsToDouble(bytesBE(8)));
+                default -> throw new JsonSyntaxException("Unsupported CBOR simple value " + info);
+            };
+        }
+
+        private String key() {
+            int initial = u8();
+            if (initial >>> 5 != MAJOR_TEXT) throw new JsonSyntaxException("CBOR map keys must be text strings");
+            return text(initial & 0x1f);
+        }
+
+        private String text(int info) {
+            if (info != INDEFINITE) {
+                int n = length(info);
+                String s = new String(in, pos, n, StandardCharsets.UTF_8);
+                pos += n;
+                return s;
+            }
+            StringBuilder sb = new StringBuilder();
+            while (!atBreak()) {
+                int chunk = u8();
+                if (chunk >>> 5 != MAJOR_TEXT || (chunk & 0x1f) == INDEFINITE) throw new JsonSyntaxException("Bad CBOR text chunk");
+                sb.append(text(chunk & 0x1f));
+            }
+            pos++;
+            return sb.toString();
+        }
+
+        private int length(int info) {
+            long n = argument(info);
+            if (n < 0 || n > in.length - pos) throw new JsonSyntaxException("CBOR length exceeds input");
+            return (int) n;
+        }
+
+        private long argument(int info) {
+            if (info < 24) return info;
+            return switch (info) {
+                case 24 -> bytesBE(1);
+                case 25 -> bytesBE(2);
+                case 26 -> bytesBE(4);
+                case 27 -> bytesBE(8);
+                default -> throw new JsonSyntaxException("Bad CBOR additional info " + info);
+            };
+        }
+
+        private long bytesBE(int n) {
+            if (pos + n > in.length) throw new JsonSyntaxException("Truncated CBOR input");
+            long v = 0;
+            for (int i = 0; i < n; i++) v = (v << 8) | (in[pos++] & 0xff);
+            return v;
+        }
+
+        private boolean atBreak() {
+            if (pos >= in.length) throw new JsonSyntaxException("Truncated CBOR input");
+            return (in[pos] & 0xff) == BREAK;
+        }
+
+        private int u8() {
+            if (pos >= in.length) throw new JsonSyntaxException("Truncated CBOR input");
+            return in[pos++] & 0xff;
+        }
+
+        private static double halfToDouble(int half) {
+            int exp = (half >> 10) & 0x1f, mant = half & 0x3ff;
+            double v = exp == 0 ? mant * Math.pow(2, -24) : exp != 31 ? (mant + 1024) * Math.pow(2, exp - 25)
+                    : mant == 0 ? Double.POSITIVE_INFINITY : Double.NaN;
+            return (half & 0x8000) != 0 ? -v : v;
+        }
+    }
+}
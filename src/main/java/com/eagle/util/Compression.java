@@ -0,0 +1,196 @@
+package com.eagle.util;
+
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Response compression negotiated from {@code Accept-Encoding} (gzip or deflate).
+ * Bodies under {@code eagle.compression.minBytes} go out as-is. Deflaters are reused: platform threads keep
+ * one per thread, virtual threads (one per request) borrow from a small shared pool instead.
+ */
+public final class Compression {
+    public enum Encoding { IDENTITY, GZIP, DEFLATE }
+
+    private static final boolean ENABLED = Config.bool("eagle.compression.enabled", true);
+    private static final int MIN_BYTES = Config.intVal("eagle.compression.minBytes", 1024);
+    private static final int LEVEL = Config.intVal("eagle.compression.level", Deflater.DEFAULT_COMPRESSION);
+    private static final int POOL_MAX = 64;
+    /** Separator appended to ETags of encoded responses; {@link #stripCoding} removes it for comparison. */
+    private static final String CODING_SUFFIX = "+";
+
+    private static final ThreadLocal<Deflaters> PER_THREAD = ThreadLocal.withInitial(Deflaters::new);
+    private static final ConcurrentLinkedQueue<Deflaters> POOL = new ConcurrentLinkedQueue<>();
+    private static final AtomicInteger POOLED = new AtomicInteger();
+
+    private static final LongAdder BYTES_IN = new LongAdder();
+    private static final LongAdder BYTES_OUT = new LongAdder();
+
+    private static final byte[] GZIP_HEADER = {0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, (byte) 0xff};
+
+    static {
+        Metrics.register("compression.bytesIn", BYTES_IN::sum);
+        Metrics.register("compression.bytesOut", BYTES_OUT::sum);
+    }
+
+    private Compression() {}
+
+    /**
+     * Compresses {@code body} if the client accepts it and it is large enough, setting Content-Encoding and Vary.
+     * Returns the bytes to send.
+     */
+    public static byte[] encode(HttpExchange ex, byte[] body) {
+        return encode(ex, body, enc -> compress(body, enc));
+    }
+
+    /** As {@link #encode(HttpExchange, byte[])}, taking the encoded bytes from {@code variant} (e.g. a cached copy). */
+    public static byte[] encode(HttpExchange ex, byte[] body, Function<Encoding, byte[]> variant) {
+        Encoding enc = choose(ex, body.length);
+        if (enc == Encoding.IDENTITY) return body;
+        byte[] out = variant.apply(enc);
+        markEncoded(ex, enc, body.length, out.length);
+        return out;
+    }
+
+    /**
+     * As {@link #encode(HttpExchange, byte[])} for a pooled body: returns the compressed bytes, or null when the
+     * buffer itself should be sent.
+     */
+    public static byte[] encode(HttpExchange ex, OutputBuffer body) {
+        Encoding enc = choose(ex, body.length());
+        if (enc == Encoding.IDENTITY) return null;
+        byte[] out = compress(body.array(), body.length(), enc);
+        markEncoded(ex, enc, body.length(), out.length);
+        return out;
+    }
+
+    /** The coding for a body of {@code length} bytes (adding Vary); IDENTITY when disabled, too small or not accepted. */
+    private static Encoding choose(HttpExchange ex, int length) {
+        if (!ENABLED) return Encoding.IDENTITY;
+        ex.getResponseHeaders().add("Vary", "Accept-Encoding");
+        if (length < MIN_BYTES) return Encoding.IDENTITY;
+        return negotiate(ex.getRequestHeaders().getFirst("Accept-Encoding"));
+    }
+
+    private static void markEncoded(HttpExchange ex, Encoding enc, int inLength, int outLength) {
+        Headers h = ex.getResponseHeaders();
+        String coding = enc == Encoding.GZIP ? "gzip" : "deflate";
+        h.set("Content-Encoding", coding);
+        // A strong ETag names one exact byte sequence, so the encoded variant gets its own tag
+        String etag = h.getFirst("ETag");
+        if (etag != null && etag.startsWith("\"") && etag.endsWith("\"")) {
+            h.set("ETag", etag.substring(0, etag.length() - 1) + CODING_SUFFIX + coding + '"');
+        }
+        BYTES_IN.add(inLength);
+        BYTES_OUT.add(outLength);
+    }
+
+    /** Removes the content-coding suffix added by {@link #encode}, e.g. {@code "abc+gzip"} to {@code "abc"}. */
+    public static String stripCoding(String etag) {
+        if (etag.endsWith(CODING_SUFFIX + "gzip\"")) return etag.substring(0, etag.length() - 6) + '"';
+        if (etag.endsWith(CODING_SUFFIX + "deflate\"")) return etag.substring(0, etag.length() - 9) + '"';
+        return etag;
+    }
+
+    /**
+     * Picks gzip or deflate by q-value (gzip on ties); IDENTITY when neither is acceptable. {@code *} only stands in
+     * for codings the header does not name, so {@code gzip;q=0, *} still refuses gzip.
+     */
+    public static Encoding negotiate(String acceptEncoding) {
+        if (acceptEncoding == null || acceptEncoding.isBlank()) return Encoding.IDENTITY;
+        double gzip = -1, deflate = -1, any = 0; // -1: not mentioned
+        for (String part : acceptEncoding.split(",")) {
+            String[] p = part.split(";");
+            String coding = p[0].trim().toLowerCase(Locale.ROOT);
+            double q = 1;
+            for (int i = 1; i < p.length; i++) {
+                String param = p[i].trim();
+                if (param.startsWith("q=")) {
+                    try { q = Double.parseDouble(param.substring(2)); } catch (NumberFormatException e) { q = 0; }
+                }
+            }
+            switch (coding) {
+                case "gzip", "x-gzip" -> gzip = q;
+                case "deflate" -> deflate = q;
+                case "*" -> any = q;
+                default -> {}
+            }
+        }
+        if (gzip < 0) gzip = any;
+        if (deflate < 0) deflate = any;
+        if (gzip <= 0 && deflate <= 0) return Encoding.IDENTITY;
+        return gzip >= deflate ? Encoding.GZIP : Encoding.DEFLATE;
+    }
+
+    public static byte[] compress(byte[] body, Encoding enc) {
+        return compress(body, body.length, enc);
+    }
+
+    /** Compresses the first {@code length} bytes of {@code body}. */
+    public static byte[] compress(byte[] body, int length, Encoding enc) {
+        boolean pooled = Thread.currentThread().isVirtual();
+        Deflaters d = pooled ? borrow() : PER_THREAD.get();
+        try {
+            if (enc == Encoding.DEFLATE) return deflate(d.zlib, body, length, null);
+            CRC32 crc = new CRC32();
+            crc.update(body, 0, length);
+            return deflate(d.raw, body, length, crc);
+        } finally {
+            if (pooled) giveBack(d);
+        }
+    }
+
+    /** Runs the deflater over {@code body[0, length)}; with a CRC the output is framed as gzip (header + raw deflate + trailer). */
+    private static byte[] deflate(Deflater deflater, byte[] body, int length, CRC32 crc) {
+        deflater.reset();
+        deflater.setInput(body, 0, length);
+        deflater.finish();
+        ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, length / 4));
+        if (crc != null) out.write(GZIP_HEADER, 0, GZIP_HEADER.length);
+        byte[] buf = new byte[Math.min(16 * 1024, Math.max(512, length))];
+        while (!deflater.finished()) {
+            int n = deflater.deflate(buf);
+            out.write(buf, 0, n);
+        }
+        if (crc != null) {
+            writeIntLE(out, (int) crc.getValue());
+            writeIntLE(out, length);
+        }
+        return out.toByteArray();
+    }
+
+    private static void writeIntLE(ByteArrayOutputStream out, int v) {
+        out.write(v);
+        out.write(v >>> 8);
+        out.write(v >>> 16);
+        out.write(v >>> 24);
+    }
+
+    private static Deflaters borrow() {
+        Deflaters d = POOL.poll();
+        if (d == null) return new Deflaters();
+        POOLED.decrementAndGet();
+        return d;
+    }
+
+    private static void giveBack(Deflaters d) {
+        if (POOLED.incrementAndGet() <= POOL_MAX) { POOL.offer(d); return; }
+        POOLED.decrementAndGet();
+        d.raw.end();
+        d.zlib.end();
+    }
+
+    /** One raw deflater for gzip framing and one zlib-wrapped deflater for Content-Encoding: deflate. */
+    private static final class Deflaters {
+        final Deflater raw = new Deflater(LEVEL, true);
+        final Deflater zlib = new Deflater(LEVEL, false);
+    }
+}
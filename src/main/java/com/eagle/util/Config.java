@@ -0,0 +1,50 @@
+package com.eagle.util;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Tiny accessor for startup settings passed as JVM system properties ({@code -Deagle.*=...}).
+ * Every lookup falls back to the given default so the server runs with no flags at all.
+ */
+public final class Config {
+    private Config() {}
+
+    public static String str(String key, String def) {
+        String v = System.getProperty(key);
+        return (v == null || v.isBlank()) ? def : v.trim();
+    }
+
+    public static int intVal(String key, int def) {
+        String v = System.getProperty(key);
+        if (v == null || v.isBlank()) return def;
+        try { return Integer.parseInt(v.trim()); } catch (NumberFormatException e) { return def; }
+    }
+
+    public static long longVal(String key, long def) {
+        String v = System.getProperty(key);
+        if (v == null || v.isBlank()) return def;
+        try { return Long.parseLong(v.trim()); } catch (NumberFormatException e) { return def; }
+    }
+
+    public static boolean bool(String key, boolean def) {
+        String v = System.getProperty(key);
+        return (v == null || v.isBlank()) ? def : Boolean.parseBoolean(v.trim());
+    }
+
+    /** Parses {@code key=value,key=value} (e.g. per-route overrides); empty map when unset. */
+    public static Map<String, String> map(String key) {
+        return map(key, null);
+    }
+
+    public static Map<String, String> map(String key, String def) {
+        Map<String, String> out = new LinkedHashMap<>();
+        String v = str(key, def);
+        if (v == null) return out;
+        for (String pair : v.split(",")) {
+            int eq = pair.lastIndexOf('=');
+            if (eq > 0) out.put(pair.substring(0, eq).trim(), pair.substring(eq + 1).trim());
+        }
+        return out;
+    }
+}
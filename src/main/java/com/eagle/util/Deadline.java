@@ -0,0 +1,99 @@
+package com.eagle.util;
+
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.sql.Statement;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Per-request time budget, carried in a ThreadLocal for the duration of a handler call.
+ * Clients send {@value #HEADER} (milliseconds they are willing to wait); the budget starts when the request
+ * is routed, so time spent queued for admission counts against it. DAOs call {@link #apply(Statement)} on
+ * every statement, which turns the remaining budget into a JDBC query timeout (Derby cancels the statement
+ * itself once it runs over) and refuses to start a statement once the budget is gone.
+ */
+public final class Deadline {
+    public static final String HEADER = "X-Deadline-Ms";
+    /** SQLState Derby reports for a statement cancelled by its query timeout. */
+    private static final String TIMEOUT_STATE = "XCL52";
+
+    private static final long MAX_MS = Config.longVal("eagle.deadline.maxMs", 30_000);
+    private static final long DEFAULT_MS = Config.longVal("eagle.deadline.defaultMs", 0);
+
+    private static final ThreadLocal<Long> CURRENT = new ThreadLocal<>();
+    private static final LongAdder DROPPED = new LongAdder();
+    private static final LongAdder EXCEEDED = new LongAdder();
+
+    static {
+        Metrics.register("deadline.dropped", DROPPED::sum);
+        Metrics.register("deadline.exceeded", EXCEEDED::sum);
+    }
+
+    /** Thrown out of a DAO when a statement failed because the request's budget ran out. */
+    public static final class Exceeded extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        public Exceeded(Throwable cause) { super("Request deadline exceeded", cause); }
+    }
+
+    private Deadline() {}
+
+    /**
+     * Absolute deadline ({@link System#nanoTime()} based) for a request arriving now, or null when the client sent
+     * no budget and no default is configured. Budgets are capped at {@code eagle.deadline.maxMs}.
+     */
+    public static Long fromHeader(String value, long arrivalNanos) {
+        Long ms = null;
+        if (value != null) {
+            try { ms = Long.parseLong(value.trim()); } catch (NumberFormatException ignore) { /* treated as absent */ }
+        }
+        if (ms == null && DEFAULT_MS > 0) ms = DEFAULT_MS;
+        if (ms == null) return null;
+        return arrivalNanos + TimeUnit.MILLISECONDS.toNanos(Math.max(0, Math.min(ms, MAX_MS)));
+    }
+
+    public static void set(Long deadlineNanos) {
+        if (deadlineNanos == null) CURRENT.remove(); else CURRENT.set(deadlineNanos);
+    }
+
+    public static void clear() { CURRENT.remove(); }
+
+    /** The current request's absolute deadline, or null; for handing work off and restoring it with {@link #set}. */
+    public static Long current() { return CURRENT.get(); }
+
+    /** True when a deadline is set and has passed. */
+    public static boolean expired(Long deadlineNanos) {
+        return deadlineNanos != null && deadlineNanos - System.nanoTime() <= 0;
+    }
+
+    /** Nanoseconds left for the current request, or null when it has no deadline. */
+    public static Long remainingNanos() {
+        Long d = CURRENT.get();
+        return d == null ? null : d - System.nanoTime();
+    }
+
+    /** Counts a request dropped before its handler ran. */
+    public static void dropped() { DROPPED.increment(); }
+
+    /** Sets the statement's query timeout to the remaining budget; fails fast if nothing is left. */
+    public static void apply(Statement st) throws SQLException {
+        Long d = CURRENT.get();
+        if (d == null) return;
+        long remaining = d - System.nanoTime();
+        if (remaining <= 0) throw new SQLTimeoutException("Request deadline exceeded before statement", TIMEOUT_STATE);
+        st.setQueryTimeout((int) Math.max(1, TimeUnit.NANOSECONDS.toSeconds(remaining + 999_999_999L)));
+    }
+
+    /**
+     * Called from DAO catch blocks: if the failure was the deadline, rethrows it as {@link Exceeded} so the
+     * handler answers 504 instead of treating it as "not found" or a conflict.
+     */
+    public static void propagate(SQLException e) {
+        if (CURRENT.get() == null) return;
+        if (e instanceof SQLTimeoutException || TIMEOUT_STATE.equals(e.getSQLState())) {
+            EXCEEDED.increment();
+            throw new Exceeded(e);
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.eagle.util;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Sparse fieldset from a {@code ?fields=id,balance} parameter.
+ * A resource declares its fields and the column behind each (see the DAOs' {@code FIELDS}); a selection then
+ * gives the DAO a narrowed column list and the handler a canonical {@link #variant()} for ETags.
+ * Unselected fields are left null in the response model, which Gson omits.
+ */
+public final class FieldSelection {
+    private final Map<String, String> columnsByField;
+    private final Set<String> selected; // null = every field
+
+    private FieldSelection(Map<String, String> columnsByField, Set<String> selected) {
+        this.columnsByField = columnsByField;
+        this.selected = selected;
+    }
+
+    /** Ordered field → column mapping for a resource, from alternating name/column pairs. */
+    public static Map<String, String> fields(String... fieldColumnPairs) {
+        Map<String, String> out = new LinkedHashMap<>();
+        for (int i = 0; i + 1 < fieldColumnPairs.length; i += 2) out.put(fieldColumnPairs[i], fieldColumnPairs[i + 1]);
+        return Collections.unmodifiableMap(out);
+    }
+
+    public static FieldSelection all(Map<String, String> columnsByField) {
+        return new FieldSelection(columnsByField, null);
+    }
+
+    /** Parses a comma-separated list; a missing or blank parameter selects everything. Unknown names are rejected. */
+    public static FieldSelection parse(String param, Map<String, String> columnsByField) {
+        if (param == null || param.isBlank()) return all(columnsByField);
+        Set<String> requested = new LinkedHashSet<>();
+        for (String f : param.split(",")) {
+            String name = f.trim();
+            if (name.isEmpty()) continue;
+            if (!columnsByField.containsKey(name)) {
+                throw new IllegalArgumentException("Unknown field '" + name + "' (allowed: "
+                        + String.join(", ", columnsByField.keySet()) + ")");
+            }
+            requested.add(name);
+        }
+        if (requested.isEmpty() || requested.size() == columnsByField.size()) return all(columnsByField);
+        Set<String> ordered = new LinkedHashSet<>(); // declaration order, so equal selections look equal
+        for (String name : columnsByField.keySet()) if (requested.contains(name)) ordered.add(name);
+        return new FieldSelection(columnsByField, ordered);
+    }
+
+    public boolean has(String field) { return selected == null || selected.contains(field); }
+
+    /** Columns to SELECT: the selected fields' columns plus {@code always} (keys, ownership checks). */
+    public Set<String> columns(String... always) {
+        Set<String> out = new LinkedHashSet<>();
+        Collections.addAll(out, always);
+        for (Map.Entry<String, String> e : columnsByField.entrySet()) if (has(e.getKey())) out.add(e.getValue());
+        return out;
+    }
+
+    /** Canonical name of the selection for validators and coalescing keys; null when every field is selected. */
+    public String variant() { return selected == null ? null : String.join(".", selected); }
+}
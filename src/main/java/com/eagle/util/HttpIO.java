@@ -1,5 +1,6 @@
 package com.eagle.util;
 
+import com.eagle.http.limit.BodyLimits;
 import com.sun.net.httpserver.HttpExchange;
 
 import java.io.IOException;
@@ -9,15 +10,32 @@ import java.nio.charset.StandardCharsets;
 public final class HttpIO {
     private HttpIO() {}
 
-    public static String readBody(HttpExchange ex) throws IOException {
-        return new String(ex.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+    /** Reads the whole body as UTF-8, refusing more than {@code maxBytes} without buffering the excess. */
+    public static String readBody(HttpExchange ex, int maxBytes) throws IOException {
+        byte[] b = ex.getRequestBody().readNBytes(maxBytes + 1);
+        if (b.length > maxBytes) throw new BodyLimits.TooLarge(maxBytes);
+        return new String(b, StandardCharsets.UTF_8);
     }
 
-    public static void writeJson(HttpExchange ex, int status, String json) throws IOException {
-        byte[] out = json.getBytes(StandardCharsets.UTF_8);
+    /** Serialises {@code body} into a pooled buffer and sends it; a String is taken as ready-made JSON. */
+    public static void writeJson(HttpExchange ex, int status, Object body) throws IOException {
         ex.getResponseHeaders().set("Content-Type", "application/json; charset=UTF-8");
-        ex.sendResponseHeaders(status, out.length);
-        try (OutputStream os = ex.getResponseBody()) { os.write(out); }
+        if (body instanceof String json) {
+            byte[] out = Compression.encode(ex, json.getBytes(StandardCharsets.UTF_8));
+            ex.sendResponseHeaders(status, out.length);
+            try (OutputStream os = ex.getResponseBody()) { os.write(out); }
+            return;
+        }
+        OutputBuffer out = Jsons.toJsonBuffer(body);
+        try {
+            byte[] encoded = Compression.encode(ex, out);
+            ex.sendResponseHeaders(status, encoded != null ? encoded.length : out.length());
+            try (OutputStream os = ex.getResponseBody()) {
+                if (encoded != null) os.write(encoded); else out.writeTo(os);
+            }
+        } finally {
+            out.release();
+        }
     }
 
     public static void writeNoContent(HttpExchange ex) throws IOException {
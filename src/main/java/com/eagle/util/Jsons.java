@@ -1,17 +1,43 @@
 package com.eagle.util;
 
+import com.eagle.model.codec.ModelCodecs;
 import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
 
-/** Central place for JSON (keeps one Gson instance + helpers). */
+/**
+ * Central place for JSON: one Gson instance, with the hand-written {@link ModelCodecs} registered so model
+ * types never go through reflection, plus helpers. Server and clients share it; it is thread-safe.
+ */
 public final class Jsons {
-    private static final Gson GSON = new Gson();
+    private static final Gson GSON = ModelCodecs.register(new GsonBuilder()).create();
 
     private Jsons() {}
 
+    public static Gson gson() { return GSON; }
+
     public static String toJson(Object o) {
         return GSON.toJson(o);
     }
 
+    /** UTF-8 JSON as an owned array, for bodies kept beyond the request (coalesced or cached responses). */
+    public static byte[] toJsonBytes(Object o) {
+        OutputBuffer b = toJsonBuffer(o);
+        try { return b.toByteArray(); } finally { b.release(); }
+    }
+
+    /** UTF-8 JSON written straight into a pooled buffer (no intermediate String); the caller releases it. */
+    public static OutputBuffer toJsonBuffer(Object o) {
+        OutputBuffer b = OutputBuffer.acquire();
+        try (Utf8JsonWriter w = new Utf8JsonWriter(b)) {
+            if (o == null) w.nullValue();
+            else GSON.toJson(o, o.getClass(), w);
+        } catch (RuntimeException e) {
+            b.release();
+            throw e;
+        }
+        return b;
+    }
+
     public static <T> T fromJson(String json, Class<T> type) {
         return GSON.fromJson(json, type);
     }
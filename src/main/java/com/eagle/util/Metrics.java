@@ -0,0 +1,30 @@
+package com.eagle.util;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Supplier;
+
+/**
+ * Process-wide registry of named gauges. Components keep their own counters (LongAdder/AtomicInteger)
+ * and register a supplier here; {@code GET /metrics} renders {@link #snapshot()} as JSON.
+ */
+public final class Metrics {
+    private static final Map<String, Supplier<?>> GAUGES = new ConcurrentSkipListMap<>();
+
+    private Metrics() {}
+
+    /** Registers (or replaces) a gauge. Names are dotted, e.g. {@code admission.default.queued}. */
+    public static void register(String name, Supplier<?> gauge) {
+        GAUGES.put(name, gauge);
+    }
+
+    /** Current value of every gauge, sorted by name. */
+    public static Map<String, Object> snapshot() {
+        Map<String, Object> out = new LinkedHashMap<>();
+        GAUGES.forEach((k, v) -> {
+            try { out.put(k, v.get()); } catch (RuntimeException e) { out.put(k, "error: " + e.getMessage()); }
+        });
+        return out;
+    }
+}
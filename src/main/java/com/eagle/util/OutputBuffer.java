@@ -0,0 +1,80 @@
+package com.eagle.util;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Reusable response body buffer that serialisers ({@link Utf8JsonWriter}) write UTF-8 into.
+ * Reuse follows {@link Compression}'s deflaters: platform threads keep one per thread, virtual threads borrow
+ * from a small shared pool. A buffer that grew beyond {@code eagle.buffers.maxRetainedBytes} is dropped on
+ * {@link #release()} rather than kept, so one huge response does not pin its memory forever.
+ * A buffer belongs to one request between {@link #acquire()} and {@link #release()}; never keep its array.
+ */
+public final class OutputBuffer {
+    private static final int INITIAL_BYTES = 4 * 1024;
+    private static final int MAX_RETAINED = Config.intVal("eagle.buffers.maxRetainedBytes", 256 * 1024);
+    private static final int POOL_MAX = 64;
+
+    private static final ThreadLocal<OutputBuffer> PER_THREAD = ThreadLocal.withInitial(() -> new OutputBuffer(true));
+    private static final ConcurrentLinkedQueue<OutputBuffer> POOL = new ConcurrentLinkedQueue<>();
+    private static final AtomicInteger POOLED = new AtomicInteger();
+    private static final LongAdder ACQUIRED = new LongAdder();
+    private static final LongAdder ALLOCATED = new LongAdder();
+
+    static {
+        Metrics.register("buffers.acquired", ACQUIRED::sum); // acquired - allocated = reuses
+        Metrics.register("buffers.allocated", ALLOCATED::sum);
+        Metrics.register("buffers.pooled", POOLED::get);
+    }
+
+    private final boolean threadBound;
+    private boolean inUse;
+    byte[] bytes = new byte[INITIAL_BYTES]; // Utf8JsonWriter grows it in place
+    int length;
+
+    private OutputBuffer(boolean threadBound) {
+        this.threadBound = threadBound;
+        ALLOCATED.increment();
+    }
+
+    /** An empty buffer for this request; the caller must {@link #release()} it once the bytes are written out. */
+    public static OutputBuffer acquire() {
+        OutputBuffer b;
+        if (!Thread.currentThread().isVirtual()) {
+            b = PER_THREAD.get();
+            if (b.inUse) b = new OutputBuffer(false); // nested use on the same thread
+        } else {
+            b = POOL.poll();
+            if (b == null) b = new OutputBuffer(false);
+            else POOLED.decrementAndGet();
+        }
+        ACQUIRED.increment();
+        b.inUse = true;
+        b.length = 0;
+        return b;
+    }
+
+    /** Hands the buffer back; the bytes must not be used afterwards. */
+    public void release() {
+        if (!inUse) return;
+        inUse = false;
+        if (bytes.length > MAX_RETAINED) bytes = new byte[INITIAL_BYTES];
+        if (threadBound) return;
+        if (POOLED.incrementAndGet() <= POOL_MAX) POOL.offer(this);
+        else POOLED.decrementAndGet();
+    }
+
+    /** The backing array; only the first {@link #length()} bytes are content. */
+    public byte[] array() { return bytes; }
+
+    public int length() { return length; }
+
+    public void writeTo(OutputStream out) throws IOException { out.write(bytes, 0, length); }
+
+    /** An owned copy of the content, for callers that keep it beyond the request (caches, coalescing). */
+    public byte[] toByteArray() { return Arrays.copyOf(bytes, length); }
+}
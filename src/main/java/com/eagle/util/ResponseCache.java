@@ -0,0 +1,221 @@
+package com.eagle.util;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Cache of fully serialised 200 responses, keyed by route + URI + bearer token + representation (JSON/CBOR).
+ * - Per-route TTL ({@code eagle.cache.routes}, ms); routes not listed are never cached.
+ * - Bounded by {@code eagle.cache.maxBytes} of uncompressed bodies; eviction is CLOCK (second chance),
+ *   so a hit only sets a flag.
+ * - Entries carry invalidation tags ({@link #user}, {@link #account}, {@link #USERS}) that write paths fire.
+ * A response computed while any invalidation ran is not stored: its tags are only known once the handler has
+ * finished, so the check is against a global invalidation counter read before the handler started.
+ * gzip/deflate variants are compressed once per entry, on first demand.
+ */
+public final class ResponseCache {
+    /** Tag of the user directory ({@code /listUsers}). */
+    public static final String USERS = "users";
+
+    private static final String DEFAULT_ROUTES = "/listUsers=5000,/users/me=30000,/users/me/accounts=30000,"
+            + "/users/me/accounts/{id:int}=30000,/users/me/accounts/{id:int}/transactions=30000";
+
+    private final Map<String, Long> ttlNanos = new ConcurrentHashMap<>();
+    private final long maxBytes;
+    private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Set<String>> byTag = new ConcurrentHashMap<>();
+    private final ConcurrentLinkedQueue<Entry> clock = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger staleInClock = new AtomicInteger();
+    private final AtomicLong bytes = new AtomicLong();
+    private final AtomicLong invalidations = new AtomicLong();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public ResponseCache(Map<String, String> routeTtlMs, long maxBytes) {
+        routeTtlMs.forEach((route, ms) -> ttlNanos.put(route, Long.parseLong(ms) * 1_000_000L));
+        this.maxBytes = maxBytes;
+        Metrics.register("cache.responses.entries", entries::size);
+        Metrics.register("cache.responses.bytes", bytes::get);
+        Metrics.register("cache.responses.hits", hits::sum);
+        Metrics.register("cache.responses.misses", misses::sum);
+        Metrics.register("cache.responses.evictions", evictions::sum);
+        Metrics.register("cache.responses.invalidations", invalidations::get);
+        Metrics.register("cache.responses.hitRate", () -> {
+            long h = hits.sum(), m = misses.sum();
+            return h + m == 0 ? 0.0 : Math.round(1000.0 * h / (h + m)) / 1000.0;
+        });
+    }
+
+    /** Built from -Deagle.cache.enabled / routes / maxBytes; with caching disabled no route is cacheable. */
+    public static ResponseCache fromConfig() {
+        Map<String, String> routes = Config.bool("eagle.cache.enabled", true)
+                ? Config.map("eagle.cache.routes", DEFAULT_ROUTES) : Map.of();
+        return new ResponseCache(routes, Config.longVal("eagle.cache.maxBytes", 16L << 20));
+    }
+
+    public static String user(int userId) { return "user:" + userId; }
+
+    public static String account(int accountId) { return "account:" + accountId; }
+
+    public boolean caches(String template) { return template != null && ttlNanos.containsKey(template); }
+
+    /** Live entry for {@code key}, or null (expired entries are dropped here). */
+    public Entry get(String key) {
+        Entry e = entries.get(key);
+        if (e != null && System.nanoTime() - e.expiresAt < 0) {
+            e.referenced = true;
+            hits.increment();
+            return e;
+        }
+        if (e != null) remove(key, e);
+        misses.increment();
+        return null;
+    }
+
+    /** Starts filling {@code key}; the snapshot taken here decides whether the result may still be stored. */
+    public Fill begin(String template, String key) {
+        return new Fill(template, key, invalidations.get());
+    }
+
+    /** Drops every entry carrying any of {@code tags}. */
+    public void invalidate(String... tags) {
+        invalidations.incrementAndGet(); // before removal, so an overlapping fill either sees it or is removed below
+        for (String tag : tags) {
+            Set<String> keys = byTag.remove(tag);
+            if (keys == null) continue;
+            for (String key : keys) {
+                Entry e = entries.get(key);
+                if (e != null && e.tags.contains(tag)) remove(key, e);
+            }
+        }
+    }
+
+    private void store(Fill f) {
+        if (f.json == null || f.tags == null || invalidations.get() != f.invalidationsAtStart) return;
+        Entry e = new Entry(f.key, f.json, f.contentType, f.etag, f.nextCursor, Set.copyOf(Arrays.asList(f.tags)), System.nanoTime() + ttlNanos.get(f.template));
+        if (e.size() > maxBytes / 8) return; // one response may not flush most of the cache
+        Entry old = entries.put(f.key, e);
+        if (old != null) unlink(f.key, old);
+        bytes.addAndGet(e.size());
+        for (String tag : e.tags) {
+            byTag.compute(tag, (t, keys) -> {
+                Set<String> s = keys != null ? keys : ConcurrentHashMap.newKeySet();
+                s.add(f.key);
+                return s;
+            });
+        }
+        clock.add(e);
+        if (invalidations.get() != f.invalidationsAtStart) { remove(f.key, e); return; }
+        if (bytes.get() > maxBytes) evict();
+    }
+
+    /** CLOCK sweep: referenced entries get a second chance, the first unreferenced one goes. */
+    private void evict() {
+        int budget = 2 * entries.size() + 16;
+        while (bytes.get() > maxBytes && budget-- > 0) {
+            Entry e = clock.poll();
+            if (e == null) return;
+            if (entries.get(e.key) != e) { staleInClock.decrementAndGet(); continue; }
+            if (e.referenced) { e.referenced = false; clock.add(e); continue; }
+            if (remove(e.key, e)) { staleInClock.decrementAndGet(); evictions.increment(); }
+        }
+    }
+
+    private boolean remove(String key, Entry e) {
+        if (!entries.remove(key, e)) return false;
+        unlink(key, e);
+        return true;
+    }
+
+    /** Accounting for an entry that has left the map; its clock slot is reclaimed lazily. */
+    private void unlink(String key, Entry e) {
+        bytes.addAndGet(-e.size());
+        for (String tag : e.tags) byTag.computeIfPresent(tag, (t, keys) -> {
+            keys.remove(key);
+            return keys.isEmpty() ? null : keys;
+        });
+        if (staleInClock.incrementAndGet() > entries.size() + 64) {
+            staleInClock.set(0);
+            clock.removeIf(c -> entries.get(c.key) != c);
+        }
+    }
+
+    /** A cached body plus its lazily compressed variants. */
+    public static final class Entry {
+        final String key;
+        private final byte[] json;
+        private final String contentType;
+        private final String etag;
+        private final String nextCursor;
+        final Set<String> tags;
+        final long expiresAt;
+        volatile boolean referenced;
+        private volatile byte[] gzip;
+        private volatile byte[] deflate;
+
+        Entry(String key, byte[] json, String contentType, String etag, String nextCursor, Set<String> tags, long expiresAt) {
+            this.key = key;
+            this.json = json;
+            this.contentType = contentType;
+            this.etag = etag;
+            this.nextCursor = nextCursor;
+            this.tags = tags;
+            this.expiresAt = expiresAt;
+        }
+
+        /** The uncompressed body (JSON or CBOR, see {@link #contentType()}). */
+        public byte[] json() { return json; }
+        public String contentType() { return contentType; }
+        public String etag() { return etag; }
+        /** Pagination cursor sent alongside the body, or null. */
+        public String nextCursor() { return nextCursor; }
+
+        /** The body in {@code enc}, compressed at most once (racing threads may both compress; either copy is fine). */
+        public byte[] encoded(Compression.Encoding enc) {
+            return switch (enc) {
+                case IDENTITY -> json;
+                case GZIP -> { byte[] b = gzip; if (b == null) gzip = b = Compression.compress(json, enc); yield b; }
+                case DEFLATE -> { byte[] b = deflate; if (b == null) deflate = b = Compression.compress(json, enc); yield b; }
+            };
+        }
+
+        long size() { return key.length() + json.length; }
+    }
+
+    /** Collects one handler's 200 body and tags; {@link #commit} stores it if nothing was invalidated meanwhile. */
+    public final class Fill {
+        private final String template;
+        private final String key;
+        private final long invalidationsAtStart;
+        private byte[] json;
+        private String contentType;
+        private String etag;
+        private String nextCursor;
+        private String[] tags;
+
+        private Fill(String template, String key, long invalidationsAtStart) {
+            this.template = template;
+            this.key = key;
+            this.invalidationsAtStart = invalidationsAtStart;
+        }
+
+        public void body(byte[] body, String contentType, String etag, String nextCursor) {
+            this.json = body;
+            this.contentType = contentType;
+            this.etag = etag;
+            this.nextCursor = nextCursor;
+        }
+
+        /** Without tags the response is not cached: nothing could invalidate it. */
+        public void tags(String... tags) { this.tags = tags; }
+
+        public void commit() { store(this); }
+    }
+}
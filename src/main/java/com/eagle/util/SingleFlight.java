@@ -0,0 +1,84 @@
+package com.eagle.util;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Request coalescing: while a computation for a key is in flight, callers with the same key wait for it and
+ * share its result (or its failure) instead of running their own. Nothing is cached after completion;
+ * keys should include whatever version makes a result stale (see {@link Versions}).
+ * The computation runs without the leader's {@link Deadline}, since its result also serves callers with longer
+ * budgets; followers wait no longer than their own. Should the leader still fail with {@link Deadline.Exceeded},
+ * followers with time left take over instead of sharing that failure.
+ */
+public final class SingleFlight<K, V> {
+    private final ConcurrentHashMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+    private final LongAdder executed = new LongAdder();
+    private final LongAdder shared = new LongAdder();
+    private final LongAdder retried = new LongAdder();
+
+    public SingleFlight(String name) {
+        String p = "singleflight." + name + ".";
+        Metrics.register(p + "executed", executed::sum);
+        Metrics.register(p + "shared", shared::sum);
+        Metrics.register(p + "retried", retried::sum);
+        Metrics.register(p + "inFlight", inFlight::size);
+        Metrics.register(p + "hitRate", () -> {
+            long e = executed.sum(), s = shared.sum();
+            return e + s == 0 ? 0.0 : Math.round(1000.0 * s / (e + s)) / 1000.0;
+        });
+    }
+
+    public V execute(K key, Callable<V> work) throws Exception {
+        while (true) {
+            CompletableFuture<V> mine = new CompletableFuture<>();
+            CompletableFuture<V> leader = inFlight.putIfAbsent(key, mine);
+            if (leader == null) return lead(key, mine, work);
+            shared.increment();
+            try {
+                return await(leader);
+            } catch (Deadline.Exceeded e) {
+                Long remaining = Deadline.remainingNanos();
+                if (!leader.isCompletedExceptionally() || (remaining != null && remaining <= 0)) throw e; // our own budget
+                retried.increment();
+            }
+        }
+    }
+
+    private V lead(K key, CompletableFuture<V> mine, Callable<V> work) throws Exception {
+        executed.increment();
+        Long deadline = Deadline.current();
+        Deadline.clear();
+        try {
+            V v = work.call();
+            inFlight.remove(key, mine); // before completing, so later arrivals start a fresh computation
+            mine.complete(v);
+            return v;
+        } catch (Throwable t) {
+            inFlight.remove(key, mine);
+            mine.completeExceptionally(t);
+            throw t;
+        } finally {
+            Deadline.set(deadline);
+        }
+    }
+
+    private static <V> V await(CompletableFuture<V> leader) throws Exception {
+        try {
+            Long remaining = Deadline.remainingNanos();
+            return remaining == null ? leader.get() : leader.get(Math.max(0, remaining), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            throw new Deadline.Exceeded(e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof Exception ex) throw ex;
+            if (cause instanceof Error err) throw err;
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.eagle.util;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bearer token to user id, filled after a successful DAO authentication. Lets conditional GETs be answered
+ * with 304 without a {@code users} lookup. An entry is trusted for {@code eagle.tokenIndex.ttlMs} after the DAO last
+ * confirmed it: {@code UserDao.rotateAuthToken} removes the old token at once, but a token changed any other way
+ * (bulk import, a direct update) stops matching when its entry expires. The map is simply cleared when it reaches
+ * {@code eagle.tokenIndex.max} entries.
+ */
+public final class TokenIndex {
+    private static final int MAX = Config.intVal("eagle.tokenIndex.max", 10_000);
+    private static final long TTL_NANOS = TimeUnit.MILLISECONDS.toNanos(Config.longVal("eagle.tokenIndex.ttlMs", 5_000));
+    private static final Map<String, Entry> BY_TOKEN = new ConcurrentHashMap<>();
+
+    private record Entry(int userId, long expiresAt) {}
+
+    private TokenIndex() {}
+
+    /** The token's user while its entry is fresh; null when unknown or expired (the caller then asks the DAO). */
+    public static Integer userId(String token) {
+        if (token == null) return null;
+        Entry e = BY_TOKEN.get(token);
+        if (e == null) return null;
+        if (System.nanoTime() - e.expiresAt() > 0) { BY_TOKEN.remove(token, e); return null; }
+        return e.userId();
+    }
+
+    /** Records a DAO-confirmed token, trusted for the next {@code ttlMs}. */
+    public static void put(String token, int userId) {
+        if (BY_TOKEN.size() >= MAX) BY_TOKEN.clear();
+        BY_TOKEN.put(token, new Entry(userId, System.nanoTime() + TTL_NANOS));
+    }
+
+    public static void remove(String token) { if (token != null) BY_TOKEN.remove(token); }
+}
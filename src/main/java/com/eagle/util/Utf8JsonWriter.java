@@ -0,0 +1,267 @@
+package com.eagle.util;
+
+import com.google.gson.stream.JsonWriter;
+
+import java.io.Writer;
+import java.util.Arrays;
+
+/**
+ * {@link JsonWriter} that appends UTF-8 straight into a growable byte array, skipping the
+ * StringWriter → String → getBytes round trip. Output matches Gson's compact form, including its
+ * HTML-safe escapes and the omission of null members unless serializeNulls is set.
+ * Not thread-safe; use one per serialisation. Given an {@link OutputBuffer}, it writes into that buffer's array
+ * (growing it in place) and publishes the result on {@link #close()}.
+ */
+public final class Utf8JsonWriter extends JsonWriter {
+    private static final byte[] HEX = "0123456789abcdef".getBytes();
+    private static final byte[] NULL = {'n', 'u', 'l', 'l'};
+    private static final byte[] TRUE = {'t', 'r', 'u', 'e'};
+    private static final byte[] FALSE = {'f', 'a', 'l', 's', 'e'};
+
+    private final OutputBuffer sink; // null when writing into a private array
+    private byte[] buf;
+    private int len;
+    private boolean[] nonEmpty = new boolean[16]; // per open container: has it a member yet
+    private int depth;
+    private String pendingName;
+
+    public Utf8JsonWriter() { this(256); }
+
+    public Utf8JsonWriter(int initialCapacity) {
+        super(Writer.nullWriter());
+        sink = null;
+        buf = new byte[Math.max(16, initialCapacity)];
+    }
+
+    /** Appends to {@code sink}'s current content. */
+    public Utf8JsonWriter(OutputBuffer sink) {
+        super(Writer.nullWriter());
+        this.sink = sink;
+        buf = sink.bytes;
+        len = sink.length;
+    }
+
+    /** The JSON written so far. */
+    public byte[] toByteArray() { return Arrays.copyOf(buf, len); }
+
+    @Override public JsonWriter beginArray() { open('['); return this; }
+    @Override public JsonWriter endArray() { close(']'); return this; }
+    @Override public JsonWriter beginObject() { open('{'); return this; }
+    @Override public JsonWriter endObject() { close('}'); return this; }
+
+    @Override
+    public JsonWriter name(String name) {
+        if (name == null) throw new NullPointerException("name == null");
+        if (pendingName != null || depth == 0) throw new IllegalStateException("Unexpected name: " + name);
+        pendingName = name;
+        return this;
+    }
+
+    @Override
+    public JsonWriter value(String value) {
+        if (value == null) return nullValue();
+        beforeValue();
+        string(value);
+        return this;
+    }
+
+    @Override
+    public JsonWriter jsonValue(String value) {
+        if (value == null) return nullValue();
+        beforeValue();
+        utf8(value);
+        return this;
+    }
+
+    @Override
+    public JsonWriter nullValue() {
+        if (pendingName != null && !getSerializeNulls()) { pendingName = null; return this; }
+        beforeValue();
+        put(NULL);
+        return this;
+    }
+
+    @Override public JsonWriter value(boolean value) { beforeValue(); put(value ? TRUE : FALSE); return this; }
+    @Override public JsonWriter value(Boolean value) { return value == null ? nullValue() : value(value.booleanValue()); }
+
+    @Override
+    public JsonWriter value(float value) {
+        checkFinite(value);
+        beforeValue();
+        ascii(Float.toString(value));
+        return this;
+    }
+
+    @Override
+    public JsonWriter value(double value) {
+        checkFinite(value);
+        beforeValue();
+        ascii(Double.toString(value));
+        return this;
+    }
+
+    @Override
+    public JsonWriter value(long value) {
+        beforeValue();
+        if (value == Long.MIN_VALUE) { ascii("-9223372036854775808"); return this; }
+        if (value < 0) { put('-'); value = -value; }
+        int digits = 1;
+        for (long v = value; v >= 10; v /= 10) digits++;
+        ensure(digits);
+        for (int i = len + digits - 1; i >= len; i--) { buf[i] = (byte) ('0' + value % 10); value /= 10; }
+        len += digits;
+        return this;
+    }
+
+    @Override
+    public JsonWriter value(Number value) {
+        if (value == null) return nullValue();
+        if (value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte) {
+            return value(value.longValue());
+        }
+        if (value instanceof Double d) return value(d.doubleValue());
+        if (value instanceof Float f) return value(f.floatValue());
+        String s = value.toString();
+        if (s.equals("NaN") || s.startsWith("Infinity") || s.startsWith("-Infinity")) checkFinite(Double.NaN);
+        beforeValue();
+        ascii(s);
+        return this;
+    }
+
+    @Override
+    public void flush() {
+        if (sink != null) { sink.bytes = buf; sink.length = len; }
+    }
+
+    @Override public void close() { flush(); }
+
+    // ---- structure ----
+
+    private void open(char c) {
+        beforeValue();
+        put(c);
+        if (depth == nonEmpty.length) nonEmpty = Arrays.copyOf(nonEmpty, depth * 2);
+        nonEmpty[depth++] = false;
+    }
+
+    private void close(char c) {
+        if (depth == 0 || pendingName != null) throw new IllegalStateException("Nesting problem");
+        depth--;
+        put(c);
+    }
+
+    /** Comma before every member but the first; for object members also the pending name and colon. */
+    private void beforeValue() {
+        if (depth == 0) return;
+        if (nonEmpty[depth - 1]) put(',');
+        nonEmpty[depth - 1] = true;
+        if (pendingName != null) {
+            string(pendingName);
+            put(':');
+            pendingName = null;
+        }
+    }
+
+    private void checkFinite(double v) {
+        if ((Double.isNaN(v) || Double.isInfinite(v)) && !isLenient()) {
+            throw new IllegalArgumentException("Numeric values must be finite, but was " + v);
+        }
+    }
+
+    // ---- encoding ----
+
+    private void string(String s) {
+        boolean html = isHtmlSafe();
+        ensure(s.length() + 2);
+        buf[len++] = '"';
+        for (int i = 0, n = s.length(); i < n; i++) {
+            char c = s.charAt(i);
+            if (c < 0x80) {
+                if (c < 0x20 || c == '"' || c == '\\' || (html && (c == '<' || c == '>' || c == '&' || c == '=' || c == '\''))) {
+                    escape(c);
+                } else {
+                    put((byte) c);
+                }
+            } else if (c == 0x2028 || c == 0x2029) { // line/paragraph separators, which JavaScript rejects in strings
+                escape(c);
+            } else {
+                i = utf8(s, i, c);
+            }
+        }
+        put('"');
+    }
+
+    private void escape(char c) {
+        switch (c) {
+            case '"' -> { put('\\'); put('"'); }
+            case '\\' -> { put('\\'); put('\\'); }
+            case '\t' -> { put('\\'); put('t'); }
+            case '\b' -> { put('\\'); put('b'); }
+            case '\n' -> { put('\\'); put('n'); }
+            case '\r' -> { put('\\'); put('r'); }
+            case '\f' -> { put('\\'); put('f'); }
+            default -> {
+                ensure(6);
+                buf[len++] = '\\';
+                buf[len++] = 'u';
+                buf[len++] = HEX[(c >> 12) & 0xf];
+                buf[len++] = HEX[(c >> 8) & 0xf];
+                buf[len++] = HEX[(c >> 4) & 0xf];
+                buf[len++] = HEX[c & 0xf];
+            }
+        }
+    }
+
+    /** Encodes the non-ASCII char at {@code i} (joining surrogate pairs); returns the index of the last char consumed. */
+    private int utf8(String s, int i, char c) {
+        ensure(4);
+        if (c < 0x800) {
+            buf[len++] = (byte) (0xc0 | (c >> 6));
+            buf[len++] = (byte) (0x80 | (c & 0x3f));
+        } else if (Character.isHighSurrogate(c) && i + 1 < s.length() && Character.isLowSurrogate(s.charAt(i + 1))) {
+            int cp = Character.toCodePoint(c, s.charAt(++i));
+            buf[len++] = (byte) (0xf0 | (cp >> 18));
+            buf[len++] = (byte) (0x80 | ((cp >> 12) & 0x3f));
+            buf[len++] = (byte) (0x80 | ((cp >> 6) & 0x3f));
+            buf[len++] = (byte) (0x80 | (cp & 0x3f));
+        } else if (Character.isSurrogate(c)) {
+            buf[len++] = '?'; // lone surrogate, as String.getBytes(UTF_8) does
+        } else {
+            buf[len++] = (byte) (0xe0 | (c >> 12));
+            buf[len++] = (byte) (0x80 | ((c >> 6) & 0x3f));
+            buf[len++] = (byte) (0x80 | (c & 0x3f));
+        }
+        return i;
+    }
+
+    private void utf8(String s) {
+        for (int i = 0, n = s.length(); i < n; i++) {
+            char c = s.charAt(i);
+            if (c < 0x80) put((byte) c);
+            else i = utf8(s, i, c);
+        }
+    }
+
+    private void ascii(String s) {
+        int n = s.length();
+        ensure(n);
+        for (int i = 0; i < n; i++) buf[len++] = (byte) s.charAt(i);
+    }
+
+    private void put(char c) { put((byte) c); }
+
+    private void put(byte b) {
+        if (len == buf.length) buf = Arrays.copyOf(buf, buf.length * 2);
+        buf[len++] = b;
+    }
+
+    private void put(byte[] b) {
+        ensure(b.length);
+        System.arraycopy(b, 0, buf, len, b.length);
+        len += b.length;
+    }
+
+    private void ensure(int extra) {
+        if (len + extra > buf.length) buf = Arrays.copyOf(buf, Math.max(buf.length * 2, len + extra));
+    }
+}
@@ -0,0 +1,69 @@
+package com.eagle.util;
+
+import java.security.SecureRandom;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * In-memory change counters backing the ETags of user-scoped resources.
+ * - users: the user directory ({@code /listUsers}), bumped on signup.
+ * - user: profile ({@code /users/me}), bumped on PATCH.
+ * - userAccounts: the account list of a user, bumped on create/delete and on any balance change.
+ * - account: one account and its transactions, bumped on deposit/withdraw/delete.
+ * Counters start at 0 on every start, so tags also carry a per-process epoch. Read the version
+ * <em>before</em> querying: a write landing in between only makes the tag older than the body, never newer.
+ * Per-id counters are striped over a fixed array ({@code eagle.versions.stripes}): ids sharing a stripe bump each
+ * other's tags (a missed 304, never a wrong one), memory stays constant and reading a version creates nothing.
+ * Account owners are remembered here so a 304 can be answered without a DAO ownership check; that map is cleared
+ * when it reaches {@code eagle.versions.maxOwners}, which only costs the next requests a lookup.
+ */
+public final class Versions {
+    private static final String EPOCH = Long.toString(new SecureRandom().nextLong() & Long.MAX_VALUE, 36);
+    private static final int STRIPES = Integer.highestOneBit(Math.max(1, Config.intVal("eagle.versions.stripes", 16_384)));
+    private static final int MAX_OWNERS = Config.intVal("eagle.versions.maxOwners", 100_000);
+
+    private static final AtomicLong USER_LIST = new AtomicLong();
+    private static final AtomicLongArray USERS = new AtomicLongArray(STRIPES);
+    private static final AtomicLongArray USER_ACCOUNTS = new AtomicLongArray(STRIPES);
+    private static final AtomicLongArray ACCOUNTS = new AtomicLongArray(STRIPES);
+    private static final Map<Integer, Integer> OWNERS = new ConcurrentHashMap<>();
+
+    private Versions() {}
+
+    public static long userList() { return USER_LIST.get(); }
+    public static long user(int userId) { return USERS.get(stripe(userId)); }
+    public static long userAccounts(int userId) { return USER_ACCOUNTS.get(stripe(userId)); }
+    public static long account(int accountId) { return ACCOUNTS.get(stripe(accountId)); }
+
+    public static void bumpUserList() { USER_LIST.incrementAndGet(); }
+    public static void bumpUser(int userId) { USERS.incrementAndGet(stripe(userId)); }
+
+    /** An account of {@code userId} was created, changed or deleted. */
+    public static void bumpAccount(int userId, int accountId) {
+        ACCOUNTS.incrementAndGet(stripe(accountId));
+        USER_ACCOUNTS.incrementAndGet(stripe(userId));
+    }
+
+    /** Records the owner after a DAO lookup or create; only owned accounts are eligible for 304s. */
+    public static void rememberOwner(int accountId, int userId) {
+        if (OWNERS.size() >= MAX_OWNERS) OWNERS.clear();
+        OWNERS.put(accountId, userId);
+    }
+
+    public static void forgetOwner(int accountId) { OWNERS.remove(accountId); }
+
+    /** Owner seen by this process, or null if the account has not been loaded yet (or was deleted). */
+    public static Integer ownerOf(int accountId) { return OWNERS.get(accountId); }
+
+    /** Strong ETag of the form {@code "<epoch>-<kind><id>-<version>[-<variant>]"}. */
+    public static String etag(String kind, int id, long version, String variant) {
+        StringBuilder sb = new StringBuilder(48).append('"').append(EPOCH).append('-').append(kind).append(id).append('-').append(version);
+        if (variant != null && !variant.isEmpty()) sb.append('-').append(variant);
+        return sb.append('"').toString();
+    }
+
+    /** Ids are sequential, so the low bits keep the most recent {@code STRIPES} ids on stripes of their own. */
+    private static int stripe(int id) { return id & (STRIPES - 1); }
+}
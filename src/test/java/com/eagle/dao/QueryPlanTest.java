@@ -0,0 +1,159 @@
+package com.eagle.dao;
+
+import com.eagle.dao.BankAccountDao.AccountRecord;
+import com.eagle.dao.TransactionDao.TxFilter;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestMethodOrder;
+import org.junit.jupiter.api.function.Executable;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Proves the transaction history queries use their indexes. Seeds the in-memory database through the DAOs, runs
+ * {@link TransactionDao#listSql} for each page/filter shape with Derby runtime statistics on, and asserts on the
+ * index chosen, the absence of a sort (every shape reads its index in order) and the number of index rows visited.
+ * Runs once on fresh statistics (as after startup) and once after {@code SYSCS_UPDATE_STATISTICS}.
+ */
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+class QueryPlanTest {
+    private static final String URL = "jdbc:derby:memory:eagleDB;create=true";
+    private static final Set<String> COLUMNS = Set.of("id", "type", "amount", "created_at", "balance_after");
+    private static final Pattern VISITED = Pattern.compile("Number of rows visited=(\\d+)");
+    private static final long START = Timestamp.valueOf("2025-01-01 00:00:00").getTime();
+    private static final long MINUTE = 60_000;
+    private static final int TOTAL = 40_000;
+    private static final int LIMIT = 20;
+
+    private record Case(String name, TxFilter filter, Integer beforeId, Integer afterId, String index, int maxVisited) {}
+
+    private static int account;
+    private static List<Case> cases;
+
+    @BeforeAll
+    static void seed() throws SQLException {
+        account = seed(TOTAL);
+
+        // Transactions of the checked account are one per minute, alternating DEPOSIT/WITHDRAW; ids grow with time.
+        int perAccount = TOTAL / 2, window = 2_000;
+        Timestamp from = new Timestamp(START + (long) (perAccount / 2) * MINUTE);
+        Timestamp to = new Timestamp(from.getTime() + window * MINUTE);
+        int midId = firstId(account) + TOTAL / 2;
+        cases = List.of(
+                new Case("newest page", TxFilter.NONE, null, null, "IX_TX_ACCOUNT_ID_DESC", LIMIT + 1),
+                new Case("before_id", TxFilter.NONE, midId, null, "IX_TX_ACCOUNT_ID_DESC", LIMIT + 1),
+                new Case("after_id", TxFilter.NONE, null, midId, "IX_TX_ACCOUNT_ID", LIMIT + 1),
+                new Case("type only", new TxFilter(null, null, "WITHDRAW"), null, null, "IX_TX_ACCOUNT_ID_DESC", 2 * LIMIT + 2),
+                new Case("from/to", new TxFilter(from, to, null), null, null, "IX_TX_ACCOUNT_TIME_DESC", LIMIT + 1),
+                new Case("from/to/type", new TxFilter(from, to, "WITHDRAW"), null, null, "IX_TX_ACCOUNT_TIME_DESC", 2 * LIMIT + 2),
+                new Case("from/to before_id", new TxFilter(from, to, "DEPOSIT"), midId + window, null, "IX_TX_ACCOUNT_TIME_DESC", 2 * LIMIT + 2),
+                new Case("from/to after_id", new TxFilter(from, to, null), null, midId + window, "IX_TX_ACCOUNT_TIME", LIMIT + 1));
+    }
+
+    @Test
+    @Order(1)
+    void freshStatistics() throws SQLException {
+        assertPlans();
+    }
+
+    @Test
+    @Order(2)
+    void updatedStatistics() throws SQLException {
+        try (Connection conn = DriverManager.getConnection(URL);
+             Statement st = conn.createStatement()) {
+            st.execute("CALL SYSCS_UTIL.SYSCS_UPDATE_STATISTICS('APP', 'TRANSACTIONS', NULL)");
+        }
+        assertPlans();
+    }
+
+    /** Two accounts with {@code total} transactions between them, inserted directly in batches; returns the first. */
+    private static int seed(int total) throws SQLException {
+        UserDao users = new UserDao();
+        BankAccountDao accounts = new BankAccountDao();
+        new TransactionDao(); // schema and indexes, as at server start
+        users.saveUser("plancheck", "plancheck");
+        int userId = users.getUserByUsername("plancheck").id;
+        AccountRecord a = accounts.createForUser(userId, null);
+        AccountRecord b = accounts.createForUser(userId, null);
+        String sql = "INSERT INTO transactions (account_id, type, amount, created_at, balance_after) VALUES (?, ?, 1.00, ?, 0.00)";
+        try (Connection conn = DriverManager.getConnection(URL);
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            conn.setAutoCommit(false);
+            for (int i = 0; i < total; i++) {
+                ps.setInt(1, i % 2 == 0 ? a.id : b.id);
+                ps.setString(2, (i / 2) % 2 == 0 ? "DEPOSIT" : "WITHDRAW");
+                ps.setTimestamp(3, new Timestamp(START + (long) (i / 2) * MINUTE));
+                ps.addBatch();
+                if (i % 5_000 == 4_999) ps.executeBatch();
+            }
+            ps.executeBatch();
+            conn.commit();
+        }
+        return a.id;
+    }
+
+    private static int firstId(int account) throws SQLException {
+        try (Connection conn = DriverManager.getConnection(URL);
+             PreparedStatement ps = conn.prepareStatement("SELECT MIN(id) FROM transactions WHERE account_id=?")) {
+            ps.setInt(1, account);
+            try (ResultSet rs = ps.executeQuery()) {
+                rs.next();
+                return rs.getInt(1);
+            }
+        }
+    }
+
+    private static void assertPlans() throws SQLException {
+        List<Executable> checks = new ArrayList<>();
+        try (Connection conn = DriverManager.getConnection(URL)) {
+            try (Statement st = conn.createStatement()) { st.execute("CALL SYSCS_UTIL.SYSCS_SET_RUNTIMESTATISTICS(1)"); }
+            for (Case c : cases) {
+                String sql = TransactionDao.listSql(COLUMNS, c.filter(), c.beforeId(), c.afterId(), false);
+                int rows = 0;
+                Integer bound = c.beforeId() != null ? c.beforeId() : c.afterId();
+                Timestamp boundAt = bound != null && c.filter().hasRange() ? TransactionDao.createdAt(conn, account, bound) : null;
+                try (PreparedStatement ps = conn.prepareStatement(sql)) {
+                    TransactionDao.bindList(ps, account, c.filter(), c.beforeId(), c.afterId(), boundAt, null, LIMIT);
+                    try (ResultSet rs = ps.executeQuery()) { while (rs.next()) rows++; }
+                }
+                String plan;
+                try (Statement st = conn.createStatement();
+                     ResultSet rs = st.executeQuery("VALUES SYSCS_UTIL.SYSCS_GET_RUNTIMESTATISTICS()")) {
+                    rs.next();
+                    plan = rs.getString(1);
+                }
+                int n = rows;
+                checks.add(() -> assertEquals(LIMIT, n, c.name() + ": rows"));
+                checks.add(() -> assertTrue(plan.contains("using index " + c.index() + " "), c.name() + ": not using " + c.index() + "\n" + plan));
+                checks.add(() -> assertFalse(plan.contains("Sort ResultSet"), c.name() + ": sorts instead of reading the index in order\n" + plan));
+                checks.add(() -> assertTrue(visited(plan) <= c.maxVisited(), c.name() + ": visited " + visited(plan) + " index rows, more than " + c.maxVisited() + "\n" + plan));
+            }
+        }
+        assertAll(checks);
+    }
+
+    private static long visited(String plan) {
+        long n = 0;
+        Matcher m = VISITED.matcher(plan);
+        while (m.find()) n += Long.parseLong(m.group(1));
+        return n;
+    }
+}
@@ -0,0 +1,126 @@
+package com.eagle.service;
+
+import com.eagle.client.WebhookReceiver;
+import com.eagle.dao.BankAccountDao;
+import com.eagle.dao.OutboxDao;
+import com.eagle.dao.OutboxDao.Backlog;
+import com.eagle.dao.TransactionDao;
+import com.eagle.dao.TransactionDao.TxRecord;
+import com.eagle.dao.UserDao;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.function.BooleanSupplier;
+import java.util.function.Predicate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs the outbox end to end against two {@link WebhookReceiver} stubs: {@code flaky} refuses a share of batches
+ * with 503, {@code down} refuses all of them. Transactions are committed through {@link TransactionDao}, so the
+ * outbox rows come from the same code path as in the server, and the dispatcher claims, leases, retries, deletes
+ * and parks them as configured below.
+ */
+class WebhookDispatcherTest {
+    private static final int MAX_ATTEMPTS = 10; // 0.3^10: a flaky batch is practically never parked
+    private static final int TRANSACTIONS = 20;
+
+    private static final WebhookReceiver flaky = new WebhookReceiver(0.3, 0, null, new Random(3)); // 2nd batch fails
+    private static final WebhookReceiver down = new WebhookReceiver(1.0, 0, null, new Random());
+    private static HttpServer flakyServer;
+    private static HttpServer downServer;
+    private static final Set<String> committed = new HashSet<>();
+
+    @BeforeAll
+    static void start() throws Exception {
+        flakyServer = flaky.start(0);
+        downServer = down.start(0);
+        System.setProperty("eagle.webhooks.endpoints",
+                "flaky=http://localhost:" + flakyServer.getAddress().getPort() + "/hook,"
+                        + "down=http://localhost:" + downServer.getAddress().getPort() + "/hook");
+        System.setProperty("eagle.webhooks.batchSize", "5");
+        System.setProperty("eagle.webhooks.concurrency", "1");
+        System.setProperty("eagle.webhooks.pollMs", "20");
+        System.setProperty("eagle.webhooks.maxAttempts", String.valueOf(MAX_ATTEMPTS));
+        System.setProperty("eagle.webhooks.backoffMs", "5");
+        System.setProperty("eagle.webhooks.maxBackoffMs", "20");
+        WebhookDispatcher dispatcher = WebhookDispatcher.fromConfig();
+        assertNotNull(dispatcher);
+        dispatcher.start();
+
+        UserDao users = new UserDao();
+        users.saveUser("webhooks", "webhooks");
+        int userId = users.getUserByUsername("webhooks").id;
+        int accountId = new BankAccountDao().createForUser(userId, null).id;
+        TransactionDao txs = new TransactionDao();
+        for (int i = 0; i < TRANSACTIONS; i++) {
+            TxRecord tx = txs.deposit(accountId, new BigDecimal("1.00"));
+            assertNotNull(tx);
+            committed.add("tx-" + tx.id);
+        }
+    }
+
+    @AfterAll
+    static void stop() {
+        OutboxDao.routeTo(List.of());
+        flakyServer.stop(0);
+        downServer.stop(0);
+    }
+
+    @Test
+    void everyEventIsDeliveredAtLeastOnceDespiteFailures() {
+        await(() -> flaky.eventIds().containsAll(committed), "flaky endpoint to receive every event");
+        Backlog backlog = await(new OutboxDao(), "flaky", b -> b.pending() == 0);
+        assertEquals(0, backlog.parked(), "no flaky batch should run out of attempts");
+    }
+
+    @Test
+    void failedDeliveriesAreRescheduled() {
+        await(() -> flaky.eventIds().containsAll(committed), "flaky endpoint to receive every event");
+        assertTrue(number(flaky, "refused") > 0, "the stub refused no batch: " + flaky.stats());
+        assertTrue(number(flaky, "maxAttempt") > 1, "no refused batch came back: " + flaky.stats());
+    }
+
+    @Test
+    void eventsAreParkedAfterMaxAttempts() {
+        Backlog backlog = await(new OutboxDao(), "down", b -> b.parked() == TRANSACTIONS);
+        assertEquals(0, backlog.pending());
+        assertEquals(MAX_ATTEMPTS, number(down, "maxAttempt"), "parked before or after maxAttempts: " + down.stats());
+        assertTrue(down.eventIds().isEmpty());
+    }
+
+    private static long number(WebhookReceiver stub, String key) {
+        return ((Number) stub.stats().get(key)).longValue();
+    }
+
+    private static void await(BooleanSupplier condition, String what) {
+        long deadline = System.currentTimeMillis() + 30_000;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.currentTimeMillis() < deadline, "timed out waiting for " + what);
+            sleep();
+        }
+    }
+
+    private static Backlog await(OutboxDao outbox, String endpoint, Predicate<Backlog> condition) {
+        long deadline = System.currentTimeMillis() + 30_000;
+        while (true) {
+            Backlog b = outbox.backlog(endpoint);
+            if (b != null && condition.test(b)) return b;
+            assertTrue(System.currentTimeMillis() < deadline, "timed out waiting on the '" + endpoint + "' backlog: " + b);
+            sleep();
+        }
+    }
+
+    private static void sleep() {
+        try { Thread.sleep(50); } catch (InterruptedException e) { Thread.currentThread().interrupt(); }
+    }
+}